@@ -0,0 +1,67 @@
+package fr.umontpellier.bloomcycle.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file against a recorded baseline and fails when a
+ * benchmark got slower than the allowed tolerance.
+ * Usage: {@code BaselineComparison <baseline.json> <result.json> [tolerancePercent]}
+ */
+public class BaselineComparison {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparison <baseline.json> <result.json> [tolerancePercent]");
+            System.exit(2);
+        }
+
+        var baseline = readScores(Path.of(args[0]));
+        var current = readScores(Path.of(args[1]));
+        var tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        var regressions = 0;
+
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Delta");
+        for (var entry : current.entrySet()) {
+            var before = baseline.get(entry.getKey());
+            var after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", entry.getKey(), "-", after, "new");
+                continue;
+            }
+
+            // Every benchmark reports average time, so a positive delta is a slowdown.
+            var delta = (after - before) / before * 100.0;
+            var marker = delta > tolerance ? "  REGRESSION" : "";
+            if (delta > tolerance)
+                regressions++;
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), before, after, delta, marker);
+        }
+
+        if (regressions > 0) {
+            System.err.println(regressions + " benchmark(s) regressed by more than " + tolerance + "%");
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Double> readScores(Path resultFile) throws IOException {
+        var scores = new LinkedHashMap<String, Double>();
+        for (JsonNode run : new ObjectMapper().readTree(resultFile.toFile())) {
+            var params = new TreeMap<String, String>();
+            run.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+
+            var metric = run.path("primaryMetric");
+            var key = run.path("benchmark").asText()
+                    + (params.isEmpty() ? "" : params.toString())
+                    + " (" + metric.path("scoreUnit").asText() + ")";
+            scores.put(key, metric.path("score").asDouble());
+        }
+        return scores;
+    }
+}
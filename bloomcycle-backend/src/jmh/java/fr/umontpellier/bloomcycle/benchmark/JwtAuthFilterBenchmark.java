@@ -0,0 +1,74 @@
+package fr.umontpellier.bloomcycle.benchmark;
+
+import fr.umontpellier.bloomcycle.repository.UserRepository;
+import fr.umontpellier.bloomcycle.security.AuthenticatedUser;
+import fr.umontpellier.bloomcycle.security.JwtAuthFilter;
+import fr.umontpellier.bloomcycle.security.PrincipalCache;
+import fr.umontpellier.bloomcycle.service.UserService;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class JwtAuthFilterBenchmark {
+
+    // Size of both the verified-token and the principal caches; 0 disables them.
+    @Param({"0", "10000"})
+    private int cacheEntries;
+
+    private JwtAuthFilter filter;
+    private String authorizationHeader;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var jwtService = JwtBenchmark.newJwtService(cacheEntries);
+        var user = JwtBenchmark.benchmarkUser();
+
+        // In-memory repository: the benchmark measures the filter, not the database round trip.
+        var userRepository = (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByEmail" -> Optional.of(user);
+                    case "findPrincipalByEmail" -> Optional.of(new AuthenticatedUser(user.getId(), user.getEmail()));
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryUserRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        var principalCache = new PrincipalCache(cacheEntries);
+        ReflectionTestUtils.setField(principalCache, "ttl", Duration.ofMinutes(5));
+
+        filter = new JwtAuthFilter(jwtService, new UserService(userRepository, principalCache), (request, response, handler, ex) -> null);
+        authorizationHeader = "Bearer " + jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public Object authenticateRequest() throws ServletException, IOException {
+        var request = new MockHttpServletRequest("GET", "/api/v1/projects/bench/details");
+        request.addHeader("Authorization", authorizationHeader);
+
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
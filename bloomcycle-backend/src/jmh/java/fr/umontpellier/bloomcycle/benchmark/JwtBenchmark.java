@@ -0,0 +1,63 @@
+package fr.umontpellier.bloomcycle.benchmark;
+
+import fr.umontpellier.bloomcycle.model.User;
+import fr.umontpellier.bloomcycle.security.JwtService;
+import fr.umontpellier.bloomcycle.security.VerifiedTokenCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class JwtBenchmark {
+
+    static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    // 0 disables the verified-token cache, so every call checks the signature.
+    @Param({"0", "10000"})
+    private int cacheEntries;
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtService = newJwtService(cacheEntries);
+        token = jwtService.generateToken(benchmarkUser());
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token);
+    }
+
+    static JwtService newJwtService(int cacheEntries) {
+        var cache = new VerifiedTokenCache(cacheEntries);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(5));
+        var service = new JwtService(cache);
+        ReflectionTestUtils.setField(service, "secretKey", SECRET);
+        ReflectionTestUtils.setField(service, "accessTokenTtl", Duration.ofMinutes(15));
+        service.init();
+        return service;
+    }
+
+    static User benchmarkUser() {
+        return User.builder()
+                .id(1L)
+                .email("bench@bloomcycle.local")
+                .username("bench")
+                .password("{noop}bench")
+                .build();
+    }
+}
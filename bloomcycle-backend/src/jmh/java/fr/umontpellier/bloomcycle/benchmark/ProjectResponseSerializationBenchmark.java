@@ -0,0 +1,48 @@
+package fr.umontpellier.bloomcycle.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.umontpellier.bloomcycle.dto.ProjectResponse;
+import fr.umontpellier.bloomcycle.model.container.ContainerStatus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ProjectResponseSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int projectCount;
+
+    private ObjectMapper objectMapper;
+    private List<ProjectResponse> projects;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        var statuses = ContainerStatus.values();
+
+        projects = IntStream.range(0, projectCount)
+                .mapToObj(i -> ProjectResponse.builder()
+                        .id(UUID.randomUUID().toString())
+                        .name("project-" + i)
+                        .owner("bench@bloomcycle.local")
+                        .containerStatus(statuses[i % statuses.length])
+                        .build())
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] serializeProjectList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(projects);
+    }
+}
@@ -0,0 +1,87 @@
+package fr.umontpellier.bloomcycle.benchmark;
+
+import fr.umontpellier.bloomcycle.model.ProjectType;
+import fr.umontpellier.bloomcycle.service.BlobStore;
+import fr.umontpellier.bloomcycle.service.FileService;
+import fr.umontpellier.bloomcycle.service.StorageVolumeService;
+import fr.umontpellier.bloomcycle.service.ProjectTypeAnalyzer;
+import fr.umontpellier.bloomcycle.service.detection.*;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class TechnologyDetectionBenchmark {
+
+    @Param({"python-flat", "java-maven", "node-huge-node_modules", "react-100k-files", "static-nested"})
+    public String tree;
+
+    private ProjectTypeAnalyzer analyzer;
+    private Path projectRoot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        analyzer = new ProjectTypeAnalyzer(List.of(new JavaBuildRule(), new NodePackageRule(), new PythonRule(),
+                new PhpRule(), new DockerfileRule(), new StaticSiteRule()));
+        projectRoot = Files.createTempDirectory("bloomcycle-jmh-tree");
+
+        switch (tree) {
+            case "python-flat" -> {
+                Files.writeString(projectRoot.resolve("requirements.txt"), "flask\n");
+                createFiles(projectRoot, "module", ".py", 200);
+            }
+            case "java-maven" -> {
+                Files.writeString(projectRoot.resolve("pom.xml"), "<project><packaging>jar</packaging></project>");
+                for (int i = 0; i < 20; i++)
+                    createFiles(projectRoot.resolve("src/main/java/pkg" + i), "Type", ".java", 50);
+            }
+            case "node-huge-node_modules" -> {
+                Files.writeString(projectRoot.resolve("package.json"), "{\"dependencies\":{\"react\":\"^18.0.0\"}}");
+                createFiles(projectRoot.resolve("src"), "component", ".js", 100);
+                for (int i = 0; i < 400; i++)
+                    createFiles(projectRoot.resolve("node_modules/dependency-" + i + "/lib"), "index", ".js", 50);
+            }
+            case "react-100k-files" -> {
+                Files.writeString(projectRoot.resolve("package.json"), "{\"dependencies\":{\"react\":\"^18.0.0\"}}");
+                for (int i = 0; i < 50; i++)
+                    createFiles(projectRoot.resolve("src/feature" + i), "component", ".jsx", 40);
+                for (int i = 0; i < 2000; i++)
+                    createFiles(projectRoot.resolve("node_modules/dependency-" + i + "/lib"), "index", ".js", 50);
+            }
+            case "static-nested" -> {
+                // No manifest anywhere: the whole (depth-limited) tree is visited.
+                Files.writeString(projectRoot.resolve("index.html"), "<html></html>");
+                for (int i = 0; i < 50; i++)
+                    createFiles(projectRoot.resolve("assets/section" + i + "/img"), "picture", ".png", 40);
+            }
+            default -> throw new IllegalArgumentException("Unknown tree: " + tree);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        var storageVolumeService = new StorageVolumeService(null);
+        new FileService(new Tracer(List.of()), new BlobStore(storageVolumeService), storageVolumeService).deleteProjectDirectory(projectRoot.toString());
+    }
+
+    @Benchmark
+    public ProjectType analyzeTechnology() {
+        return analyzer.analyzeTechnology(projectRoot.toString());
+    }
+
+    private static void createFiles(Path directory, String prefix, String extension, int count) throws IOException {
+        Files.createDirectories(directory);
+        for (int i = 0; i < count; i++)
+            Files.writeString(directory.resolve(prefix + i + extension), "// generated\n");
+    }
+}
@@ -0,0 +1,87 @@
+package fr.umontpellier.bloomcycle.benchmark;
+
+import fr.umontpellier.bloomcycle.service.BlobStore;
+import fr.umontpellier.bloomcycle.service.FileService;
+import fr.umontpellier.bloomcycle.service.StorageVolumeService;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ZipExtractionBenchmark {
+
+    @Param({"small", "large", "many-files"})
+    public String archive;
+
+    private FileService fileService;
+    private Path upload;
+    private Path targetRoot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        targetRoot = Files.createTempDirectory("bloomcycle-jmh-zip");
+        var storageVolumeService = new StorageVolumeService(null);
+        ReflectionTestUtils.setField(storageVolumeService, "storagePath", targetRoot.toString());
+        ReflectionTestUtils.setField(storageVolumeService, "volumeSpecs", List.of());
+        storageVolumeService.loadVolumes();
+        var blobStore = new BlobStore(storageVolumeService);
+        ReflectionTestUtils.setField(blobStore, "hardlinks", true);
+        fileService = new FileService(new Tracer(List.of()), blobStore, storageVolumeService);
+
+        var content = switch (archive) {
+            case "small" -> buildArchive(20, 4 * 1024);
+            case "large" -> buildArchive(4, 16 * 1024 * 1024);
+            case "many-files" -> buildArchive(900, 2 * 1024);
+            default -> throw new IllegalArgumentException("Unknown archive: " + archive);
+        };
+        // The creation pipeline extracts the archive it spooled under the storage directory.
+        upload = Files.write(Files.createDirectories(targetRoot.resolve("uploads")).resolve("sources.zip"), content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fileService.deleteProjectDirectory(targetRoot.toString());
+    }
+
+    @Benchmark
+    public void extractZipFile() throws IOException {
+        fileService.extractZipFile(upload, targetRoot.resolve("project"));
+    }
+
+    static byte[] buildArchive(int fileCount, int fileSize) throws IOException {
+        var random = new Random(42);
+        var output = new ByteArrayOutputStream();
+
+        try (var zip = new ZipOutputStream(output)) {
+            for (int i = 0; i < fileCount; i++) {
+                zip.putNextEntry(new ZipEntry("project-main/src/module-" + (i % 20) + "/file-" + i + ".txt"));
+                zip.write(compressibleBytes(random, fileSize));
+                zip.closeEntry();
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] compressibleBytes(Random random, int size) {
+        var alphabet = "abcdefghijklmnopqrstuvwxyz {}();\n".getBytes();
+        var bytes = new byte[size];
+        for (int i = 0; i < size; i++)
+            bytes[i] = alphabet[random.nextInt(alphabet.length)];
+        return bytes;
+    }
+}
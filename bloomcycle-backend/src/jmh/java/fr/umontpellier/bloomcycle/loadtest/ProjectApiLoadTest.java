@@ -0,0 +1,258 @@
+package fr.umontpellier.bloomcycle.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.umontpellier.bloomcycle.BloomCycleApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Open-loop load generator for the project API. Boots the backend in-process on H2 with the
+ * simulated Docker daemon, then fires create/list/details/start/stop requests at a fixed rate
+ * and reports throughput and latency percentiles per operation.
+ * Usage: {@code ProjectApiLoadTest [targetRps] [durationSeconds] [maxInFlight]}
+ */
+public class ProjectApiLoadTest {
+
+    private enum Operation {
+        LIST(40), DETAILS(30), CREATE(10), START(10), STOP(10);
+
+        private final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final class Recorder {
+        private final List<Long> latenciesNanos = new ArrayList<>();
+        private int errors;
+
+        synchronized void record(long nanos, boolean success) {
+            latenciesNanos.add(nanos);
+            if (!success)
+                errors++;
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final Map<Operation, Recorder> recorders = new ConcurrentHashMap<>();
+    private final List<String> projectIds = new CopyOnWriteArrayList<>();
+    private final AtomicInteger projectSequence = new AtomicInteger();
+    private final byte[] sourceZip;
+    private String baseUrl;
+    private String token;
+
+    private ProjectApiLoadTest() throws IOException {
+        this.sourceZip = buildNodeProjectZip();
+        for (var operation : Operation.values())
+            recorders.put(operation, new Recorder());
+    }
+
+    public static void main(String[] args) throws Exception {
+        var targetRps = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        var durationSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        var maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        // DevTools would relaunch main() in a restart class loader without our arguments.
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        var storage = Files.createTempDirectory("bloomcycle-loadtest");
+        try (var context = new SpringApplicationBuilder(BloomCycleApplication.class)
+                .profiles("dev")
+                .properties(
+                        "server.port=0",
+                        "app.docker.simulator.enabled=true",
+                        "app.storage.path=" + storage,
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "logging.level.root=WARN")
+                // A single user drives every start and stop: lift the limits so that latencies
+                // measure the Docker path rather than fast 429 refusals. Passed as arguments,
+                // since application.properties overrides the defaults above.
+                .run("--app.rate-limit.container-operations.capacity=1000000",
+                        "--app.rate-limit.container-operations.refill-interval=1ms",
+                        "--app.docker.admission.max-queue-depth=" + Integer.MAX_VALUE,
+                        "--app.docker.admission.max-queue-latency=1d")) {
+            var port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            var loadTest = new ProjectApiLoadTest();
+            loadTest.baseUrl = "http://localhost:" + port + "/api/v1";
+            loadTest.token = loadTest.register();
+            for (int i = 0; i < 10; i++)
+                loadTest.send(Operation.CREATE).join();
+
+            loadTest.run(targetRps, Duration.ofSeconds(durationSeconds), maxInFlight);
+        }
+        System.exit(0);
+    }
+
+    private void run(int targetRps, Duration duration, int maxInFlight) throws InterruptedException {
+        recorders.values().forEach(recorder -> {
+            synchronized (recorder) {
+                recorder.latenciesNanos.clear();
+                recorder.errors = 0;
+            }
+        });
+
+        var inFlight = new Semaphore(maxInFlight);
+        var dropped = new AtomicInteger();
+        var scheduler = Executors.newSingleThreadScheduledExecutor();
+        var startedAt = System.nanoTime();
+
+        System.out.printf("Driving %d req/s for %ds (max %d in flight)%n", targetRps, duration.toSeconds(), maxInFlight);
+        scheduler.scheduleAtFixedRate(() -> {
+            if (!inFlight.tryAcquire()) {
+                dropped.incrementAndGet();
+                return;
+            }
+            send(pickOperation()).whenComplete((response, error) -> inFlight.release());
+        }, 0, 1_000_000_000L / targetRps, TimeUnit.NANOSECONDS);
+
+        Thread.sleep(duration.toMillis());
+        scheduler.shutdownNow();
+        inFlight.tryAcquire(maxInFlight, 2, TimeUnit.MINUTES);
+        var elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+        report(elapsedSeconds, dropped.get());
+    }
+
+    private Operation pickOperation() {
+        var roll = ThreadLocalRandom.current().nextInt(100);
+        for (var operation : Operation.values()) {
+            roll -= operation.weight;
+            if (roll < 0)
+                return operation;
+        }
+        return Operation.LIST;
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(Operation operation) {
+        var request = switch (operation) {
+            case LIST -> authorized("/projects").GET();
+            case DETAILS -> authorized("/projects/" + randomProject() + "/details").GET();
+            case START -> authorized("/projects/" + randomProject() + "/start").POST(HttpRequest.BodyPublishers.noBody());
+            case STOP -> authorized("/projects/" + randomProject() + "/stop").POST(HttpRequest.BodyPublishers.noBody());
+            case CREATE -> createRequest();
+        };
+
+        var startedAt = System.nanoTime();
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    var success = error == null && response.statusCode() < 400;
+                    recorders.get(operation).record(System.nanoTime() - startedAt, success);
+                    if (success && operation == Operation.CREATE)
+                        rememberProject(response.body());
+                });
+    }
+
+    private HttpRequest.Builder createRequest() {
+        var boundary = "----bloomcycle" + UUID.randomUUID();
+        var body = new ByteArrayOutputStream();
+        var name = "load-" + projectSequence.incrementAndGet();
+
+        body.writeBytes(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"name\"\r\n\r\n" + name + "\r\n")
+                .getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"sourceZip\"; filename=\"sources.zip\"\r\n"
+                + "Content-Type: application/zip\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(sourceZip);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        return authorized("/projects")
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()));
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Authorization", "Bearer " + token);
+    }
+
+    private String randomProject() {
+        return projectIds.get(ThreadLocalRandom.current().nextInt(projectIds.size()));
+    }
+
+    private void rememberProject(String body) {
+        try {
+            projectIds.add(objectMapper.readTree(body).path("id").asText());
+        } catch (IOException e) {
+            System.err.println("Unexpected create response: " + body);
+        }
+    }
+
+    private String register() throws IOException, InterruptedException {
+        var payload = objectMapper.writeValueAsString(Map.of(
+                "email", "load-" + UUID.randomUUID() + "@bloomcycle.local",
+                "password", "load-test-password",
+                "username", "load",
+                "fullName", "Load Test"));
+        var response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(payload))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        return objectMapper.readTree(response.body()).path("token").asText();
+    }
+
+    private void report(double elapsedSeconds, int dropped) {
+        System.out.printf("%n%-8s %8s %7s %10s %10s %10s %10s %10s%n",
+                "op", "count", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+
+        var total = 0;
+        for (var operation : Operation.values()) {
+            long[] sorted;
+            int errors;
+            var recorder = recorders.get(operation);
+            synchronized (recorder) {
+                sorted = recorder.latenciesNanos.stream().mapToLong(Long::longValue).toArray();
+                errors = recorder.errors;
+            }
+            Arrays.sort(sorted);
+            total += sorted.length;
+
+            System.out.printf("%-8s %8d %7d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    operation, sorted.length, errors, sorted.length / elapsedSeconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        }
+        System.out.printf("%ntotal %d requests in %.1fs (%.1f req/s), %d dropped by the in-flight limit%n",
+                total, elapsedSeconds, total / elapsedSeconds, dropped);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0)
+            return 0;
+        var index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static byte[] buildNodeProjectZip() throws IOException {
+        var output = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(output)) {
+            zip.putNextEntry(new ZipEntry("app/package.json"));
+            zip.write("{\"name\":\"load\",\"scripts\":{\"start\":\"node index.js\"}}".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("app/index.js"));
+            zip.write("require('http').createServer((_, res) => res.end('ok')).listen(3000);\n".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return output.toByteArray();
+    }
+}
@@ -1,8 +1,11 @@
 package fr.umontpellier.bloomcycle.configuration;
 
 import fr.umontpellier.bloomcycle.repository.UserRepository;
+import fr.umontpellier.bloomcycle.security.BoundedPasswordEncoder;
+import fr.umontpellier.bloomcycle.security.PrincipalCache;
 import fr.umontpellier.bloomcycle.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -17,17 +20,18 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 public class ApplicationConfig {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
     @Bean
     public UserService userService() {
-        return new UserService(userRepository);
+        return new UserService(userRepository, principalCache);
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userService());
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -37,7 +41,10 @@ public class ApplicationConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${app.auth.password-hashing.concurrency:2}") int concurrency,
+            @Value("${app.auth.password-hashing.queue-capacity:100}") int queueCapacity
+    ) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), concurrency, queueCapacity);
     }
 } 
\ No newline at end of file
@@ -2,6 +2,7 @@ package fr.umontpellier.bloomcycle.controller;
 
 import fr.umontpellier.bloomcycle.dto.auth.AuthResponse;
 import fr.umontpellier.bloomcycle.dto.auth.LoginRequest;
+import fr.umontpellier.bloomcycle.dto.auth.RefreshRequest;
 import fr.umontpellier.bloomcycle.dto.auth.RegisterRequest;
 import fr.umontpellier.bloomcycle.exception.EmailAlreadyExistsException;
 import fr.umontpellier.bloomcycle.exception.InvalidCredentialsException;
@@ -38,4 +39,15 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
     }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@RequestBody @Valid RefreshRequest request) {
+        return ResponseEntity.ok(authService.refresh(request));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody @Valid RefreshRequest request) {
+        authService.logout(request);
+        return ResponseEntity.noContent().build();
+    }
 } 
\ No newline at end of file
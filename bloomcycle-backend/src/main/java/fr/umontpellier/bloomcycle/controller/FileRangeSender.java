@@ -0,0 +1,93 @@
+package fr.umontpellier.bloomcycle.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Sends a file, or a single byte range of it, as the response body. When the connector supports
+ * it, Tomcat is handed the file and sends it with {@code sendfile}, so the bytes never go through
+ * the heap; otherwise the file channel is transferred into the response stream.
+ */
+@Component
+public class FileRangeSender {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    public void send(HttpServletRequest request, HttpServletResponse response, Path file, String etag) throws IOException {
+        var length = Files.size(file);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+                response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                return;
+            }
+        }
+
+        var start = 0L;
+        var end = length;
+        var rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        var ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            var ranges = parseRanges(rangeHeader);
+            // Several ranges are not worth a multipart body for downloads; the whole file is sent.
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.getFirst().getRangeStart(length);
+                    end = ranges.getFirst().getRangeEnd(length) + 1;
+                    if (start >= length)
+                        throw new IllegalArgumentException("Range starts after the end of the file");
+                } catch (IllegalArgumentException e) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+            }
+        }
+        response.setContentLengthLong(end - start);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var target = Channels.newChannel(response.getOutputStream());
+            for (var position = start; position < end; ) {
+                var sent = channel.transferTo(position, end - position, target);
+                // Nothing left to read: the file was truncated after its length was taken.
+                if (sent == 0)
+                    throw new EOFException("File " + file + " ended at byte " + position + " of " + end);
+                position += sent;
+            }
+        }
+    }
+
+    private static List<HttpRange> parseRanges(String rangeHeader) {
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+}
@@ -6,33 +6,55 @@ import fr.umontpellier.bloomcycle.dto.container.ContainerResponse;
 import fr.umontpellier.bloomcycle.dto.error.ErrorResponse;
 import fr.umontpellier.bloomcycle.dto.ProjectDetailResponse;
 import fr.umontpellier.bloomcycle.dto.LogsResponse;
+import fr.umontpellier.bloomcycle.dto.ProjectProgressResponse;
+import fr.umontpellier.bloomcycle.dto.PullResponse;
+import fr.umontpellier.bloomcycle.dto.WebhookResponse;
+import fr.umontpellier.bloomcycle.exception.QuotaExceededException;
+import fr.umontpellier.bloomcycle.exception.TooManyRequestsException;
+import fr.umontpellier.bloomcycle.exception.UnauthorizedAccessException;
 import fr.umontpellier.bloomcycle.model.Project;
-import fr.umontpellier.bloomcycle.model.User;
 import fr.umontpellier.bloomcycle.model.container.ContainerStatus;
 import fr.umontpellier.bloomcycle.model.container.ContainerOperation;
+import fr.umontpellier.bloomcycle.service.ColdStorageService;
+import fr.umontpellier.bloomcycle.service.ContainerOperationLimiter;
 import fr.umontpellier.bloomcycle.service.DockerService;
+import fr.umontpellier.bloomcycle.service.GitService;
+import fr.umontpellier.bloomcycle.service.ProjectCreationPipeline;
+import fr.umontpellier.bloomcycle.service.ProjectExportService;
+import fr.umontpellier.bloomcycle.service.ProjectListService;
+import fr.umontpellier.bloomcycle.service.ProjectPullService;
 import fr.umontpellier.bloomcycle.service.ProjectService;
+import fr.umontpellier.bloomcycle.service.WebhookDeployService;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.http.HttpStatus;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 @RestController
@@ -42,25 +64,36 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class ProjectController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ProjectService projectService;
     private final DockerService dockerService;
+    private final ColdStorageService coldStorageService;
+    private final ProjectListService projectListService;
+    private final ContainerOperationLimiter containerOperationLimiter;
+    private final ProjectCreationPipeline projectCreationPipeline;
+    private final ProjectPullService projectPullService;
+    private final ProjectExportService projectExportService;
+    private final FileRangeSender fileRangeSender;
+    private final WebhookDeployService webhookDeployService;
+    private final Tracer tracer;
 
-    private void checkProjectOwnership(Project project) {
-        var authentication = SecurityContextHolder.getContext().getAuthentication();
-        var currentUser = (User) authentication.getPrincipal();
-
-        if (!project.getOwner().getId().equals(currentUser.getId())) {
-            throw new AccessDeniedException("You don't have permission to access this project");
+    private Project getOwnedProject(String id) {
+        try {
+            return projectService.getOwnedProject(id);
+        } catch (UnauthorizedAccessException e) {
+            throw new AccessDeniedException(e.getMessage());
         }
     }
 
     @Operation(
         summary = "Create a new project",
-        description = "Create a project from either a Git repository URL or a ZIP file containing the source code"
+        description = "Create a project from either a Git repository URL or a ZIP file containing the source code. "
+            + "The sources are fetched and analyzed in the background: follow the project status on /{id}/progress or /{id}/events"
     )
     @ApiResponse(
-        responseCode = "201",
-        description = "Project created successfully",
+        responseCode = "202",
+        description = "Project accepted and queued for creation",
         content = @Content(schema = @Schema(implementation = ProjectResponse.class))
     )
     @ApiResponse(
@@ -72,17 +105,28 @@ public class ProjectController {
         responseCode = "401",
         description = "Unauthorized - JWT token is missing or invalid"
     )
+    @ApiResponse(
+        responseCode = "413",
+        description = "Storage quota exceeded",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
     @ApiResponse(
         responseCode = "500",
         description = "Internal server error while creating project"
     )
+    @ApiResponse(
+        responseCode = "503",
+        description = "Too many projects are being created, retry later"
+    )
     @SecurityRequirement(name = "bearer-key")
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<Object> createProject(
             @Parameter(description = "Project name", required = true) @RequestParam("name") String name,
             @Parameter(description = "Git repository URL") @RequestParam(value = "gitUrl", required = false) String gitUrl,
+            @Parameter(description = "Git branch to deploy (defaults to the repository default branch)") @RequestParam(value = "branch", required = false) String branch,
+            @Parameter(description = "Repository subdirectory containing the project") @RequestParam(value = "subdirectory", required = false) String subdirectory,
             @Parameter(description = "Source code as ZIP file") @RequestParam(value = "sourceZip", required = false) MultipartFile sourceZip) {
-        try {
+        try (var span = tracer.startSpan("project.create")) {
             boolean hasGitUrl = gitUrl != null && !gitUrl.trim().isEmpty();
             boolean hasZipFile = sourceZip != null && !sourceZip.isEmpty();
             
@@ -101,12 +145,26 @@ public class ProjectController {
                 return validationResponse;
             }
 
-            Project project = hasGitUrl 
-                ? projectService.initializeProjectFromGit(name, gitUrl.trim())
-                : projectService.initializeProjectFromZip(name, sourceZip);
+            span.setAttribute("project.source", hasGitUrl ? "git" : "zip");
+            Project project;
+            try {
+                project = hasGitUrl
+                    ? projectCreationPipeline.submitGit(name, gitUrl.trim(), new GitService.CloneOptions(branch, subdirectory))
+                    : projectCreationPipeline.submitArchive(name, sourceZip);
+            } catch (Exception e) {
+                span.recordException(e);
+                throw e;
+            }
+            span.setAttribute("project.id", project.getId());
 
-            return ResponseEntity.status(HttpStatus.CREATED)
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
                 .body(ProjectResponse.fromProject(project, ContainerStatus.STOPPED));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                "error", "Too many projects are being created, retry later"
+            ));
+        } catch (QuotaExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error creating project: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
@@ -118,7 +176,8 @@ public class ProjectController {
 
     @Operation(
         summary = "Get current user's projects",
-        description = "Retrieves all projects belonging to the authenticated user with their current container status"
+        description = "Retrieves one page of the projects belonging to the authenticated user with their current container status. "
+                + "When more projects follow, the X-Next-Cursor header holds the cursor of the next page."
     )
     @ApiResponse(
         responseCode = "200",
@@ -134,24 +193,27 @@ public class ProjectController {
     )
     @ApiResponse(
         responseCode = "400",
-        description = "Bad request - Error while retrieving projects"
+        description = "Invalid cursor, size, sort or filter",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
     )
     @SecurityRequirement(name = "bearer-key")
     @GetMapping
-    public ResponseEntity<List<ProjectResponse>> getAllProjects() {
-        try {
-            var projects = projectService.getCurrentUserProjects()
-                    .stream()
-                    .map(project -> {
-                        var containerStatus = dockerService.getProjectStatus(project.getId());
-                        return ProjectResponse.fromProject(project, containerStatus);
-                    })
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(projects);
-        } catch (Exception e) {
-            log.error("Error getting current user's projects", e);
-            return ResponseEntity.badRequest().body(null);
-        }
+    public ResponseEntity<List<ProjectResponse>> getAllProjects(
+            @Parameter(description = "X-Next-Cursor of the previous page") @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Page size, at most 100") @RequestParam(value = "size", defaultValue = "50") int size,
+            @Parameter(description = "name or updatedAt") @RequestParam(value = "sort", defaultValue = "name") String sort,
+            @Parameter(description = "asc or desc") @RequestParam(value = "direction", defaultValue = "asc") String direction,
+            @Parameter(description = "Only projects in this status, e.g. READY") @RequestParam(value = "status", required = false) String status,
+            @Parameter(description = "Only projects of this technology, e.g. NODEJS") @RequestParam(value = "stack", required = false) String stack) {
+        var page = projectListService.listProjects(cursor, size, sort, direction, status, stack);
+        var owner = projectService.getCurrentUser().email();
+        var projects = page.projects().stream()
+                .map(summary -> ProjectResponse.fromSummary(summary, owner, dockerService.getProjectStatus(summary.id())))
+                .collect(Collectors.toList());
+        var response = ResponseEntity.ok();
+        if (page.nextCursor() != null)
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        return response.body(projects);
     }
 
     @Operation(
@@ -179,10 +241,9 @@ public class ProjectController {
     @GetMapping("/{id}")
     public ResponseEntity<ProjectResponse> getProject(@PathVariable String id) {
         try {
-            var project = projectService.getProjectById(id);
-            checkProjectOwnership(project);
+            var project = getOwnedProject(id);
 
-            var containerStatus = dockerService.getProjectStatus(id);
+            var containerStatus = dockerService.getProjectStatus(project);
             return ResponseEntity.ok(ProjectResponse.fromProject(project, containerStatus));
         } catch (AccessDeniedException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
@@ -191,9 +252,171 @@ public class ProjectController {
         }
     }
 
+    @Operation(
+        summary = "Get project creation progress",
+        description = "Returns the creation stage of a project (PENDING, FETCHING, ANALYZING, PREPARING, READY or FAILED) and the error message of a failed creation"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Current creation stage",
+        content = @Content(schema = @Schema(implementation = ProjectProgressResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - User doesn't own this project"
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "Project not found"
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @GetMapping("/{id}/progress")
+    public ResponseEntity<ProjectProgressResponse> getProjectProgress(@PathVariable String id) {
+        return ResponseEntity.ok(projectCreationPipeline.getProgress(id));
+    }
+
+    @Operation(
+        summary = "Follow project creation",
+        description = "Server-sent events stream emitting a 'progress' event on each creation stage, closed once the project is READY or FAILED"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Event stream"
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - User doesn't own this project"
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter followProjectProgress(@PathVariable String id) throws IOException {
+        return projectCreationPipeline.subscribe(id);
+    }
+
+    @Operation(
+        summary = "Pull a Git project",
+        description = "Move a Git-based project to a branch, tag or commit (its current branch by default), rewriting only the files that changed, then rebuild it"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Project updated, with the changed files and the pull and rebuild durations",
+        content = @Content(schema = @Schema(implementation = PullResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Unknown ref or project not created from Git",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - User doesn't own this project"
+    )
+    @ApiResponse(
+        responseCode = "409",
+        description = "Project is still being created or already being pulled",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @PostMapping("/{id}/pull")
+    public ResponseEntity<PullResponse> pullProject(
+            @PathVariable String id,
+            @Parameter(description = "Branch, tag or commit SHA to deploy") @RequestParam(value = "ref", required = false) String ref,
+            @Parameter(description = "Rebuild and restart the container when files changed")
+            @RequestParam(value = "rebuild", required = false, defaultValue = "true") boolean rebuild) {
+        return ResponseEntity.ok(projectPullService.pull(id, ref, rebuild));
+    }
+
+    @Operation(
+        summary = "Export a project's sources",
+        description = "Download the current sources as a zip or tar.gz archive, generated while it is streamed. "
+            + "Once built, the archive is kept for the current sources version and supports range requests to resume a download"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Archive of the project sources"
+    )
+    @ApiResponse(
+        responseCode = "206",
+        description = "Requested range of a cached archive"
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Unsupported format",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - User doesn't own this project"
+    )
+    @ApiResponse(
+        responseCode = "409",
+        description = "Project is still being created",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "416",
+        description = "Range not satisfiable"
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @GetMapping("/{id}/export")
+    public void exportProject(
+            @PathVariable String id,
+            @Parameter(description = "Archive format: zip (default) or tar.gz") @RequestParam(value = "format", required = false) String format,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        var exportFormat = ProjectExportService.Format.parse(format);
+        var project = projectExportService.getExportableProject(id);
+        var rangeHeader = request.getHeader(HttpHeaders.RANGE);
+
+        var cached = projectExportService.findCached(project, exportFormat);
+        // Resuming needs a stable file, so a range on an archive not built yet builds it first.
+        if (cached.isEmpty() && rangeHeader != null && project.getSourcesUpdatedAt() != null)
+            cached = Optional.of(projectExportService.buildCached(project, exportFormat));
+
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(projectExportService.getFileName(project, exportFormat))
+                .build()
+                .toString());
+        if (cached.isPresent()) {
+            fileRangeSender.send(request, response, cached.get().file(), cached.get().etag());
+            return;
+        }
+        projectExportService.write(project, exportFormat, response.getOutputStream());
+    }
+
+    @Operation(
+        summary = "Configure the push webhook",
+        description = "Generate a new signing secret for the project's push webhook (the previous one stops working) and return the URL to register on the Git host"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Webhook URL and secret",
+        content = @Content(schema = @Schema(implementation = WebhookResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Project not created from Git",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - User doesn't own this project"
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @PostMapping("/{id}/webhook")
+    public ResponseEntity<WebhookResponse> rotateWebhookSecret(@PathVariable String id) {
+        var secret = webhookDeployService.rotateSecret(id);
+        var url = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/v1/webhooks/{id}")
+                .buildAndExpand(id)
+                .toUriString();
+        return ResponseEntity.ok(WebhookResponse.builder().projectId(id).url(url).secret(secret).build());
+    }
+
     @Operation(
         summary = "Delete a project",
-        description = "Delete a project and all its associated resources. Only the project owner can delete it."
+        description = "Delete a project. Its container, image and files are removed in the background. Only the project owner can delete it."
     )
     @ApiResponse(
         responseCode = "204",
@@ -217,8 +440,7 @@ public class ProjectController {
             @Parameter(description = "ID of the project to delete")
             @PathVariable String id) {
         try {
-            var project = projectService.getProjectById(id);
-            checkProjectOwnership(project);
+            getOwnedProject(id);
             projectService.deleteProject(id);
             return ResponseEntity.noContent().build();
         } catch (AccessDeniedException e) {
@@ -246,6 +468,10 @@ public class ProjectController {
         responseCode = "403",
         description = "Forbidden - User doesn't own this project"
     )
+    @ApiResponse(
+        responseCode = "429",
+        description = "Too many operations of this type, or the server is busy - see Retry-After"
+    )
     @ApiResponse(
         responseCode = "500",
         description = "Error starting project containers"
@@ -254,12 +480,15 @@ public class ProjectController {
     @PostMapping("/{id}/start")
     public ResponseEntity<ContainerResponse> startProject(@PathVariable String id) {
         try {
-            var project = projectService.getProjectById(id);
-            checkProjectOwnership(project);
+            var project = getOwnedProject(id);
+            containerOperationLimiter.acquire(project.getOwner().getId(), ContainerOperation.START);
+            coldStorageService.ensureHot(project);
 
-            var containerInfo = dockerService.executeOperation(id, ContainerOperation.START)
+            var containerInfo = dockerService.executeOperation(project, ContainerOperation.START)
                     .get(30, TimeUnit.SECONDS);
             return ResponseEntity.ok(ContainerResponse.fromContainerInfo(containerInfo, "start"));
+        } catch (TooManyRequestsException e) {
+            throw e;
         } catch (Exception e) {
             return e instanceof AccessDeniedException
                     ? ResponseEntity.status(HttpStatus.FORBIDDEN).build()
@@ -285,6 +514,10 @@ public class ProjectController {
         responseCode = "403",
         description = "Forbidden - User doesn't own this project"
     )
+    @ApiResponse(
+        responseCode = "429",
+        description = "Too many operations of this type, or the server is busy - see Retry-After"
+    )
     @ApiResponse(
         responseCode = "500",
         description = "Error stopping project containers"
@@ -293,13 +526,15 @@ public class ProjectController {
     @PostMapping("/{id}/stop")
     public ResponseEntity<ContainerResponse> stopProject(@PathVariable String id) {
         try {
-            var project = projectService.getProjectById(id);
-            checkProjectOwnership(project);
+            var project = getOwnedProject(id);
+            containerOperationLimiter.acquire(project.getOwner().getId(), ContainerOperation.STOP);
 
-            var containerInfo = dockerService.executeOperation(id, ContainerOperation.STOP)
+            var containerInfo = dockerService.executeOperation(project, ContainerOperation.STOP)
                     .get(30, TimeUnit.SECONDS);
             return ResponseEntity.accepted()
                     .body(ContainerResponse.fromContainerInfo(containerInfo, "stop"));
+        } catch (TooManyRequestsException e) {
+            throw e;
         } catch (Exception e) {
             return e instanceof AccessDeniedException
                     ? ResponseEntity.status(HttpStatus.FORBIDDEN).build()
@@ -325,6 +560,10 @@ public class ProjectController {
         responseCode = "403",
         description = "Forbidden - User doesn't own this project"
     )
+    @ApiResponse(
+        responseCode = "429",
+        description = "Too many operations of this type, or the server is busy - see Retry-After"
+    )
     @ApiResponse(
         responseCode = "500",
         description = "Error restarting project containers"
@@ -333,13 +572,16 @@ public class ProjectController {
     @PostMapping("/{id}/restart")
     public ResponseEntity<ContainerResponse> restartProject(@PathVariable String id) {
         try {
-            var project = projectService.getProjectById(id);
-            checkProjectOwnership(project);
+            var project = getOwnedProject(id);
+            containerOperationLimiter.acquire(project.getOwner().getId(), ContainerOperation.RESTART);
+            coldStorageService.ensureHot(project);
 
-            var containerInfo = dockerService.executeOperation(id, ContainerOperation.RESTART)
+            var containerInfo = dockerService.executeOperation(project, ContainerOperation.RESTART)
                     .get(30, TimeUnit.SECONDS);
             return ResponseEntity.accepted()
                     .body(ContainerResponse.fromContainerInfo(containerInfo, "restart"));
+        } catch (TooManyRequestsException e) {
+            throw e;
         } catch (Exception e) {
             return e instanceof AccessDeniedException
                     ? ResponseEntity.status(HttpStatus.FORBIDDEN).build()
@@ -376,10 +618,9 @@ public class ProjectController {
             @Parameter(description = "If true, returns only the container status without additional metrics")
             @RequestParam(required = false, defaultValue = "false") boolean statusOnly) {
         try {
-            var project = projectService.getProjectById(id);
-            checkProjectOwnership(project);
+            var project = getOwnedProject(id);
 
-            var status = dockerService.getProjectStatus(id);
+            var status = dockerService.getProjectStatus(project);
             
             if (statusOnly)
                 return ResponseEntity.ok(ContainerResponse.fromStatus(status));
@@ -391,15 +632,16 @@ public class ProjectController {
             
             if (status == ContainerStatus.RUNNING) {
                 try {
-                    cpuUsage = dockerService.getContainerMetrics(project)[0];
-                    memoryUsage = dockerService.getContainerMetrics(project)[1];
-                    serverUrl = dockerService.getProjectUrl(id);
+                    var metrics = dockerService.getContainerMetrics(project);
+                    cpuUsage = metrics[0];
+                    memoryUsage = metrics[1];
+                    serverUrl = dockerService.getProjectUrl(project);
                 } catch (Exception e) {
                     log.warn("Failed to get container metrics for project {}: {}", id, e.getMessage());
                 }
             }
             
-            var technology = projectService.getProjectTechnology(id);
+            var technology = projectService.getProjectTechnology(project);
 
             return ResponseEntity.ok(ProjectDetailResponse.fromProject(
                 project, status, cpuUsage, memoryUsage, serverUrl, technology, autoRestartEnabled));
@@ -437,10 +679,9 @@ public class ProjectController {
             @PathVariable String id,
             @RequestBody AutoRestartRequest request) {
         try {
-            var project = projectService.getProjectById(id);
-            checkProjectOwnership(project);
+            var project = getOwnedProject(id);
 
-            dockerService.configureAutoRestart(id, request.isEnabled());
+            dockerService.configureAutoRestart(project, request.isEnabled());
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
@@ -482,11 +723,10 @@ public class ProjectController {
     @GetMapping("/{id}/logs")
     public ResponseEntity<LogsResponse> getProjectLogs(@PathVariable String id) {
         try {
-            var project = projectService.getProjectById(id);
-            checkProjectOwnership(project);
+            var project = getOwnedProject(id);
 
             // Vérifier si le conteneur est en cours d'exécution
-            var status = dockerService.getProjectStatus(id);
+            var status = dockerService.getProjectStatus(project);
             if (status != ContainerStatus.RUNNING) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(LogsResponse.builder()
@@ -0,0 +1,106 @@
+package fr.umontpellier.bloomcycle.controller;
+
+import fr.umontpellier.bloomcycle.dto.FileListResponse;
+import fr.umontpellier.bloomcycle.dto.error.ErrorResponse;
+import fr.umontpellier.bloomcycle.service.ProjectFileService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/v1/projects/{id}/files")
+@Tag(name = "Project files", description = "Browse and read the files of a project")
+@RequiredArgsConstructor
+public class ProjectFileController {
+
+    private final ProjectFileService projectFileService;
+    private final FileRangeSender fileRangeSender;
+
+    @Operation(
+        summary = "List a project's files",
+        description = "Page through the indexed files of a project, optionally below a path prefix"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "One page of files",
+        content = @Content(schema = @Schema(implementation = FileListResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Invalid page, size or sort",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - User doesn't own this project"
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @GetMapping
+    public ResponseEntity<FileListResponse> listFiles(
+            @PathVariable String id,
+            @Parameter(description = "Only list paths starting with this prefix, e.g. src/") @RequestParam(value = "prefix", required = false) String prefix,
+            @Parameter(description = "Page number, from 0") @RequestParam(value = "page", defaultValue = "0") int page,
+            @Parameter(description = "Page size, at most 1000") @RequestParam(value = "size", defaultValue = "100") int size,
+            @Parameter(description = "path, name, size or modifiedAt") @RequestParam(value = "sort", defaultValue = "path") String sort,
+            @Parameter(description = "asc or desc") @RequestParam(value = "direction", defaultValue = "asc") String direction) {
+        return ResponseEntity.ok(projectFileService.listFiles(id, prefix, page, size, sort, direction));
+    }
+
+    @Operation(
+        summary = "Read a project file",
+        description = "Download the content of an indexed file; range requests allow previewing part of a large file"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "File content"
+    )
+    @ApiResponse(
+        responseCode = "206",
+        description = "Requested range of the file"
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - User doesn't own this project"
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "File not found",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "416",
+        description = "Range not satisfiable"
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @GetMapping("/content")
+    public void readFile(
+            @PathVariable String id,
+            @Parameter(description = "Path of the file in the project") @RequestParam("path") String path,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        var file = projectFileService.getFile(id, path);
+        var fileName = file.path().getFileName().toString();
+
+        response.setContentType(MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline().filename(fileName).build().toString());
+        // User content is served from the API's origin: never sniffed, never run as a page.
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader("Content-Security-Policy", "sandbox");
+        fileRangeSender.send(request, response, file.path(), file.etag());
+    }
+}
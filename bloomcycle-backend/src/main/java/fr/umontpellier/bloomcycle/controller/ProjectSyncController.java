@@ -0,0 +1,102 @@
+package fr.umontpellier.bloomcycle.controller;
+
+import fr.umontpellier.bloomcycle.dto.error.ErrorResponse;
+import fr.umontpellier.bloomcycle.dto.sync.SyncManifestRequest;
+import fr.umontpellier.bloomcycle.dto.sync.SyncPlanResponse;
+import fr.umontpellier.bloomcycle.dto.sync.SyncResultResponse;
+import fr.umontpellier.bloomcycle.service.ProjectSyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/v1/projects/{id}/sync")
+@Tag(name = "Project sync", description = "Delta redeploy of ZIP-based projects")
+@RequiredArgsConstructor
+public class ProjectSyncController {
+
+    private final ProjectSyncService projectSyncService;
+
+    @Operation(
+        summary = "Start a sync",
+        description = "Send the complete list of project files with their SHA-256; the response lists the contents the server is missing"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Sync plan",
+        content = @Content(schema = @Schema(implementation = SyncPlanResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Invalid manifest or Git-based project",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - User doesn't own this project"
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @PostMapping
+    public ResponseEntity<SyncPlanResponse> planSync(@PathVariable String id, @RequestBody SyncManifestRequest request) {
+        return ResponseEntity.ok(projectSyncService.plan(id, request));
+    }
+
+    @Operation(
+        summary = "Upload a missing file",
+        description = "Send the raw content of one of the files listed as missing, addressed by its SHA-256"
+    )
+    @ApiResponse(
+        responseCode = "204",
+        description = "Content stored"
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Content does not match the hash",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @PutMapping(value = "/{syncId}/blobs/{hash}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> uploadBlob(
+            @PathVariable String id,
+            @PathVariable String syncId,
+            @PathVariable String hash,
+            InputStream body) throws IOException {
+        projectSyncService.uploadBlob(id, syncId, hash, body);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(
+        summary = "Apply a sync",
+        description = "Update the project directory in place, deleting files absent from the manifest, and optionally rebuild the container"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Project updated",
+        content = @Content(schema = @Schema(implementation = SyncResultResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "409",
+        description = "Some missing files were not uploaded yet",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @PostMapping("/{syncId}/commit")
+    public ResponseEntity<SyncResultResponse> commitSync(
+            @PathVariable String id,
+            @PathVariable String syncId,
+            @Parameter(description = "Rebuild and restart the container once the files are updated")
+            @RequestParam(required = false, defaultValue = "false") boolean rebuild) throws IOException {
+        return ResponseEntity.ok(projectSyncService.commit(id, syncId, rebuild));
+    }
+}
@@ -0,0 +1,162 @@
+package fr.umontpellier.bloomcycle.controller;
+
+import fr.umontpellier.bloomcycle.dto.InitiateUploadRequest;
+import fr.umontpellier.bloomcycle.dto.ProjectResponse;
+import fr.umontpellier.bloomcycle.dto.UploadSessionResponse;
+import fr.umontpellier.bloomcycle.dto.error.ErrorResponse;
+import fr.umontpellier.bloomcycle.model.container.ContainerStatus;
+import fr.umontpellier.bloomcycle.service.UploadService;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/v1/uploads")
+@Tag(name = "Uploads", description = "Resumable chunked upload of project sources")
+@RequiredArgsConstructor
+@Slf4j
+public class UploadController {
+
+    private final UploadService uploadService;
+    private final Tracer tracer;
+
+    @Operation(
+        summary = "Start an upload session",
+        description = "Declare the size (and optionally the SHA-256) of a ZIP archive that will be sent in chunks"
+    )
+    @ApiResponse(
+        responseCode = "201",
+        description = "Upload session created",
+        content = @Content(schema = @Schema(implementation = UploadSessionResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Invalid size",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @PostMapping
+    public ResponseEntity<UploadSessionResponse> initiateUpload(@RequestBody InitiateUploadRequest request) throws IOException {
+        var session = uploadService.initiate(request);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(UploadSessionResponse.fromSession(session, uploadService.getSessionTtl()));
+    }
+
+    @Operation(
+        summary = "Get an upload session",
+        description = "Returns how many bytes were received, so an interrupted upload can resume from there"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Upload session state",
+        content = @Content(schema = @Schema(implementation = UploadSessionResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "Upload session not found or expired"
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionResponse> getUpload(@PathVariable String id) {
+        var session = uploadService.getSession(id);
+        return ResponseEntity.ok(UploadSessionResponse.fromSession(session, uploadService.getSessionTtl()));
+    }
+
+    @Operation(
+        summary = "Upload a chunk",
+        description = "Append raw bytes at the given offset, which must equal the number of bytes already received"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Chunk stored",
+        content = @Content(schema = @Schema(implementation = UploadSessionResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Checksum mismatch or chunk too large",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "409",
+        description = "Offset does not match the bytes already received",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionResponse> uploadChunk(
+            @PathVariable String id,
+            @Parameter(description = "Position of the chunk in the archive") @RequestParam long offset,
+            @Parameter(description = "Hex SHA-256 of the chunk")
+            @RequestHeader(value = "X-Chunk-Checksum", required = false) String checksum,
+            InputStream body) throws IOException {
+        var session = uploadService.writeChunk(id, offset, checksum, body);
+        return ResponseEntity.ok(UploadSessionResponse.fromSession(session, uploadService.getSessionTtl()));
+    }
+
+    @Operation(
+        summary = "Complete an upload",
+        description = "Queue the creation of a project from a fully received upload session"
+    )
+    @ApiResponse(
+        responseCode = "202",
+        description = "Project accepted, follow its progress on /api/v1/projects/{id}/progress",
+        content = @Content(schema = @Schema(implementation = ProjectResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "409",
+        description = "Upload is not complete",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "503",
+        description = "Too many projects are being created, retry later",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<ProjectResponse> completeUpload(
+            @PathVariable String id,
+            @Parameter(description = "Project name", required = true) @RequestParam("name") String name) throws IOException {
+        try (var span = tracer.startSpan("project.create")) {
+            span.setAttribute("project.source", "upload");
+            try {
+                var project = uploadService.complete(id, name);
+                span.setAttribute("project.id", project.getId());
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(ProjectResponse.fromProject(project, ContainerStatus.STOPPED));
+            } catch (Exception e) {
+                span.recordException(e);
+                throw e;
+            }
+        }
+    }
+
+    @Operation(
+        summary = "Abort an upload",
+        description = "Discard an upload session and the bytes received so far"
+    )
+    @ApiResponse(
+        responseCode = "204",
+        description = "Upload session discarded"
+    )
+    @SecurityRequirement(name = "bearer-key")
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abortUpload(@PathVariable String id) throws IOException {
+        uploadService.abort(id);
+        return ResponseEntity.noContent().build();
+    }
+}
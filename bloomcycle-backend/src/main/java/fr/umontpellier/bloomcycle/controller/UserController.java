@@ -1,6 +1,9 @@
 package fr.umontpellier.bloomcycle.controller;
 
+import fr.umontpellier.bloomcycle.dto.UsageResponse;
 import fr.umontpellier.bloomcycle.model.User;
+import fr.umontpellier.bloomcycle.security.AuthenticatedUser;
+import fr.umontpellier.bloomcycle.service.StorageUsageService;
 import fr.umontpellier.bloomcycle.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,6 +20,7 @@ import lombok.extern.slf4j.Slf4j;
 public class UserController {
 
     private final UserService userService;
+    private final StorageUsageService storageUsageService;
 
     @GetMapping("/me")
     public ResponseEntity<User> getCurrentUser() {
@@ -25,4 +29,13 @@ public class UserController {
         var user = userService.getUserByEmail(email);
         return ResponseEntity.ok(user);
     }
-}
\ No newline at end of file
+
+    /**
+     * Storage used by the current user and each of their projects, read from the usage counters.
+     */
+    @GetMapping("/me/usage")
+    public ResponseEntity<UsageResponse> getCurrentUserUsage() {
+        var user = (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return ResponseEntity.ok(storageUsageService.getUsage(user.id()));
+    }
+}
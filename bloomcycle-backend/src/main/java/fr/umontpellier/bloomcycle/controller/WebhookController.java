@@ -0,0 +1,54 @@
+package fr.umontpellier.bloomcycle.controller;
+
+import fr.umontpellier.bloomcycle.dto.WebhookDeliveryResponse;
+import fr.umontpellier.bloomcycle.dto.error.ErrorResponse;
+import fr.umontpellier.bloomcycle.service.WebhookDeployService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/webhooks")
+@Tag(name = "Webhooks", description = "Continuous deployment from Git push events")
+@RequiredArgsConstructor
+public class WebhookController {
+
+    private final WebhookDeployService webhookDeployService;
+
+    @Operation(
+        summary = "Receive a push event",
+        description = "GitHub-compatible push webhook, signed with the project secret (HMAC-SHA256 of the body in X-Hub-Signature-256). "
+            + "Pushes are debounced and coalesced into a single pull and rebuild of the latest commit"
+    )
+    @ApiResponse(
+        responseCode = "202",
+        description = "Deploy scheduled",
+        content = @Content(schema = @Schema(implementation = WebhookDeliveryResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Event acknowledged but ignored (ping, other branch, deleted branch)",
+        content = @Content(schema = @Schema(implementation = WebhookDeliveryResponse.class))
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Missing or invalid signature",
+        content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+    )
+    @PostMapping("/{projectId}")
+    public ResponseEntity<WebhookDeliveryResponse> receivePush(
+            @PathVariable String projectId,
+            @Parameter(description = "sha256=<hex HMAC of the body>") @RequestHeader(value = "X-Hub-Signature-256", required = false) String signature,
+            @Parameter(description = "Event type, push by default") @RequestHeader(value = "X-GitHub-Event", required = false) String event,
+            @RequestBody byte[] payload) {
+        var delivery = webhookDeployService.receive(projectId, signature, event, payload);
+        return ResponseEntity.status(delivery.isQueued() ? HttpStatus.ACCEPTED : HttpStatus.OK).body(delivery);
+    }
+}
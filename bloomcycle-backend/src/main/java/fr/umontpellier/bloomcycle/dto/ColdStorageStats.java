@@ -0,0 +1,25 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class ColdStorageStats {
+    private long archivedProjects;
+    private long archives;
+    private long archivedSourceBytes;
+    private long archivedImageBytes;
+    private long compressedBytes;
+    private long rehydrations;
+    private long rehydratedBytes;
+    private long lastRehydrationMillis;
+    private long maxRehydrationMillis;
+    private long averageRehydrationMillis;
+    private long failures;
+    private String lastError;
+    private Instant lastArchivedAt;
+    private Instant lastRehydratedAt;
+}
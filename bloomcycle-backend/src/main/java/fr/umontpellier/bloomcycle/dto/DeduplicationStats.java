@@ -0,0 +1,31 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class DeduplicationStats {
+    private long blobCount;
+    private boolean hardlinked;
+    private long storedBytes;
+    private long logicalBytes;
+    private long bytesSaved;
+    private double deduplicationRatio;
+
+    /**
+     * With hardlinks the blobs are the only copy of their content. Copies are counted in full on
+     * top of the blobs, since the JVM cannot tell whether the filesystem cloned their extents.
+     */
+    public static DeduplicationStats of(long blobCount, long blobBytes, long logicalBytes, boolean hardlinked) {
+        var storedBytes = hardlinked ? blobBytes : blobBytes + logicalBytes;
+        return DeduplicationStats.builder()
+                .blobCount(blobCount)
+                .hardlinked(hardlinked)
+                .storedBytes(storedBytes)
+                .logicalBytes(logicalBytes)
+                .bytesSaved(Math.max(0, logicalBytes - storedBytes))
+                .deduplicationRatio(storedBytes == 0 ? 1.0 : (double) logicalBytes / storedBytes)
+                .build();
+    }
+}
@@ -0,0 +1,50 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import fr.umontpellier.bloomcycle.model.File;
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.domain.Page;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+public class FileListResponse {
+    private List<FileEntry> files;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+
+    @Data
+    @Builder
+    public static class FileEntry {
+        private String path;
+        private String name;
+        private long size;
+        // Null for files that are not in the blob store, like those of a Git checkout.
+        private String hash;
+        private Instant modifiedAt;
+
+        public static FileEntry fromFile(File file) {
+            return FileEntry.builder()
+                    .path(file.getFilePath())
+                    .name(file.getName())
+                    .size(file.getSize())
+                    .hash(file.getHash())
+                    .modifiedAt(file.getModifiedAt())
+                    .build();
+        }
+    }
+
+    public static FileListResponse fromPage(Page<File> page) {
+        return FileListResponse.builder()
+                .files(page.map(FileEntry::fromFile).getContent())
+                .page(page.getNumber())
+                .size(page.getSize())
+                .totalElements(page.getTotalElements())
+                .totalPages(page.getTotalPages())
+                .build();
+    }
+}
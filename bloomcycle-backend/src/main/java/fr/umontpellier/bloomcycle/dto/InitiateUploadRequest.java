@@ -0,0 +1,10 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import lombok.Data;
+
+@Data
+public class InitiateUploadRequest {
+    private String fileName;
+    private long totalSize;
+    private String sha256;
+}
@@ -0,0 +1,16 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@Builder
+public class OperationLimiterStats {
+    private int buckets;
+    private int queueDepth;
+    private long queueLatencyMillis;
+    private Map<String, Long> rateLimited;
+    private long overloaded;
+}
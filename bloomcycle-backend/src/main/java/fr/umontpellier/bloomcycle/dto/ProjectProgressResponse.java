@@ -0,0 +1,26 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class ProjectProgressResponse {
+    private String id;
+    private ProjectStatus status;
+    private String message;
+    private Instant updatedAt;
+
+    public static ProjectProgressResponse fromProject(Project project) {
+        return ProjectProgressResponse.builder()
+                .id(project.getId())
+                .status(project.getStatus())
+                .message(project.getStatusMessage())
+                .updatedAt(project.getStatusUpdatedAt())
+                .build();
+    }
+}
@@ -1,6 +1,7 @@
 package fr.umontpellier.bloomcycle.dto;
 
 import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
 import fr.umontpellier.bloomcycle.model.container.ContainerStatus;
 import lombok.Builder;
 import lombok.Data;
@@ -12,6 +13,8 @@ public class ProjectResponse {
     private String name;
     private String owner;
     private ContainerStatus containerStatus;
+    private ProjectStatus status;
+    private String commitSha;
 
     public static ProjectResponse fromProject(Project project, ContainerStatus containerStatus) {
         return ProjectResponse.builder()
@@ -19,6 +22,19 @@ public class ProjectResponse {
                 .name(project.getName())
                 .owner(project.getOwner().getEmail())
                 .containerStatus(containerStatus)
+                .status(project.getStatus())
+                .commitSha(project.getCommitSha())
+                .build();
+    }
+
+    public static ProjectResponse fromSummary(ProjectSummary summary, String owner, ContainerStatus containerStatus) {
+        return ProjectResponse.builder()
+                .id(summary.id())
+                .name(summary.name())
+                .owner(owner)
+                .containerStatus(containerStatus)
+                .status(summary.status() == null ? ProjectStatus.READY : summary.status())
+                .commitSha(summary.commitSha())
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import fr.umontpellier.bloomcycle.model.ProjectType;
+
+import java.time.Instant;
+
+/**
+ * The columns of a project that the list endpoint shows, read by a constructor projection.
+ */
+public record ProjectSummary(String id, String name, ProjectStatus status, ProjectType projectType,
+                             String commitSha, Instant statusUpdatedAt) {
+}
@@ -0,0 +1,23 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import fr.umontpellier.bloomcycle.model.container.ContainerStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class PullResponse {
+    private String projectId;
+    private String ref;
+    private String previousCommit;
+    private String commit;
+    private List<String> added;
+    private List<String> modified;
+    private List<String> deleted;
+    private long pullMillis;
+    private boolean rebuildTriggered;
+    private Long rebuildMillis;
+    private ContainerStatus containerStatus;
+}
@@ -0,0 +1,30 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+public class StorageVolumeStats {
+    private List<VolumeStats> volumes;
+    private long moves;
+    private long movedBytes;
+    private long failures;
+    private String lastError;
+    private Instant lastMovedAt;
+
+    @Data
+    @Builder
+    public static class VolumeStats {
+        private String root;
+        private int weight;
+        private long totalBytes;
+        private long usableBytes;
+        private long projects;
+        private long projectBytes;
+        private int activeIo;
+    }
+}
@@ -0,0 +1,15 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class TokenCacheStats {
+    private int size;
+    private int maxEntries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private double hitRate;
+}
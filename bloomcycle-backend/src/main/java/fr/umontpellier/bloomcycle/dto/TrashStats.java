@@ -0,0 +1,20 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class TrashStats {
+    private int pendingEntries;
+    private int inProgress;
+    private long reapedEntries;
+    private long deletedFiles;
+    private long freedBytes;
+    private long failedAttempts;
+    private long abandonedEntries;
+    private String lastError;
+    private Instant lastReapedAt;
+}
@@ -0,0 +1,30 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import fr.umontpellier.bloomcycle.model.upload.UploadSession;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Data
+@Builder
+public class UploadSessionResponse {
+    private String id;
+    private String fileName;
+    private long totalSize;
+    private long receivedBytes;
+    private boolean complete;
+    private Instant expiresAt;
+
+    public static UploadSessionResponse fromSession(UploadSession session, Duration sessionTtl) {
+        return UploadSessionResponse.builder()
+                .id(session.getId())
+                .fileName(session.getFileName())
+                .totalSize(session.getTotalSize())
+                .receivedBytes(session.getReceivedBytes())
+                .complete(session.getReceivedBytes() == session.getTotalSize())
+                .expiresAt(session.getLastActivity().plus(sessionTtl))
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import fr.umontpellier.bloomcycle.model.Project;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UsageResponse {
+    private long storageBytes;
+    private long imageBytes;
+    // Null when storage is unlimited.
+    private Long quotaBytes;
+    private Long remainingBytes;
+    private List<ProjectUsage> projects;
+
+    @Data
+    @Builder
+    public static class ProjectUsage {
+        private String id;
+        private String name;
+        private Long diskBytes;
+        private Long fileCount;
+        private Long imageBytes;
+
+        public static ProjectUsage fromProject(Project project) {
+            return ProjectUsage.builder()
+                    .id(project.getId())
+                    .name(project.getName())
+                    .diskBytes(project.getDiskBytes())
+                    .fileCount(project.getFileCount())
+                    .imageBytes(project.getImageBytes())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class WebhookDeliveryResponse {
+    private String projectId;
+    private boolean queued;
+    private String reason;
+    private String commit;
+    private Instant deployAfter;
+}
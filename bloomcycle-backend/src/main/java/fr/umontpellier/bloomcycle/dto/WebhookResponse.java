@@ -0,0 +1,12 @@
+package fr.umontpellier.bloomcycle.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class WebhookResponse {
+    private String projectId;
+    private String url;
+    private String secret;
+}
@@ -9,6 +9,9 @@ import lombok.Builder;
 @Builder
 public class AuthResponse {
     private String token;
+    private String refreshToken;
+    // Lifetime of the access token, in seconds.
+    private long expiresIn;
     private String email;
     private String username;
 } 
\ No newline at end of file
@@ -0,0 +1,15 @@
+package fr.umontpellier.bloomcycle.dto.sync;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncFile {
+    private String path;
+    private String hash;
+    // Declared by the client; an upload longer than this is refused.
+    private Long size;
+}
@@ -0,0 +1,11 @@
+package fr.umontpellier.bloomcycle.dto.sync;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class SyncManifestRequest {
+    private List<SyncFile> files = new ArrayList<>();
+}
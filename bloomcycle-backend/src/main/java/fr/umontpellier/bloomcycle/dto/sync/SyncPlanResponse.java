@@ -0,0 +1,18 @@
+package fr.umontpellier.bloomcycle.dto.sync;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+public class SyncPlanResponse {
+    private String syncId;
+    private List<SyncFile> missing;
+    private int unchanged;
+    private int changed;
+    private int deleted;
+    private Instant expiresAt;
+}
@@ -0,0 +1,15 @@
+package fr.umontpellier.bloomcycle.dto.sync;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SyncResultResponse {
+    private String projectId;
+    private int written;
+    private int deleted;
+    private int unchanged;
+    private long uploadedBytes;
+    private boolean rebuildTriggered;
+}
@@ -0,0 +1,11 @@
+package fr.umontpellier.bloomcycle.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class AuthenticationBusyException extends RuntimeException {
+    public AuthenticationBusyException() {
+        super("Too many logins in progress, retry later");
+    }
+}
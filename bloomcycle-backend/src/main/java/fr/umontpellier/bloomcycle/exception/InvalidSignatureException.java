@@ -0,0 +1,11 @@
+package fr.umontpellier.bloomcycle.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNAUTHORIZED)
+public class InvalidSignatureException extends RuntimeException {
+    public InvalidSignatureException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,29 @@
+package fr.umontpellier.bloomcycle.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "blobs", indexes = @Index(name = "idx_blobs_ref_count", columnList = "ref_count"))
+public class Blob {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+
+    public Blob(String hash, long size) {
+        this.hash = hash;
+        this.size = size;
+    }
+}
@@ -5,10 +5,15 @@ import lombok.Getter;
 import lombok.Setter;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
+import java.time.Instant;
+
 @Entity
 @Getter
 @Setter
-@Table(name = "files")
+@Table(name = "files", indexes = {
+        @Index(name = "idx_files_hash", columnList = "hash"),
+        @Index(name = "idx_files_project_path", columnList = "project_id, file_path")
+})
 public class File {
 
     @Id
@@ -24,6 +29,16 @@ public class File {
     @Column(nullable = false)
     private String filePath;
 
+    // SHA-256 of the content in the blob store; null for files written outside of it, like a Git checkout.
+    @Column(length = 64)
+    private String hash;
+
+    @Column(name = "size_bytes")
+    private long size;
+
+    @Column(name = "modified_at")
+    private Instant modifiedAt;
+
     @ManyToOne
     @JoinColumn(name = "project_id", nullable = false)
     @JsonBackReference
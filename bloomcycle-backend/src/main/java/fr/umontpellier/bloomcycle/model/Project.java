@@ -5,6 +5,7 @@ import lombok.Data;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -12,7 +13,11 @@ import java.util.UUID;
 @Entity
 @Data
 @NoArgsConstructor
-@Table(name = "projects")
+@Table(name = "projects", indexes = {
+        @Index(name = "idx_projects_owner_name", columnList = "owner_id, name"),
+        @Index(name = "idx_projects_owner_status_updated_at", columnList = "owner_id, status_updated_at"),
+        @Index(name = "idx_projects_auto_restart", columnList = "auto_restart_enabled")
+})
 public class Project {
 
     @Id
@@ -29,6 +34,58 @@ public class Project {
     @Column(name = "project_type")
     private ProjectType projectType = ProjectType.OTHER;
 
+    // When the sources were last written and projectType detected from them; null on older rows.
+    @Column(name = "sources_updated_at")
+    private Instant sourcesUpdatedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private ProjectStatus status = ProjectStatus.READY;
+
+    @Column(name = "status_message", length = 1000)
+    private String statusMessage;
+
+    @Column(name = "status_updated_at", nullable = false)
+    private Instant statusUpdatedAt;
+
+    @Column(name = "git_url", length = 1000)
+    private String gitUrl;
+
+    @Column(name = "git_ref")
+    private String gitRef;
+
+    @Column(name = "git_subdirectory", length = 500)
+    private String gitSubdirectory;
+
+    @Column(name = "commit_sha", length = 40)
+    private String commitSha;
+
+    @JsonIgnore
+    @Column(name = "webhook_secret", length = 64)
+    private String webhookSecret;
+
+    // Storage accounting, kept up to date incrementally; null on rows not measured yet.
+    @Column(name = "disk_bytes")
+    private Long diskBytes = 0L;
+
+    @Column(name = "file_count")
+    private Long fileCount = 0L;
+
+    @Column(name = "image_bytes")
+    private Long imageBytes = 0L;
+
+    // Last start, pull or sync; null until the first one, when statusUpdatedAt stands in for it.
+    @Column(name = "last_activity_at")
+    private Instant lastActivityAt;
+
+    // Set while the sources and image are in cold storage, see ColdStorageService.
+    @Column(name = "archived_at")
+    private Instant archivedAt;
+
+    // Root of the volume holding the project directory, see StorageVolumeService; null for app.storage.path.
+    @Column(name = "storage_volume", length = 500)
+    private String storageVolume;
+
     @ManyToOne
     @JoinColumn(name = "owner_id", nullable = false)
     private User owner;
@@ -41,5 +98,12 @@ public class Project {
     protected void onCreate() {
         if (id == null)
             id = UUID.randomUUID().toString();
+        if (statusUpdatedAt == null)
+            statusUpdatedAt = Instant.now();
+    }
+
+    // Rows created before the creation pipeline existed have no status and are complete.
+    public ProjectStatus getStatus() {
+        return status == null ? ProjectStatus.READY : status;
     }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package fr.umontpellier.bloomcycle.model;
+
+public enum ProjectStatus {
+    PENDING,
+    FETCHING,
+    ANALYZING,
+    PREPARING,
+    READY,
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == READY || this == FAILED;
+    }
+}
@@ -0,0 +1,46 @@
+package fr.umontpellier.bloomcycle.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A refresh token, stored as the SHA-256 of its value. Each use revokes it and issues the next one
+ * of the same family; a revoked token presented again revokes the whole family.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_family", columnList = "family_id"),
+        @Index(name = "idx_refresh_tokens_expires_at", columnList = "expires_at")
+})
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "token_hash", length = 64, nullable = false, unique = true)
+    private String tokenHash;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "family_id", length = 36, nullable = false)
+    private String familyId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    // Set when the token is used, logged out or its family is revoked; such tokens are refused.
+    @Column(name = "revoked_at")
+    private Instant revokedAt;
+}
@@ -40,6 +40,22 @@ public class User implements UserDetails {
     @Column(name = "full_name")
     private String fullName;
 
+    // Sum of the projects' disk_bytes and image_bytes, adjusted along with them.
+    @JsonIgnore
+    @Column(name = "storage_bytes")
+    @Builder.Default
+    private Long storageBytes = 0L;
+
+    @JsonIgnore
+    @Column(name = "image_bytes")
+    @Builder.Default
+    private Long imageBytes = 0L;
+
+    // Overrides app.quota.storage-per-user when set.
+    @JsonIgnore
+    @Column(name = "storage_quota_bytes")
+    private Long storageQuotaBytes;
+
     @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     @JsonBackReference
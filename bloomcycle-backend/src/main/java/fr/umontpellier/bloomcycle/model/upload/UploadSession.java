@@ -0,0 +1,23 @@
+package fr.umontpellier.bloomcycle.model.upload;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Instant;
+
+@Data
+@Builder
+public class UploadSession {
+    private String id;
+    private Long ownerId;
+    private String fileName;
+    private long totalSize;
+    private String expectedSha256;
+    private Path spoolFile;
+    private MessageDigest digest;
+    private long receivedBytes;
+    private Instant lastActivity;
+    private boolean closed;
+}
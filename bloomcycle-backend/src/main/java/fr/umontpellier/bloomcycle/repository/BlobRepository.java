@@ -0,0 +1,33 @@
+package fr.umontpellier.bloomcycle.repository;
+
+import fr.umontpellier.bloomcycle.model.Blob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface BlobRepository extends JpaRepository<Blob, String> {
+
+    List<Blob> findByRefCountLessThanEqual(long refCount);
+
+    @Modifying
+    @Query("update Blob b set b.refCount = b.refCount + :delta where b.hash = :hash")
+    int adjustRefCount(@Param("hash") String hash, @Param("delta") long delta);
+
+    // One statement for a whole project instead of one update per distinct hash.
+    @Modifying
+    @Query("update Blob b set b.refCount = b.refCount - "
+            + "(select count(f) from File f where f.project.id = :projectId and f.hash = b.hash) "
+            + "where b.hash in (select f.hash from File f where f.project.id = :projectId)")
+    int releaseProjectReferences(@Param("projectId") String projectId);
+
+    @Query("select b.hash from Blob b")
+    List<String> findAllHashes();
+
+    long countByRefCountGreaterThan(long refCount);
+
+    @Query("select coalesce(sum(b.size), 0) from Blob b where b.refCount > 0")
+    long sumStoredBytes();
+}
@@ -1,7 +1,32 @@
 package fr.umontpellier.bloomcycle.repository;
 
 import fr.umontpellier.bloomcycle.model.File;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface FileRepository extends JpaRepository<File, Long> {
-}
\ No newline at end of file
+
+    List<File> findByProjectId(String projectId);
+
+    Page<File> findByProjectIdAndFilePathStartingWith(String projectId, String prefix, Pageable pageable);
+
+    Optional<File> findFirstByProjectIdAndFilePath(String projectId, String filePath);
+
+    @Modifying
+    @Query("delete from File f where f.project.id = :projectId")
+    int deleteByProjectId(@Param("projectId") String projectId);
+
+    @Modifying
+    @Query("delete from File f where f.project.id = :projectId and f.hash is null")
+    int deleteUnstoredByProjectId(@Param("projectId") String projectId);
+
+    @Query("select coalesce(sum(f.size), 0) from File f where f.hash is not null")
+    long sumReferencedBytes();
+}
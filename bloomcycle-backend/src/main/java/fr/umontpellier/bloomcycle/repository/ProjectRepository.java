@@ -1,14 +1,175 @@
 package fr.umontpellier.bloomcycle.repository;
 
+import fr.umontpellier.bloomcycle.dto.ProjectSummary;
 import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import fr.umontpellier.bloomcycle.model.ProjectType;
 import fr.umontpellier.bloomcycle.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProjectRepository extends JpaRepository<Project, String> {
-    List<Project> findByOwnerId(Long ownerId);
+    String SUMMARY_SELECT = "select new fr.umontpellier.bloomcycle.dto.ProjectSummary("
+            + "p.id, p.name, p.status, p.projectType, p.commitSha, p.statusUpdatedAt) from Project p "
+            + "where p.owner.id = :ownerId "
+            + "and (:status is null or coalesce(p.status, fr.umontpellier.bloomcycle.model.ProjectStatus.READY) = :status) "
+            + "and (:projectType is null or p.projectType = :projectType) ";
+
+    // Keyset pages of a user's projects: each query continues after the (key, id) of the last row
+    // of the previous page, or starts from the beginning when afterId is null. The page size comes
+    // from the Pageable, whose offset is always 0.
+    @Query(SUMMARY_SELECT
+            + "and (:afterId is null or p.name > :afterName or (p.name = :afterName and p.id > :afterId)) "
+            + "order by p.name asc, p.id asc")
+    List<ProjectSummary> findSummariesByNameAsc(@Param("ownerId") Long ownerId, @Param("status") ProjectStatus status,
+                                                @Param("projectType") ProjectType projectType,
+                                                @Param("afterName") String afterName, @Param("afterId") String afterId,
+                                                Pageable pageable);
+
+    @Query(SUMMARY_SELECT
+            + "and (:afterId is null or p.name < :afterName or (p.name = :afterName and p.id < :afterId)) "
+            + "order by p.name desc, p.id desc")
+    List<ProjectSummary> findSummariesByNameDesc(@Param("ownerId") Long ownerId, @Param("status") ProjectStatus status,
+                                                 @Param("projectType") ProjectType projectType,
+                                                 @Param("afterName") String afterName, @Param("afterId") String afterId,
+                                                 Pageable pageable);
+
+    @Query(SUMMARY_SELECT
+            + "and (:afterId is null or p.statusUpdatedAt > :afterUpdatedAt "
+            + "or (p.statusUpdatedAt = :afterUpdatedAt and p.id > :afterId)) "
+            + "order by p.statusUpdatedAt asc, p.id asc")
+    List<ProjectSummary> findSummariesByUpdatedAtAsc(@Param("ownerId") Long ownerId, @Param("status") ProjectStatus status,
+                                                     @Param("projectType") ProjectType projectType,
+                                                     @Param("afterUpdatedAt") Instant afterUpdatedAt,
+                                                     @Param("afterId") String afterId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT
+            + "and (:afterId is null or p.statusUpdatedAt < :afterUpdatedAt "
+            + "or (p.statusUpdatedAt = :afterUpdatedAt and p.id < :afterId)) "
+            + "order by p.statusUpdatedAt desc, p.id desc")
+    List<ProjectSummary> findSummariesByUpdatedAtDesc(@Param("ownerId") Long ownerId, @Param("status") ProjectStatus status,
+                                                      @Param("projectType") ProjectType projectType,
+                                                      @Param("afterUpdatedAt") Instant afterUpdatedAt,
+                                                      @Param("afterId") String afterId, Pageable pageable);
+
+    // Served by idx_projects_auto_restart alone, which also holds the primary key.
+    @Query("select p.id from Project p where p.autoRestartEnabled = true")
+    List<String> findIdsByAutoRestartEnabledTrue();
+
+    // Rows from before the creation pipeline, so that paging by status date never meets a null.
+    @Transactional
+    @Modifying
+    @Query("update Project p set p.statusUpdatedAt = :now where p.statusUpdatedAt is null")
+    int fillMissingStatusUpdatedAt(@Param("now") Instant now);
+
+    // Ownership checks only need this, not the project and its owner.
+    @Query("select p.owner.id from Project p where p.id = :id")
+    Optional<Long> findOwnerIdById(@Param("id") String id);
+
     List<Project> findByOwner(User owner);
+
+    List<Project> findByStatusIn(Collection<ProjectStatus> statuses);
+
+    List<Project> findByStatusAndStatusUpdatedAtBefore(ProjectStatus status, Instant updatedBefore);
+
+    @Transactional
+    @Modifying
+    @Query("update Project p set p.status = :status, p.statusMessage = :message, p.statusUpdatedAt = :updatedAt where p.id = :id")
+    int updateStatus(@Param("id") String id, @Param("status") ProjectStatus status,
+                     @Param("message") String message, @Param("updatedAt") Instant updatedAt);
+
+    @Transactional
+    @Modifying
+    @Query("update Project p set p.gitUrl = :url, p.gitRef = :ref, p.gitSubdirectory = :subdirectory, p.commitSha = :commitSha where p.id = :id")
+    int updateGitSource(@Param("id") String id, @Param("url") String url, @Param("ref") String ref,
+                        @Param("subdirectory") String subdirectory, @Param("commitSha") String commitSha);
+
+    @Transactional
+    @Modifying
+    @Query("update Project p set p.projectType = :projectType, p.sourcesUpdatedAt = :sourcesUpdatedAt where p.id = :id")
+    int updateProjectType(@Param("id") String id, @Param("projectType") ProjectType projectType,
+                          @Param("sourcesUpdatedAt") Instant sourcesUpdatedAt);
+
+    @Modifying
+    @Query("update Project p set p.diskBytes = p.diskBytes + :bytes, p.fileCount = p.fileCount + :files where p.id = :id")
+    int adjustSourceUsage(@Param("id") String id, @Param("bytes") long bytes, @Param("files") long files);
+
+    @Modifying
+    @Query("update Project p set p.diskBytes = :bytes, p.fileCount = :files where p.id = :id and p.diskBytes is null")
+    int initializeSourceUsage(@Param("id") String id, @Param("bytes") long bytes, @Param("files") long files);
+
+    @Modifying
+    @Query("update Project p set p.imageBytes = :bytes where p.id = :id")
+    int updateImageBytes(@Param("id") String id, @Param("bytes") long bytes);
+
+    List<Project> findByDiskBytesIsNull();
+
+    @Query("select p from Project p where p.archivedAt is null and p.autoRestartEnabled = false "
+            + "and (p.status = fr.umontpellier.bloomcycle.model.ProjectStatus.READY or p.status is null) "
+            + "and coalesce(p.lastActivityAt, p.statusUpdatedAt) < :cutoff")
+    List<Project> findArchiveCandidates(@Param("cutoff") Instant cutoff);
+
+    long countByArchivedAtIsNotNull();
+
+    @Query("select p.archivedAt from Project p where p.id = :id")
+    Instant findArchivedAtById(@Param("id") String id);
+
+    @Transactional
+    @Modifying
+    @Query("update Project p set p.lastActivityAt = :now where p.id = :id")
+    int updateLastActivity(@Param("id") String id, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("update Project p set p.archivedAt = :archivedAt where p.id = :id")
+    int updateArchivedAt(@Param("id") String id, @Param("archivedAt") Instant archivedAt);
+
+    interface VolumeUsage {
+        String getVolume();
+
+        long getProjects();
+
+        long getBytes();
+    }
+
+    @Query("select p.storageVolume as volume, count(p) as projects, coalesce(sum(p.diskBytes), 0) as bytes "
+            + "from Project p group by p.storageVolume")
+    List<VolumeUsage> sumUsageByStorageVolume();
+
+    @Query("select p.storageVolume from Project p where p.id = :id")
+    String findStorageVolumeById(@Param("id") String id);
+
+    // Ready, hot projects untouched since the cutoff, largest first; '' stands for app.storage.path.
+    @Query("select p from Project p where coalesce(p.storageVolume, '') = :volume and p.archivedAt is null "
+            + "and p.status = fr.umontpellier.bloomcycle.model.ProjectStatus.READY "
+            + "and coalesce(p.lastActivityAt, p.statusUpdatedAt) < :cutoff "
+            + "order by coalesce(p.diskBytes, 0) desc")
+    List<Project> findMigrationCandidates(@Param("volume") String volume, @Param("cutoff") Instant cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("update Project p set p.storageVolume = :target where p.id = :id and coalesce(p.storageVolume, '') = :source "
+            + "and p.archivedAt is null")
+    int updateStorageVolume(@Param("id") String id, @Param("source") String source, @Param("target") String target);
+
+    @Transactional
+    @Modifying
+    @Query("update Project p set p.autoRestartEnabled = :enabled where p.id = :id")
+    int updateAutoRestartEnabled(@Param("id") String id, @Param("enabled") boolean enabled);
+
+    @Transactional
+    @Modifying
+    @Query("update Project p set p.webhookSecret = :secret where p.id = :id")
+    int updateWebhookSecret(@Param("id") String id, @Param("secret") String secret);
 }
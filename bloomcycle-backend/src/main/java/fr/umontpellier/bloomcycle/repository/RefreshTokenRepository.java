@@ -0,0 +1,36 @@
+package fr.umontpellier.bloomcycle.repository;
+
+import fr.umontpellier.bloomcycle.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * Revokes a token unless it already is; returns 0 when another request used it first.
+     */
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.revokedAt = :now where t.id = :id and t.revokedAt is null")
+    int revoke(@Param("id") Long id, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.revokedAt = :now where t.familyId = :familyId and t.revokedAt is null")
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt < :cutoff")
+    int deleteExpired(@Param("cutoff") Instant cutoff);
+}
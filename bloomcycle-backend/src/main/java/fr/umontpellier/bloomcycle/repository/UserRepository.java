@@ -1,7 +1,11 @@
 package fr.umontpellier.bloomcycle.repository;
 
 import fr.umontpellier.bloomcycle.model.User;
+import fr.umontpellier.bloomcycle.security.AuthenticatedUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,9 +15,43 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByEmail(String email);
 
+    @Query("select new fr.umontpellier.bloomcycle.security.AuthenticatedUser(u.id, u.email) from User u where u.email = :email")
+    Optional<AuthenticatedUser> findPrincipalByEmail(@Param("email") String email);
+
     Optional<User> findByUsername(String username);
 
     boolean existsByEmail(String email);
 
     boolean existsByUsername(String username);
+
+    boolean existsByStorageBytesIsNull();
+
+    @Modifying
+    @Query("update User u set u.storageBytes = u.storageBytes + :storage, u.imageBytes = u.imageBytes + :image where u.id = :id")
+    int adjustUsage(@Param("id") Long id, @Param("storage") long storage, @Param("image") long image);
+
+    /**
+     * Adds {@code bytes} to the user's storage only if it stays within {@code quota}; returns 0
+     * otherwise. Users whose usage is not known yet are never refused.
+     */
+    @Modifying
+    @Query("update User u set u.storageBytes = u.storageBytes + :bytes "
+            + "where u.id = :id and (u.storageBytes is null or u.storageBytes + :bytes <= :quota)")
+    int addStorageWithinQuota(@Param("id") Long id, @Param("bytes") long bytes, @Param("quota") long quota);
+
+    /**
+     * Replaces the image size of a project in its owner's total, reading the previous size in the
+     * same statement. The owner's row lock then orders concurrent builds of their projects.
+     */
+    @Modifying
+    @Query("update User u set u.imageBytes = u.imageBytes + :bytes "
+            + "- coalesce((select p.imageBytes from Project p where p.id = :projectId), 0) "
+            + "where u.id = :id and exists (select p.id from Project p where p.id = :projectId)")
+    int replaceImageUsage(@Param("id") Long id, @Param("projectId") String projectId, @Param("bytes") long bytes);
+
+    @Modifying
+    @Query("update User u set "
+            + "u.storageBytes = (select coalesce(sum(p.diskBytes), 0) from Project p where p.owner = u), "
+            + "u.imageBytes = (select coalesce(sum(p.imageBytes), 0) from Project p where p.owner = u)")
+    int recomputeUsage();
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package fr.umontpellier.bloomcycle.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The principal of an authenticated request. It only holds what authorization needs, so it can be
+ * cached across requests; services load the {@link fr.umontpellier.bloomcycle.model.User} entity
+ * by id when they need more.
+ */
+public record AuthenticatedUser(Long id, String email, List<String> roles) implements Principal {
+
+    public AuthenticatedUser(Long id, String email) {
+        this(id, email, List.of("ROLE_USER"));
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return roles.stream().map(SimpleGrantedAuthority::new).toList();
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
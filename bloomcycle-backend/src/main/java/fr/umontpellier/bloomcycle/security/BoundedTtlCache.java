@@ -0,0 +1,98 @@
+package fr.umontpellier.bloomcycle.security;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of at most {@code maxEntries} entries, each expiring at its own instant. Lookups
+ * take no lock: expiry is checked on read, and once full the cache evicts the least recently used
+ * of a small sample of entries, expired ones first. A cache without entries stores nothing.
+ */
+final class BoundedTtlCache<K, V> {
+
+    // Entries looked at to pick one to evict: enough to find an old one, few enough to stay cheap.
+    private static final int EVICTION_SAMPLE = 16;
+
+    private static final class Entry<V> {
+        private final V value;
+        private final Instant expiresAt;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry(V value, Instant expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(Instant now) {
+            return !expiresAt.isAfter(now);
+        }
+    }
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+    private final int maxEntries;
+
+    BoundedTtlCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    V get(K key) {
+        var entry = entries.get(key);
+        if (entry == null)
+            return null;
+        if (entry.isExpired(Instant.now())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        entry.lastAccess = System.nanoTime();
+        return entry.value;
+    }
+
+    void put(K key, V value, Instant expiresAt) {
+        if (maxEntries <= 0)
+            return;
+        entries.put(key, new Entry<>(value, expiresAt));
+        while (entries.size() > maxEntries)
+            evictOne();
+    }
+
+    void remove(K key) {
+        entries.remove(key);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int maxEntries() {
+        return maxEntries;
+    }
+
+    long evictions() {
+        return evictions.get();
+    }
+
+    private void evictOne() {
+        var now = Instant.now();
+        K victim = null;
+        var oldest = Long.MAX_VALUE;
+        var sampled = 0;
+        for (var candidate : entries.entrySet()) {
+            var entry = candidate.getValue();
+            if (entry.isExpired(now)) {
+                victim = candidate.getKey();
+                break;
+            }
+            if (entry.lastAccess < oldest) {
+                oldest = entry.lastAccess;
+                victim = candidate.getKey();
+            }
+            if (++sampled == EVICTION_SAMPLE)
+                break;
+        }
+        if (victim != null && entries.remove(victim) != null)
+            evictions.incrementAndGet();
+    }
+}
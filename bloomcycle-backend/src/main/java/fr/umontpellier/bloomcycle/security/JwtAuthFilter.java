@@ -1,6 +1,5 @@
 package fr.umontpellier.bloomcycle.security;
 
-import fr.umontpellier.bloomcycle.model.User;
 import fr.umontpellier.bloomcycle.service.UserService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -32,6 +31,12 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         this.handlerExceptionResolver = handlerExceptionResolver;
     }
 
+    // Login and refresh must work while the client still sends an expired access token.
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/api/v1/auth/");
+    }
+
     @Override
     protected void doFilterInternal(
             @NonNull HttpServletRequest request,
@@ -47,12 +52,15 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         try {
             final String jwt = authHeader.substring(7);
-            final String userEmail = jwtService.extractUsername(jwt);
+            // Verifies the signature and expiry once; an invalid token throws.
+            final VerifiedToken token = jwtService.verify(jwt);
+            final String userEmail = token.username();
 
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                User user = userService.loadUserByUsername(userEmail);
-                
-                if (jwtService.isTokenValid(jwt)) {
+                AuthenticatedUser user = userService.loadPrincipal(userEmail);
+
+                // A token issued to a deleted account must not authenticate a new one with the same email.
+                if (token.userId() == null || token.userId().equals(user.id())) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             user,
                             null,
@@ -1,69 +1,95 @@
 package fr.umontpellier.bloomcycle.security;
 
 import fr.umontpellier.bloomcycle.model.User;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
-import java.util.function.Function;
 
 @Service
 public class JwtService {
     @Value("${jwt.secret}")
     private String secretKey;
-    
-    private static final long EXPIRATION_TIME = 7200000;
+
+    // Short, since a client gets a new one from its refresh token without a password check.
+    @Value("${jwt.access-token-ttl:15m}")
+    private Duration accessTokenTtl;
+
+    private final VerifiedTokenCache verifiedTokenCache;
+    private Key signingKey;
+    private JwtParser parser;
+
+    public JwtService(VerifiedTokenCache verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
+    }
+
+    /**
+     * The key and parser are immutable and thread-safe, so they are built once instead of for
+     * every token.
+     */
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
 
     public String generateToken(User user) {
         return Jwts.builder()
                 .setSubject(user.getEmail())
                 .claim("userId", user.getId())
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setExpiration(new Date(System.currentTimeMillis() + accessTokenTtl.toMillis()))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    public Duration getAccessTokenTtl() {
+        return accessTokenTtl;
     }
 
-    public Long extractUserId(String token) {
-        return extractClaim(token, claims -> claims.get("userId", Long.class));
-    }
+    /**
+     * Checks the signature and expiry of a token and returns its claims, or throws a
+     * {@link io.jsonwebtoken.JwtException}. Tokens verified recently are answered from
+     * {@link VerifiedTokenCache} without parsing them again.
+     */
+    public VerifiedToken verify(String token) {
+        var cached = verifiedTokenCache.get(token);
+        if (cached != null)
+            return cached;
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        var verified = new VerifiedToken(
+                claims.getSubject(),
+                claims.get("userId", Long.class),
+                claims.getExpiration() == null ? null : claims.getExpiration().toInstant());
+        verifiedTokenCache.put(token, verified);
+        return verified;
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public String extractUsername(String token) {
+        return verify(token).username();
     }
 
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public Long extractUserId(String token) {
+        return verify(token).userId();
     }
 
     public boolean isTokenValid(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
+            verify(token);
             return true;
         } catch (Exception e) {
             return false;
         }
     }
-} 
\ No newline at end of file
+}
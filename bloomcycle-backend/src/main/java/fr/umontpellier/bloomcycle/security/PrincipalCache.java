@@ -0,0 +1,38 @@
+package fr.umontpellier.bloomcycle.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Principals of recent requests by email, so that authenticating a request does not read the
+ * users table. Entries are bounded to {@code app.auth.principal-cache.max-entries} and kept for at
+ * most {@code app.auth.principal-cache.ttl}; {@link fr.umontpellier.bloomcycle.service.UserService}
+ * drops them when a user changes.
+ */
+@Component
+public class PrincipalCache {
+
+    private final BoundedTtlCache<String, AuthenticatedUser> entries;
+
+    @Value("${app.auth.principal-cache.ttl:10m}")
+    private Duration ttl;
+
+    public PrincipalCache(@Value("${app.auth.principal-cache.max-entries:10000}") int maxEntries) {
+        this.entries = new BoundedTtlCache<>(maxEntries);
+    }
+
+    public AuthenticatedUser get(String email) {
+        return entries.get(email);
+    }
+
+    public void put(AuthenticatedUser principal) {
+        entries.put(principal.email(), principal, Instant.now().plus(ttl));
+    }
+
+    public void invalidate(String email) {
+        entries.remove(email);
+    }
+}
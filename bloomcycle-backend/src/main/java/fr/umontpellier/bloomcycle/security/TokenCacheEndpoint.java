@@ -0,0 +1,20 @@
+package fr.umontpellier.bloomcycle.security;
+
+import fr.umontpellier.bloomcycle.dto.TokenCacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "tokencache")
+@RequiredArgsConstructor
+public class TokenCacheEndpoint {
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    @ReadOperation
+    public TokenCacheStats stats() {
+        return verifiedTokenCache.getStats();
+    }
+}
@@ -0,0 +1,9 @@
+package fr.umontpellier.bloomcycle.security;
+
+import java.time.Instant;
+
+/**
+ * The claims of a token whose signature and expiry have been checked.
+ */
+public record VerifiedToken(String username, Long userId, Instant expiresAt) {
+}
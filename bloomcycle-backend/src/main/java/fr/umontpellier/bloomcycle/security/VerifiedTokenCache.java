@@ -0,0 +1,73 @@
+package fr.umontpellier.bloomcycle.security;
+
+import fr.umontpellier.bloomcycle.dto.TokenCacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tokens verified recently, so that a client sending the same token on every request skips the
+ * HMAC and the JSON parsing. Entries are keyed by the SHA-256 of the token rather than the token
+ * itself, bounded to {@code jwt.cache.max-entries}, and never outlive the token nor
+ * {@code jwt.cache.ttl}.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final BoundedTtlCache<String, VerifiedToken> entries;
+
+    @Value("${jwt.cache.ttl:5m}")
+    private Duration ttl;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-entries:10000}") int maxEntries) {
+        this.entries = new BoundedTtlCache<>(maxEntries);
+    }
+
+    public VerifiedToken get(String token) {
+        if (entries.maxEntries() <= 0)
+            return null;
+        var verified = entries.get(digest(token));
+        (verified == null ? misses : hits).incrementAndGet();
+        return verified;
+    }
+
+    public void put(String token, VerifiedToken verified) {
+        if (entries.maxEntries() <= 0)
+            return;
+        var expiresAt = Instant.now().plus(ttl);
+        if (verified.expiresAt() != null && verified.expiresAt().isBefore(expiresAt))
+            expiresAt = verified.expiresAt();
+        entries.put(digest(token), verified, expiresAt);
+    }
+
+    public TokenCacheStats getStats() {
+        var hitCount = hits.get();
+        var lookups = hitCount + misses.get();
+        return TokenCacheStats.builder()
+                .size(entries.size())
+                .maxEntries(entries.maxEntries())
+                .hits(hitCount)
+                .misses(misses.get())
+                .evictions(entries.evictions())
+                .hitRate(lookups == 0 ? 0 : (double) hitCount / lookups)
+                .build();
+    }
+
+    private static String digest(String token) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -2,9 +2,12 @@ package fr.umontpellier.bloomcycle.service;
 
 import fr.umontpellier.bloomcycle.dto.auth.AuthResponse;
 import fr.umontpellier.bloomcycle.dto.auth.LoginRequest;
+import fr.umontpellier.bloomcycle.dto.auth.RefreshRequest;
 import fr.umontpellier.bloomcycle.dto.auth.RegisterRequest;
 import fr.umontpellier.bloomcycle.exception.EmailAlreadyExistsException;
 import fr.umontpellier.bloomcycle.exception.InvalidCredentialsException;
+import fr.umontpellier.bloomcycle.exception.InvalidRefreshTokenException;
+import fr.umontpellier.bloomcycle.exception.ResourceNotFoundException;
 import fr.umontpellier.bloomcycle.model.User;
 import fr.umontpellier.bloomcycle.security.JwtService;
 import lombok.RequiredArgsConstructor;
@@ -16,6 +19,7 @@ import org.springframework.stereotype.Service;
 public class AuthService {
     private final UserService userService;
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
     private final PasswordEncoder passwordEncoder;
 
     public AuthResponse register(RegisterRequest request) {
@@ -32,9 +36,7 @@ public class AuthService {
                 .build();
 
         var savedUser = userService.save(user);
-        var token = jwtService.generateToken(savedUser);
-
-        return buildAuthResponse(savedUser, token);
+        return buildAuthResponse(savedUser, refreshTokenService.issue(savedUser.getId()));
     }
 
     public AuthResponse authenticate(LoginRequest request) {
@@ -43,15 +45,34 @@ public class AuthService {
         if (!passwordEncoder.matches(request.getPassword(), user.getPassword()))
             throw new InvalidCredentialsException();
 
-        var token = jwtService.generateToken(user);
-        return buildAuthResponse(user, token);
+        return buildAuthResponse(user, refreshTokenService.issue(user.getId()));
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and the next refresh token, without
+     * checking the password again.
+     */
+    public AuthResponse refresh(RefreshRequest request) {
+        var rotation = refreshTokenService.rotate(request.getRefreshToken());
+        try {
+            return buildAuthResponse(userService.getUserById(rotation.userId()), rotation.refreshToken());
+        } catch (ResourceNotFoundException e) {
+            refreshTokenService.revoke(rotation.refreshToken());
+            throw new InvalidRefreshTokenException();
+        }
+    }
+
+    public void logout(RefreshRequest request) {
+        refreshTokenService.revoke(request.getRefreshToken());
     }
 
-    private AuthResponse buildAuthResponse(User user, String token) {
+    private AuthResponse buildAuthResponse(User user, String refreshToken) {
         return AuthResponse.builder()
-                .token(token)
+                .token(jwtService.generateToken(user))
+                .refreshToken(refreshToken)
+                .expiresIn(jwtService.getAccessTokenTtl().toSeconds())
                 .email(user.getEmail())
                 .username(user.getUsername())
                 .build();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,237 @@
+package fr.umontpellier.bloomcycle.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressable file store under {@code blobs/} of each storage volume. Each distinct content
+ * is kept once per volume, named by its SHA-256, and project trees are materialized from the blobs
+ * of their own volume.
+ * <p>
+ * By default a project file is a hardlink to its blob, so the project tree is the only copy on any
+ * filesystem. Blobs are read-only, and nothing writes a project file in place: builds only read the
+ * tree through the context {@code docker build} uploads, and files are replaced through a sibling
+ * and an atomic move. With {@code app.storage.blobs.hardlinks=false} project files are copies
+ * instead, which {@link Files#copy} makes reflinks on filesystems that support cloning (btrfs, XFS);
+ * elsewhere every file is then stored twice.
+ */
+@Component
+@RequiredArgsConstructor
+public class BlobStore {
+
+    public record StoredBlob(String hash, long size, boolean deduplicated) {
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final StorageVolumeService storageVolumeService;
+
+    @Value("${app.storage.blobs.hardlinks:true}")
+    private boolean hardlinks;
+
+    /**
+     * Streams {@code input} into the store and links the result at {@code target}.
+     * Fails with a {@link SecurityException} if the content is longer than {@code maxBytes}.
+     */
+    public StoredBlob store(InputStream input, long maxBytes, Path target) throws IOException {
+        var blob = put(input, maxBytes, getRoot(target));
+        link(blob.hash(), target);
+        return blob;
+    }
+
+    /**
+     * Streams {@code input} into the store without linking it anywhere. Until a manifest references
+     * it, the blob is only protected from collection by the orphan grace period.
+     */
+    public StoredBlob put(InputStream input, long maxBytes) throws IOException {
+        return put(input, maxBytes, getPrimaryRoot());
+    }
+
+    private StoredBlob put(InputStream input, long maxBytes, Path root) throws IOException {
+        var temporary = root.resolve("tmp").resolve(UUID.randomUUID().toString());
+        Files.createDirectories(temporary.getParent());
+
+        var digest = newDigest();
+        var size = 0L;
+        try {
+            try (var output = Files.newOutputStream(temporary)) {
+                var buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes)
+                        throw new SecurityException("Content larger than the expected " + maxBytes + " bytes");
+                    digest.update(buffer, 0, read);
+                    output.write(buffer, 0, read);
+                }
+            }
+
+            var hash = HexFormat.of().formatHex(digest.digest());
+            var blob = getBlobPath(root, hash);
+            var deduplicated = Files.exists(blob);
+            if (!deduplicated) {
+                Files.createDirectories(blob.getParent());
+                temporary.toFile().setWritable(false, false);
+                Files.move(temporary, blob, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredBlob(hash, size, deduplicated);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Materializes a stored blob at {@code target}, replacing whatever is there atomically. A blob
+     * only held by another volume is first copied into the volume of {@code target}.
+     */
+    public void link(String hash, Path target) throws IOException {
+        var blob = getBlobPath(getRoot(target), hash);
+        if (!Files.exists(blob))
+            copyFromOtherVolume(hash, blob);
+
+        try {
+            materialize(target, blob);
+        } catch (FileAlreadyExistsException e) {
+            var sibling = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            materialize(sibling, blob);
+            Files.move(sibling, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Whether project files are hardlinks to their blob rather than copies of it.
+     */
+    public boolean isHardlinked() {
+        return hardlinks;
+    }
+
+    public boolean contains(String hash) {
+        return isValidHash(hash) && findBlob(hash) != null;
+    }
+
+    public long size(String hash) throws IOException {
+        var blob = findBlob(hash);
+        if (blob == null)
+            throw new NoSuchFileException("Blob not found: " + hash);
+        return Files.size(blob);
+    }
+
+    public void delete(String hash) throws IOException {
+        for (var root : getRoots())
+            Files.deleteIfExists(getBlobPath(root, hash));
+    }
+
+    /**
+     * Hashes of the blobs on disk that were written before {@code cutoff}, used to find blobs
+     * left behind by an extraction that failed before its manifest was recorded.
+     */
+    public List<String> listBlobsOlderThan(Instant cutoff) throws IOException {
+        // A blob copied to several volumes is only as old as its newest copy.
+        var newest = new HashMap<String, FileTime>();
+        for (var root : getRoots()) {
+            if (!Files.exists(root))
+                continue;
+            try (var files = Files.walk(root, 2)) {
+                files.filter(path -> path.getParent() != null && !path.getParent().equals(root.resolve("tmp")))
+                        .filter(path -> isValidHash(path.getFileName().toString()))
+                        .forEach(path -> {
+                            try {
+                                newest.merge(path.getFileName().toString(), Files.getLastModifiedTime(path),
+                                        (a, b) -> a.compareTo(b) >= 0 ? a : b);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+            }
+        }
+
+        var limit = FileTime.from(cutoff);
+        return newest.entrySet().stream()
+                .filter(entry -> entry.getValue().compareTo(limit) < 0)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private Path getPrimaryRoot() {
+        return storageVolumeService.getVolumes().getFirst().root().resolve("blobs");
+    }
+
+    private Path getRoot(Path target) {
+        return storageVolumeService.getVolumeRoot(target).resolve("blobs");
+    }
+
+    private List<Path> getRoots() {
+        return storageVolumeService.getVolumes().stream().map(volume -> volume.root().resolve("blobs")).toList();
+    }
+
+    private static Path getBlobPath(Path root, String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private Path findBlob(String hash) {
+        for (var root : getRoots()) {
+            var blob = getBlobPath(root, hash);
+            if (Files.exists(blob))
+                return blob;
+        }
+        return null;
+    }
+
+    private void copyFromOtherVolume(String hash, Path blob) throws IOException {
+        var source = findBlob(hash);
+        if (source == null)
+            throw new NoSuchFileException("Blob not found: " + hash);
+        var temporary = blob.getParent().getParent().resolve("tmp").resolve(UUID.randomUUID().toString());
+        Files.createDirectories(temporary.getParent());
+        try {
+            Files.copy(source, temporary);
+            Files.createDirectories(blob.getParent());
+            // Replaces a copy made meanwhile by another link of the same blob, with the same content.
+            Files.move(temporary, blob, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void materialize(Path target, Path blob) throws IOException {
+        if (hardlinks) {
+            try {
+                Files.createLink(target, blob);
+                return;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                if (e instanceof FileAlreadyExistsException alreadyExists)
+                    throw alreadyExists;
+            }
+        }
+        Files.copy(blob, target);
+    }
+
+    private static boolean isValidHash(String hash) {
+        return hash != null && HASH_PATTERN.matcher(hash).matches();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
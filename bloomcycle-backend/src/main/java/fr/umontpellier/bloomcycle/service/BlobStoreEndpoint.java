@@ -0,0 +1,20 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.DeduplicationStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "blobstore")
+@RequiredArgsConstructor
+public class BlobStoreEndpoint {
+
+    private final FileManifestService fileManifestService;
+
+    @ReadOperation
+    public DeduplicationStats deduplication() {
+        return fileManifestService.getDeduplicationStats();
+    }
+}
@@ -0,0 +1,20 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.ColdStorageStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "coldstorage")
+@RequiredArgsConstructor
+public class ColdStorageEndpoint {
+
+    private final ColdStorageService coldStorageService;
+
+    @ReadOperation
+    public ColdStorageStats stats() {
+        return coldStorageService.getStats();
+    }
+}
@@ -0,0 +1,415 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.ColdStorageStats;
+import fr.umontpellier.bloomcycle.model.File;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import fr.umontpellier.bloomcycle.model.container.ContainerStatus;
+import fr.umontpellier.bloomcycle.repository.ProjectRepository;
+import fr.umontpellier.bloomcycle.service.FileService.StoredFile;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Moves projects that nobody started, pulled or synced for {@code app.cold-storage.inactive-after}
+ * to {@code app.cold-storage.path}: the sources become a zstd-compressed tarball, the image a
+ * compressed {@code docker save}, and both leave the project directory and the Docker store.
+ * Anything that needs the files or the image calls {@link #ensureHot} first, which restores them.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ColdStorageService {
+
+    // Tags the entries that were blob store files, so they are linked back from the store.
+    private static final String HASH_HEADER = "BLOOMCYCLE.sha256";
+
+    private final ProjectRepository projectRepository;
+    private final FileService fileService;
+    private final FileManifestService fileManifestService;
+    private final BlobStore blobStore;
+    private final DockerService dockerService;
+    private final StorageUsageService storageUsageService;
+    private final StorageVolumeService storageVolumeService;
+    private final Tracer tracer;
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final AtomicLong archives = new AtomicLong();
+    private final AtomicLong archivedSourceBytes = new AtomicLong();
+    private final AtomicLong archivedImageBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong rehydrations = new AtomicLong();
+    private final AtomicLong rehydratedBytes = new AtomicLong();
+    private final AtomicLong totalRehydrationMillis = new AtomicLong();
+    private final AtomicLong lastRehydrationMillis = new AtomicLong();
+    private final AtomicLong maxRehydrationMillis = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicReference<String> lastError = new AtomicReference<>();
+    private final AtomicReference<Instant> lastArchivedAt = new AtomicReference<>();
+    private final AtomicReference<Instant> lastRehydratedAt = new AtomicReference<>();
+
+    @Value("${app.cold-storage.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cold-storage.path}")
+    private String coldStoragePath;
+
+    @Value("${app.cold-storage.inactive-after:30d}")
+    private Duration inactiveAfter;
+
+    @Value("${app.cold-storage.scan-interval:1h}")
+    private Duration scanInterval;
+
+    @Value("${app.cold-storage.compression-level:3}")
+    private int compressionLevel;
+
+    @PostConstruct
+    public void start() {
+        if (enabled)
+            scheduler.scheduleWithFixedDelay(this::scan, scanInterval.toMillis(), scanInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Records activity on a project and, if it is archived, restores its sources and image before
+     * returning. Callers invoke it before reading the project tree or starting the container.
+     */
+    public void ensureHot(Project project) {
+        var projectId = project.getId();
+        var now = Instant.now();
+        projectRepository.updateLastActivity(projectId, now);
+        project.setLastActivityAt(now);
+
+        // The lock orders this against an archive in progress, which re-reads the activity first.
+        synchronized (lockFor(projectId)) {
+            if (projectRepository.findArchivedAtById(projectId) != null)
+                rehydrate(project);
+            project.setArchivedAt(null);
+        }
+    }
+
+    /**
+     * Deletes the cold copies of a deleted project.
+     */
+    public void discard(String projectId) throws IOException {
+        Files.deleteIfExists(getSourcesArchive(projectId));
+        Files.deleteIfExists(getImageArchive(projectId));
+    }
+
+    public ColdStorageStats getStats() {
+        var count = rehydrations.get();
+        return ColdStorageStats.builder()
+                .archivedProjects(projectRepository.countByArchivedAtIsNotNull())
+                .archives(archives.get())
+                .archivedSourceBytes(archivedSourceBytes.get())
+                .archivedImageBytes(archivedImageBytes.get())
+                .compressedBytes(compressedBytes.get())
+                .rehydrations(count)
+                .rehydratedBytes(rehydratedBytes.get())
+                .lastRehydrationMillis(lastRehydrationMillis.get())
+                .maxRehydrationMillis(maxRehydrationMillis.get())
+                .averageRehydrationMillis(count == 0 ? 0 : totalRehydrationMillis.get() / count)
+                .failures(failures.get())
+                .lastError(lastError.get())
+                .lastArchivedAt(lastArchivedAt.get())
+                .lastRehydratedAt(lastRehydratedAt.get())
+                .build();
+    }
+
+    private void scan() {
+        for (var project : projectRepository.findArchiveCandidates(Instant.now().minus(inactiveAfter))) {
+            try {
+                archive(project.getId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                recordFailure(project.getId(), e);
+                log.warn("Failed to archive project {}: {}", project.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void archive(String projectId) throws IOException, InterruptedException {
+        synchronized (lockFor(projectId)) {
+            var project = projectRepository.findById(projectId).orElse(null);
+            if (project == null || !isInactive(project, Instant.now().minus(inactiveAfter)))
+                return;
+            // The lease keeps a rebalance from moving the tree mid-archive, and re-reads its volume.
+            try (var _ = storageVolumeService.useVolume(project)) {
+                var projectRoot = Path.of(fileService.getProjectStoragePath(project));
+                if (!Files.isDirectory(projectRoot))
+                    return;
+
+                var containerStatus = dockerService.getProjectStatus(project);
+                if (containerStatus != ContainerStatus.STOPPED) {
+                    // A container still serving traffic is activity, even without API calls.
+                    if (containerStatus == ContainerStatus.RUNNING)
+                        projectRepository.updateLastActivity(projectId, Instant.now());
+                    return;
+                }
+
+                try (var span = tracer.startSpan("project.archive")) {
+                    span.setAttribute("project.id", projectId);
+                    Files.createDirectories(Path.of(coldStoragePath));
+                    var sourceBytes = packSources(projectId, projectRoot);
+                    var imageBytes = archiveImage(projectId);
+
+                    // From here on the cold copy is the one of record, and a restart resumes from it.
+                    projectRepository.updateArchivedAt(projectId, Instant.now());
+                    fileManifestService.releaseManifest(projectId);
+                    dockerService.removeProjectResources(projectId);
+                    storageUsageService.recordImage(project, 0);
+                    fileService.deleteProjectDirectory(projectRoot.toString());
+                    fileService.deleteProjectDirectory(fileService.getExportCachePath().resolve(projectId).toString());
+
+                    var compressed = Files.size(getSourcesArchive(projectId))
+                            + (Files.exists(getImageArchive(projectId)) ? Files.size(getImageArchive(projectId)) : 0);
+                    span.setAttribute("archive.source_bytes", sourceBytes);
+                    span.setAttribute("archive.image_bytes", imageBytes);
+                    span.setAttribute("archive.compressed_bytes", compressed);
+                    archives.incrementAndGet();
+                    archivedSourceBytes.addAndGet(sourceBytes);
+                    archivedImageBytes.addAndGet(imageBytes);
+                    compressedBytes.addAndGet(compressed);
+                    lastArchivedAt.set(Instant.now());
+                    log.info("Archived project {}: {} source bytes and {} image bytes into {} bytes",
+                            projectId, sourceBytes, imageBytes, compressed);
+                }
+            }
+        }
+    }
+
+    private void rehydrate(Project project) {
+        var projectId = project.getId();
+        var started = System.nanoTime();
+        try (var _ = storageVolumeService.useVolume(project); var span = tracer.startSpan("project.rehydrate")) {
+            span.setAttribute("project.id", projectId);
+            try {
+                var projectRoot = Path.of(fileService.getProjectStoragePath(project));
+                // Left behind when the server stopped between recording the archive and deleting the tree.
+                fileService.deleteProjectDirectory(projectRoot.toString());
+                var restoredBytes = new long[1];
+                fileManifestService.replace(project, () -> unpackSources(getSourcesArchive(projectId), projectRoot, restoredBytes));
+                restoreImage(project);
+
+                projectRepository.updateArchivedAt(projectId, null);
+                discard(projectId);
+
+                var millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                span.setAttribute("rehydrate.bytes", restoredBytes[0]);
+                span.setAttribute("rehydrate.millis", millis);
+                rehydrations.incrementAndGet();
+                rehydratedBytes.addAndGet(restoredBytes[0]);
+                totalRehydrationMillis.addAndGet(millis);
+                lastRehydrationMillis.set(millis);
+                maxRehydrationMillis.accumulateAndGet(millis, Math::max);
+                lastRehydratedAt.set(Instant.now());
+                log.info("Rehydrated project {} in {} ms ({} bytes)", projectId, millis, restoredBytes[0]);
+            } catch (IOException e) {
+                span.recordException(e);
+                recordFailure(projectId, e);
+                throw new UncheckedIOException("Failed to restore project " + projectId + " from cold storage", e);
+            } catch (RuntimeException e) {
+                span.recordException(e);
+                recordFailure(projectId, e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Writes the project tree to a compressed tarball and returns the number of bytes it holds.
+     * Files that come from the blob store carry their hash, so restoring them can skip the ones
+     * another project still has in the store.
+     */
+    private long packSources(String projectId, Path projectRoot) throws IOException {
+        var hashes = fileManifestService.getManifest(projectId).stream()
+                .filter(file -> file.getHash() != null)
+                .collect(Collectors.toMap(File::getFilePath, File::getHash, (first, _) -> first));
+        var target = getSourcesArchive(projectId);
+        var temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        var totalBytes = 0L;
+
+        try (var output = new TarArchiveOutputStream(new ZstdCompressorOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(temporary)), compressionLevel));
+             var paths = Files.walk(projectRoot)) {
+            output.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            output.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            for (var path : (Iterable<Path>) paths::iterator) {
+                if (path.equals(projectRoot))
+                    continue;
+                var name = projectRoot.relativize(path).toString().replace('\\', '/');
+                TarArchiveEntry entry;
+                if (Files.isSymbolicLink(path)) {
+                    entry = new TarArchiveEntry(name, TarConstants.LF_SYMLINK);
+                    entry.setLinkName(Files.readSymbolicLink(path).toString());
+                } else {
+                    entry = new TarArchiveEntry(path, name, LinkOption.NOFOLLOW_LINKS);
+                    if (hashes.containsKey(name))
+                        entry.addPaxHeader(HASH_HEADER, hashes.get(name));
+                }
+                output.putArchiveEntry(entry);
+                if (entry.isFile()) {
+                    Files.copy(path, output);
+                    totalBytes += entry.getSize();
+                }
+                output.closeArchiveEntry();
+            }
+            output.finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return totalBytes;
+    }
+
+    private List<StoredFile> unpackSources(Path archive, Path projectRoot, long[] restoredBytes) throws IOException {
+        var root = projectRoot.normalize();
+        var storedFiles = new ArrayList<StoredFile>();
+        Files.createDirectories(root);
+
+        try (var input = new TarArchiveInputStream(new ZstdCompressorInputStream(
+                new BufferedInputStream(Files.newInputStream(archive))))) {
+            TarArchiveEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                var target = root.resolve(entry.getName()).normalize();
+                if (!target.startsWith(root) || target.equals(root))
+                    continue;
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                if (entry.isSymbolicLink()) {
+                    Files.createSymbolicLink(target, Path.of(entry.getLinkName()));
+                    continue;
+                }
+
+                var hash = entry.getExtraPaxHeader(HASH_HEADER);
+                if (hash != null && blobStore.contains(hash)) {
+                    blobStore.link(hash, target);
+                    storedFiles.add(new StoredFile(entry.getName(), hash, entry.getSize(), true));
+                } else if (hash != null) {
+                    var blob = blobStore.store(input, entry.getSize(), target);
+                    storedFiles.add(new StoredFile(entry.getName(), blob.hash(), blob.size(), false));
+                } else {
+                    Files.copy(input, target);
+                    if ((entry.getMode() & 0100) != 0)
+                        target.toFile().setExecutable(true, false);
+                    // Indexed without a hash, like the checkout it came from; Git metadata is not indexed.
+                    if (!entry.getName().equals(".git") && !entry.getName().startsWith(".git/"))
+                        storedFiles.add(new StoredFile(entry.getName(), null, entry.getSize(), false));
+                }
+                restoredBytes[0] += entry.getSize();
+            }
+        }
+        return storedFiles;
+    }
+
+    private long archiveImage(String projectId) throws IOException, InterruptedException {
+        var saved = Path.of(coldStoragePath, projectId + ".image.tar");
+        try {
+            if (!dockerService.saveImage(projectId, saved))
+                return 0;
+            var target = getImageArchive(projectId);
+            try (var input = Files.newInputStream(saved);
+                 var output = new ZstdCompressorOutputStream(new BufferedOutputStream(Files.newOutputStream(target)), compressionLevel)) {
+                input.transferTo(output);
+            }
+            return Files.size(saved);
+        } finally {
+            Files.deleteIfExists(saved);
+        }
+    }
+
+    /**
+     * Loads the archived image back into Docker. Starting rebuilds the image anyway, so a failure
+     * here only costs the layers it would have reused.
+     */
+    private void restoreImage(Project project) {
+        var archive = getImageArchive(project.getId());
+        if (!Files.exists(archive))
+            return;
+
+        var saved = Path.of(coldStoragePath, project.getId() + ".image.tar");
+        try {
+            try (var input = new ZstdCompressorInputStream(new BufferedInputStream(Files.newInputStream(archive)))) {
+                Files.copy(input, saved, StandardCopyOption.REPLACE_EXISTING);
+            }
+            dockerService.loadImage(project, saved);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to restore the image of project {}, it will be rebuilt: {}", project.getId(), e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(saved);
+            } catch (IOException e) {
+                log.warn("Failed to delete {}", saved, e);
+            }
+        }
+    }
+
+    private boolean isInactive(Project project, Instant cutoff) {
+        var lastActivity = project.getLastActivityAt() != null ? project.getLastActivityAt() : project.getStatusUpdatedAt();
+        return project.getArchivedAt() == null
+                && project.getStatus() == ProjectStatus.READY
+                && !project.isAutoRestartEnabled()
+                && lastActivity != null && lastActivity.isBefore(cutoff);
+    }
+
+    private void recordFailure(String projectId, Exception e) {
+        failures.incrementAndGet();
+        lastError.set(projectId + ": " + e.getMessage());
+    }
+
+    private Object lockFor(String projectId) {
+        return locks.computeIfAbsent(projectId, _ -> new Object());
+    }
+
+    private Path getSourcesArchive(String projectId) {
+        return Path.of(coldStoragePath, projectId + ".tar.zst");
+    }
+
+    private Path getImageArchive(String projectId) {
+        return Path.of(coldStoragePath, projectId + ".image.tar.zst");
+    }
+}
@@ -1,6 +1,5 @@
 package fr.umontpellier.bloomcycle.service;
 
-import fr.umontpellier.bloomcycle.model.Project;
 import fr.umontpellier.bloomcycle.model.container.ContainerOperation;
 import fr.umontpellier.bloomcycle.model.container.ContainerStatus;
 import jakarta.annotation.PostConstruct;
@@ -15,6 +14,7 @@ import java.util.concurrent.TimeUnit;
 public class ContainerMonitorService {
     private final DockerService dockerService;
     private final ProjectService projectService;
+    private final ColdStorageService coldStorageService;
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
     
     @PostConstruct
@@ -23,13 +23,15 @@ public class ContainerMonitorService {
     }
     
     private void checkContainers() {
-        projectService.getAllProjects().stream()
-            .filter(Project::isAutoRestartEnabled)
-            .forEach(project -> {
+        projectService.getAutoRestartProjectIds()
+            .forEach(projectId -> {
                 try {
-                    var status = dockerService.getProjectStatus(project.getId());
-                    if (status == ContainerStatus.STOPPED)
-                        dockerService.executeOperation(project.getId(), ContainerOperation.START);
+                    var status = dockerService.getProjectStatus(projectId);
+                    if (status == ContainerStatus.STOPPED) {
+                        var project = projectService.getProjectById(projectId);
+                        coldStorageService.ensureHot(project);
+                        dockerService.executeOperation(project, ContainerOperation.START);
+                    }
                 } catch (Exception _) {
                 }
             });
@@ -0,0 +1,134 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.OperationLimiterStats;
+import fr.umontpellier.bloomcycle.exception.TooManyRequestsException;
+import fr.umontpellier.bloomcycle.model.container.ContainerOperation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a user may queue a container operation. Each user has a token bucket per
+ * operation type, and every operation is refused while the Docker work queue is deeper or older
+ * than its thresholds, so that one client cannot starve the daemon for everyone else.
+ * <p>
+ * A bucket is a single {@link AtomicLong} holding the time at which it will be full again (the
+ * generic cell rate algorithm), updated with compare-and-set: no lock is taken on the request path.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ContainerOperationLimiter {
+
+    private record BucketKey(Long userId, ContainerOperation operation) {
+    }
+
+    private final DockerService dockerService;
+    private final ConcurrentHashMap<BucketKey, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final EnumMap<ContainerOperation, LongAdder> rateLimited = new EnumMap<>(ContainerOperation.class);
+    private final LongAdder overloaded = new LongAdder();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+    @Value("${app.rate-limit.container-operations.capacity:5}")
+    private int capacity;
+
+    // Time for one token to come back: a user can run `capacity` operations of a type in a burst,
+    // then one per interval.
+    @Value("${app.rate-limit.container-operations.refill-interval:12s}")
+    private Duration refillInterval;
+
+    @Value("${app.docker.admission.max-queue-depth:20}")
+    private int maxQueueDepth;
+
+    @Value("${app.docker.admission.max-queue-latency:30s}")
+    private Duration maxQueueLatency;
+
+    @Value("${app.docker.admission.retry-after:10s}")
+    private Duration overloadRetryAfter;
+
+    @PostConstruct
+    public void start() {
+        for (var operation : ContainerOperation.values())
+            rateLimited.put(operation, new LongAdder());
+        scheduler.scheduleWithFixedDelay(this::evictFullBuckets, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Takes a token for an operation of a user, or throws a {@link TooManyRequestsException}
+     * telling when to retry. The queue is checked first, so that a refusal for overload does not
+     * cost the user a token.
+     */
+    public void acquire(Long userId, ContainerOperation operation) {
+        checkAdmission(userId, operation);
+
+        var interval = refillInterval.toNanos();
+        var tolerance = interval * capacity;
+        var bucket = buckets.computeIfAbsent(new BucketKey(userId, operation), _ -> new AtomicLong(System.nanoTime()));
+        while (true) {
+            var now = System.nanoTime();
+            var fullAt = bucket.get();
+            var next = Math.max(fullAt - now, 0) + interval;
+            if (next > tolerance) {
+                rateLimited.get(operation).increment();
+                throw new TooManyRequestsException(
+                        "Too many " + operation.getOperationName() + " requests, retry later",
+                        Duration.ofNanos(next - tolerance));
+            }
+            if (bucket.compareAndSet(fullAt, now + next))
+                return;
+        }
+    }
+
+    /**
+     * Refuses an operation with a {@link TooManyRequestsException} while the Docker work queue is
+     * deeper or older than its thresholds, without taking a token. Used on its own for work that no
+     * user request triggered, like a webhook deploy.
+     */
+    public void checkAdmission(Long userId, ContainerOperation operation) {
+        var queueDepth = dockerService.getQueueDepth();
+        var queueLatency = dockerService.getQueueLatency();
+        if (queueDepth >= maxQueueDepth || queueLatency.compareTo(maxQueueLatency) > 0) {
+            overloaded.increment();
+            log.warn("Refusing {} for user {}: {} Docker tasks queued, oldest for {}",
+                    operation, userId, queueDepth, queueLatency);
+            throw new TooManyRequestsException("The server is busy, retry later", overloadRetryAfter);
+        }
+    }
+
+    public OperationLimiterStats getStats() {
+        var limited = new LinkedHashMap<String, Long>();
+        rateLimited.forEach((operation, count) -> limited.put(operation.name(), count.sum()));
+        return OperationLimiterStats.builder()
+                .buckets(buckets.size())
+                .queueDepth(dockerService.getQueueDepth())
+                .queueLatencyMillis(dockerService.getQueueLatency().toMillis())
+                .rateLimited(limited)
+                .overloaded(overloaded.sum())
+                .build();
+    }
+
+    // A full bucket is the same as a missing one. Removing it while a request takes a token from
+    // it can at worst grant that user one extra operation.
+    private void evictFullBuckets() {
+        var now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+}
@@ -0,0 +1,8 @@
+package fr.umontpellier.bloomcycle.service;
+
+import java.io.IOException;
+
+public interface DockerCommandExecutor {
+
+    String execute(ProcessBuilder processBuilder) throws IOException, InterruptedException;
+}
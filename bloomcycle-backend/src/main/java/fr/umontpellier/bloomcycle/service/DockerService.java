@@ -8,11 +8,16 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.nio.file.Path;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.nio.file.Files;
 import java.io.IOException;
 
@@ -20,6 +25,7 @@ import fr.umontpellier.bloomcycle.model.container.ContainerStatus;
 import fr.umontpellier.bloomcycle.model.container.ContainerOperation;
 import fr.umontpellier.bloomcycle.model.container.ContainerInfo;
 import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
 
 @Service
 @RequiredArgsConstructor
@@ -29,6 +35,10 @@ public class DockerService {
     
     private static final String DOCKER_NETWORK = "bloom-cycle_bloomcycle-network";
     private static final String FALLBACK_NETWORK = "bloomcycle-network";
+    private static final Set<String> DEPENDENCY_MANIFESTS = Set.of(
+            "package.json", "package-lock.json", "yarn.lock", "pom.xml", "build.gradle", "build.gradle.kts",
+            "settings.gradle", "settings.gradle.kts", "gradle.properties", "requirements.txt", "Pipfile", "Pipfile.lock",
+            "composer.json", "composer.lock");
 
     @Value("${app.storage.path}")
     private String storagePath;
@@ -36,57 +46,146 @@ public class DockerService {
     @Value("${app.server.host:localhost}")
     private String serverHost;
 
-    private final ExecutorService dockerExecutor = Executors.newFixedThreadPool(10);
+    private final ThreadPoolExecutor dockerPool = new ThreadPoolExecutor(10, 10, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>());
+    private final Executor dockerExecutor = task -> dockerPool.execute(new QueuedTask(task, System.nanoTime()));
     private final FileService fileService;
     private final ProjectService projectService;
+    private final Tracer tracer;
+    private final DockerCommandExecutor commandExecutor;
+    private final StorageUsageService storageUsageService;
+    private final StorageVolumeService storageVolumeService;
+
+    // Remembers when a task was queued, so that the age of the oldest waiting one can be read.
+    private record QueuedTask(Runnable task, long queuedAt) implements Runnable {
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    /**
+     * Number of Docker tasks waiting for a free worker.
+     */
+    public int getQueueDepth() {
+        return dockerPool.getQueue().size();
+    }
+
+    /**
+     * How long the oldest waiting Docker task has been queued, zero when none is waiting.
+     */
+    public Duration getQueueLatency() {
+        return dockerPool.getQueue().peek() instanceof QueuedTask queued
+                ? Duration.ofNanos(System.nanoTime() - queued.queuedAt())
+                : Duration.ZERO;
+    }
 
     private String getContainerName(Project project) {
-        return "project-" + project.getId();
+        return getContainerName(project.getId());
+    }
+
+    private static String getContainerName(String projectId) {
+        return "project-" + projectId;
+    }
+
+    /**
+     * Removes the container of a deleted project, with its anonymous volumes, and its image. A
+     * container or image that does not exist is not an error.
+     */
+    public void removeProjectResources(String projectId) throws IOException, InterruptedException {
+        var name = getContainerName(projectId);
+        removeIgnoringMissing("docker", "rm", "-f", "-v", name);
+        removeIgnoringMissing("docker", "rmi", "-f", name);
+    }
+
+    /**
+     * Writes the image of a project to a tarball with {@code docker save}. Returns false, and
+     * writes nothing, when the project has no image.
+     */
+    public boolean saveImage(String projectId, Path target) throws IOException, InterruptedException {
+        var name = getContainerName(projectId);
+        try {
+            executeDockerCommand(new ProcessBuilder("docker", "save", "-o", target.toString(), name).redirectErrorStream(true));
+            return true;
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().contains("No such image"))
+                return false;
+            throw e;
+        }
+    }
+
+    /**
+     * Restores an image written by {@link #saveImage} and records its size again.
+     */
+    public void loadImage(Project project, Path source) throws IOException, InterruptedException {
+        executeDockerCommand(new ProcessBuilder("docker", "load", "-i", source.toString()).redirectErrorStream(true));
+        var imageBytes = getImageSize(project);
+        if (imageBytes >= 0)
+            storageUsageService.recordImage(project, imageBytes);
+    }
+
+    private void removeIgnoringMissing(String... command) throws IOException, InterruptedException {
+        try {
+            executeDockerCommand(new ProcessBuilder(command).redirectErrorStream(true));
+        } catch (RuntimeException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("No such"))
+                throw e;
+        }
     }
 
     public CompletableFuture<ContainerInfo> executeOperation(String projectId, ContainerOperation operation) {
         return switch (operation) {
-            case START -> startProject(projectId);
-            case STOP -> stopProject(projectId);
-            case RESTART -> restartProject(projectId);
+            case START -> startProject(projectService.getProjectById(projectId));
+            case STOP -> stopProject(projectService.getProjectById(projectId));
+            case RESTART -> restartProject(projectService.getProjectById(projectId));
+        };
+    }
+
+    /**
+     * Same as {@link #executeOperation(String, ContainerOperation)} for a project the caller already
+     * loaded, which is used as is.
+     */
+    public CompletableFuture<ContainerInfo> executeOperation(Project project, ContainerOperation operation) {
+        return switch (operation) {
+            case START -> startProject(project);
+            case STOP -> stopProject(project);
+            case RESTART -> restartProject(project);
         };
     }
 
     private String executeDockerCommand(ProcessBuilder processBuilder) throws IOException, InterruptedException {
-        System.out.println("Exécution de la commande: " + String.join(" ", processBuilder.command()));
-        
-        var process = processBuilder.start();
-        var output = new StringBuilder();
-        var error = new StringBuilder();
-        
-        try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
-        }
-        
-        try (var reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                error.append(line).append("\n");
+        return commandExecutor.execute(processBuilder);
+    }
+
+    private void buildImage(Project project) throws IOException, InterruptedException {
+        try (var _ = storageVolumeService.useVolume(project); var span = tracer.startSpan("docker.build")) {
+            var projectPath = fileService.getProjectStoragePath(project);
+            span.setAttribute("build.context_bytes", fileService.measureDirectory(Path.of(projectPath)).totalBytes());
+            try {
+                buildImage(project, projectPath);
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                span.recordException(e);
+                throw e;
             }
+            var imageBytes = getImageSize(project);
+            span.setAttribute("image.size_bytes", imageBytes);
+            if (imageBytes >= 0)
+                storageUsageService.recordImage(project, imageBytes);
         }
+    }
 
-        var exitCode = process.waitFor();
-        System.out.println("Résultat de la commande (code: " + exitCode + "):");
-        System.out.println("Output: " + output);
-        
-        if (exitCode != 0) {
-            System.err.println("Erreur: " + error);
-            throw new RuntimeException("Command failed with exit code " + exitCode + ". Output: " + output + ". Error: " + error);
+    private long getImageSize(Project project) {
+        var inspectCommand = new String[]{
+            "docker", "image", "inspect", "-f", "{{.Size}}", getContainerName(project)
+        };
+        try {
+            return Long.parseLong(executeDockerCommand(new ProcessBuilder(inspectCommand).redirectErrorStream(true)).trim());
+        } catch (Exception e) {
+            return -1;
         }
-
-        return output.toString().trim();
     }
 
-    private void buildImage(Project project) throws IOException, InterruptedException {
-        var projectPath = fileService.getProjectStoragePath(project);
+    private void buildImage(Project project, String projectPath) throws IOException, InterruptedException {
         var commandArgs = new String[]{
             "docker", "build", 
             "-t", getContainerName(project), 
@@ -314,78 +413,122 @@ public class DockerService {
         return containerName.substring("project-".length());
     }
 
-    private CompletableFuture<ContainerInfo> startProject(String projectId) {
+    private CompletableFuture<ContainerInfo> startProject(Project project) {
         return CompletableFuture.supplyAsync(() -> {
-            try {
-                var project = projectService.getProjectById(projectId);
-                var projectPath = fileService.getProjectStoragePath(project);
-                var dockerfilePath = Path.of(projectPath, "Dockerfile");
+            try (var span = tracer.startSpan("project.start")) {
+                span.setAttribute("project.id", project.getId());
+                var containerInfo = startProjectInternal(project);
+                if (containerInfo.getStatus() == ContainerStatus.ERROR)
+                    span.recordException(new IllegalStateException("Project " + project.getId() + " failed to start"));
+                return containerInfo;
+            }
+        }, dockerExecutor);
+    }
 
-                if (!Files.exists(dockerfilePath)) {
-                    System.out.println("Dockerfile not found at: " + dockerfilePath);
-                    return ContainerInfo.builder()
-                            .status(ContainerStatus.ERROR)
-                            .build();
-                }
+    public CompletableFuture<ContainerInfo> redeploy(Project project, Collection<String> changedFiles) {
+        return CompletableFuture.supplyAsync(() -> rebuild(project, changedFiles), dockerExecutor);
+    }
 
-                try {
-                    buildImage(project);
-                } catch (Exception e) {
-                    System.out.println("Error building image: " + e.getMessage());
-                    e.printStackTrace();
-                    return ContainerInfo.builder()
-                            .status(ContainerStatus.ERROR)
-                            .build();
-                }
-                
-                try {
-                    stopAndRemoveContainer(project);
-                } catch (Exception e) {
-                    System.out.println("Error stopping container: " + e.getMessage());
-                }
-                
-                String containerId;
+    /**
+     * Queues a rebuild like {@link #redeploy}, but cancelling the returned future with interruption
+     * abandons the build in progress, or drops it from the queue if it has not started yet.
+     */
+    public Future<ContainerInfo> submitRebuild(Project project, Collection<String> changedFiles) {
+        var task = new FutureTask<>(() -> rebuild(project, changedFiles));
+        dockerExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Rebuilds and restarts a project whose sources were updated in place, on the calling thread,
+     * which can be interrupted to abandon the build. Generated Dockerfiles install dependencies
+     * from the manifests alone before copying the sources, so Docker keeps that layer while the
+     * manifests are untouched; the change set is recorded on the span to tell both cases apart.
+     */
+    public ContainerInfo rebuild(Project project, Collection<String> changedFiles) {
+        try (var span = tracer.startSpan("project.redeploy")) {
+            span.setAttribute("project.id", project.getId());
+            span.setAttribute("build.changed_files", changedFiles.size());
+            span.setAttribute("build.dependencies_changed", changedFiles.stream()
+                    .anyMatch(path -> DEPENDENCY_MANIFESTS.contains(Path.of(path).getFileName().toString())));
+            var containerInfo = startProjectInternal(project);
+            if (containerInfo.getStatus() == ContainerStatus.ERROR)
+                span.recordException(new IllegalStateException("Project " + project.getId() + " failed to redeploy"));
+            return containerInfo;
+        }
+    }
+
+    private ContainerInfo startProjectInternal(Project project) {
+        try {
+            var projectPath = fileService.getProjectStoragePath(project);
+            var dockerfilePath = Path.of(projectPath, "Dockerfile");
+
+            if (!Files.exists(dockerfilePath)) {
+                System.out.println("Dockerfile not found at: " + dockerfilePath);
+                return ContainerInfo.builder()
+                        .status(ContainerStatus.ERROR)
+                        .build();
+            }
+
+            try {
+                buildImage(project);
+            } catch (Exception e) {
+                System.out.println("Error building image: " + e.getMessage());
+                e.printStackTrace();
+                return ContainerInfo.builder()
+                        .status(ContainerStatus.ERROR)
+                        .build();
+            }
+            
+            try {
+                stopAndRemoveContainer(project);
+            } catch (Exception e) {
+                System.out.println("Error stopping container: " + e.getMessage());
+            }
+            
+            String containerId;
+            try (var span = tracer.startSpan("docker.run")) {
                 try {
                     containerId = startContainer(project);
                     System.out.println("Container started with ID: " + containerId);
                 } catch (Exception e) {
+                    span.recordException(e);
                     System.out.println("Error starting container: " + e.getMessage());
                     e.printStackTrace();
                     return ContainerInfo.builder()
                             .status(ContainerStatus.ERROR)
                             .build();
                 }
-                
-                String hostPort;
-                try {
-                    hostPort = getContainerPort(project);
-                    System.out.println("Container port: " + hostPort);
-                } catch (Exception e) {
-                    System.out.println("Error getting container port: " + e.getMessage());
-                    hostPort = "3000";
-                }
-                
-                var serverUrl = buildServerUrl(hostPort, project);
-                System.out.println("Server URL: " + serverUrl);
-
-                return ContainerInfo.builder()
-                        .status(ContainerStatus.RUNNING)
-                        .serverUrl(serverUrl)
-                        .build();
+            }
+            
+            String hostPort;
+            try {
+                hostPort = getContainerPort(project);
+                System.out.println("Container port: " + hostPort);
             } catch (Exception e) {
-                System.out.println("Unexpected error in startProject: " + e.getMessage());
-                e.printStackTrace();
-                return ContainerInfo.builder()
-                        .status(ContainerStatus.ERROR)
-                        .build();
+                System.out.println("Error getting container port: " + e.getMessage());
+                hostPort = "3000";
             }
-        }, dockerExecutor);
+            
+            var serverUrl = buildServerUrl(hostPort, project);
+            System.out.println("Server URL: " + serverUrl);
+
+            return ContainerInfo.builder()
+                    .status(ContainerStatus.RUNNING)
+                    .serverUrl(serverUrl)
+                    .build();
+        } catch (Exception e) {
+            System.out.println("Unexpected error in startProject: " + e.getMessage());
+            e.printStackTrace();
+            return ContainerInfo.builder()
+                    .status(ContainerStatus.ERROR)
+                    .build();
+        }
     }
 
-    private CompletableFuture<ContainerInfo> stopProject(String projectId) {
+    private CompletableFuture<ContainerInfo> stopProject(Project project) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                var project = projectService.getProjectById(projectId);
                 stopAndRemoveContainer(project);
                 return ContainerInfo.builder()
                         .status(ContainerStatus.STOPPED)
@@ -398,10 +541,9 @@ public class DockerService {
         }, dockerExecutor);
     }
 
-    private CompletableFuture<ContainerInfo> restartProject(String projectId) {
+    private CompletableFuture<ContainerInfo> restartProject(Project project) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                var project = projectService.getProjectById(projectId);
                 var restartCommand = new String[]{"docker", "restart", getContainerName(project)};
                 var processBuilder = new ProcessBuilder(restartCommand)
                     .redirectErrorStream(true);
@@ -423,12 +565,16 @@ public class DockerService {
         }, dockerExecutor);
     }
 
+    public ContainerStatus getProjectStatus(Project project) {
+        return getProjectStatus(project.getId());
+    }
+
+    // The container is named after the project id, so the project itself is not needed.
     public ContainerStatus getProjectStatus(String projectId) {
         try {
-            var project = projectService.getProjectById(projectId);
             var processBuilder = new ProcessBuilder(
                 "docker", "ps",
-                "--filter", "name=" + getContainerName(project),
+                "--filter", "name=" + getContainerName(projectId),
                 "--format", "{{.Status}}"
             ).redirectErrorStream(true);
             
@@ -468,28 +614,15 @@ public class DockerService {
         ProcessBuilder processBuilder = new ProcessBuilder(runCommand)
                 .redirectErrorStream(true);
 
-        Process process = processBuilder.start();
-        StringBuilder output = new StringBuilder();
-
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
-        }
-
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new IOException("Failed to get project logs. Exit code: " + exitCode);
+        try {
+            return executeDockerCommand(processBuilder);
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to get project logs: " + e.getMessage(), e);
         }
-
-        return output.toString();
     }
 
-    public String getProjectUrl(String projectId) {
+    public String getProjectUrl(Project project) {
         try {
-            var project = projectService.getProjectById(projectId);
             var hostPort = getContainerPort(project);
             return buildServerUrl(hostPort, project);
         } catch (Exception e) {
@@ -497,14 +630,15 @@ public class DockerService {
         }
     }
 
-    public void configureAutoRestart(String projectId, boolean enabled) {
+    public void configureAutoRestart(Project project, boolean enabled) {
+        var projectId = project.getId();
         try {
-            var project = projectService.getProjectById(projectId);
             var containerName = getContainerName(project);
-            var containerStatus = getProjectStatus(projectId);
+            var containerStatus = getProjectStatus(project);
             
             log.info("Configuring auto-restart for project {} to {}", projectId, enabled);
             projectService.updateAutoRestartSetting(projectId, enabled);
+            project.setAutoRestartEnabled(enabled);
             
             if (containerStatus == ContainerStatus.RUNNING) {
                 String restartPolicy = enabled ? "unless-stopped" : "on-failure:3";
@@ -540,7 +674,7 @@ public class DockerService {
         try {
             var project = projectService.getProjectById(projectId);
             
-            var containerStatus = getProjectStatus(projectId);
+            var containerStatus = getProjectStatus(project);
             if (containerStatus != ContainerStatus.RUNNING)
                 return project.isAutoRestartEnabled();
             
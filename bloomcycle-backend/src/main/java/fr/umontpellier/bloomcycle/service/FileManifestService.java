@@ -0,0 +1,273 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.DeduplicationStats;
+import fr.umontpellier.bloomcycle.model.Blob;
+import fr.umontpellier.bloomcycle.model.File;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.repository.BlobRepository;
+import fr.umontpellier.bloomcycle.repository.FileRepository;
+import fr.umontpellier.bloomcycle.service.FileService.StoredFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@code files} table as the index of every project's tree and reference-counts the
+ * blobs it points to, so that the ones no project uses any more can be collected. Files written
+ * outside of the {@link BlobStore}, like a Git checkout, are indexed without a hash.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileManifestService {
+
+    @FunctionalInterface
+    public interface Ingestion {
+        List<StoredFile> run() throws IOException;
+    }
+
+    // Blobs without a manifest row are only collected once they are this old.
+    private static final Duration ORPHAN_GRACE_PERIOD = Duration.ofHours(1);
+
+    // Rows are written with JDBC batches: the IDENTITY key keeps Hibernate from batching inserts.
+    private static final int BATCH_SIZE = 500;
+    private static final String INSERT_FILE = "insert into files (project_id, name, type, file_path, hash, size_bytes, modified_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_UNSTORED_FILE = "delete from files where project_id = ? and file_path = ? and hash is null";
+
+    private record IndexedFile(String path, String hash, long size, Instant modifiedAt) {
+    }
+
+    private final FileRepository fileRepository;
+    private final BlobRepository blobRepository;
+    private final BlobStore blobStore;
+    private final FileService fileService;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock collectorLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+    @PostConstruct
+    public void startCollector() {
+        scheduler.scheduleAtFixedRate(this::collectGarbageQuietly, 1, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Runs an extraction into the blob store and records its manifest. The collector cannot run
+     * in between, so a blob cannot disappear after being linked but before it is counted.
+     */
+    public List<StoredFile> ingest(Project project, Ingestion ingestion) throws IOException {
+        collectorLock.readLock().lock();
+        try {
+            var storedFiles = ingestion.run();
+            var indexedFiles = index(project, storedFiles);
+            synchronized (this) {
+                transactionTemplate.executeWithoutResult(status -> recordManifest(project, storedFiles, indexedFiles));
+            }
+            return storedFiles;
+        } finally {
+            collectorLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Like {@link #ingest}, but the result becomes the complete manifest of the project: rows and
+     * references of files that are no longer listed are dropped.
+     */
+    public List<StoredFile> replace(Project project, Ingestion ingestion) throws IOException {
+        collectorLock.readLock().lock();
+        try {
+            var storedFiles = ingestion.run();
+            var indexedFiles = index(project, storedFiles);
+            synchronized (this) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    blobRepository.releaseProjectReferences(project.getId());
+                    fileRepository.deleteByProjectId(project.getId());
+                    recordManifest(project, storedFiles, indexedFiles);
+                });
+            }
+            scheduler.execute(this::collectGarbageQuietly);
+            return storedFiles;
+        } finally {
+            collectorLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a tree written directly to disk, such as a fresh Git checkout, replacing the rows
+     * of files that are not in the blob store. The Git metadata at the root is left out.
+     */
+    public void indexCheckout(Project project) throws IOException {
+        var root = Path.of(fileService.getProjectStoragePath(project));
+        var indexedFiles = new ArrayList<IndexedFile>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                return directory.equals(root.resolve(".git")) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile())
+                    indexedFiles.add(new IndexedFile(toRelativePath(root, file), null, attributes.size(),
+                            attributes.lastModifiedTime().toInstant()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            fileRepository.deleteUnstoredByProjectId(project.getId());
+            insertFiles(project.getId(), indexedFiles);
+        });
+    }
+
+    /**
+     * Refreshes the rows of files that were written or deleted outside of the blob store, e.g. by
+     * a Git pull: each path is indexed again if it is still a regular file.
+     */
+    public void indexFiles(Project project, Collection<String> paths) throws IOException {
+        var root = Path.of(fileService.getProjectStoragePath(project));
+        var indexedFiles = new ArrayList<IndexedFile>();
+        for (var path : paths) {
+            try {
+                var attributes = Files.readAttributes(root.resolve(path), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isRegularFile())
+                    indexedFiles.add(new IndexedFile(path, null, attributes.size(), attributes.lastModifiedTime().toInstant()));
+            } catch (NoSuchFileException e) {
+                // Deleted: only its row has to go.
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(DELETE_UNSTORED_FILE, paths, BATCH_SIZE, (statement, path) -> {
+                statement.setString(1, project.getId());
+                statement.setString(2, path);
+            });
+            insertFiles(project.getId(), indexedFiles);
+        });
+    }
+
+    public List<File> getManifest(String projectId) {
+        return fileRepository.findByProjectId(projectId);
+    }
+
+    public void releaseManifest(String projectId) {
+        synchronized (this) {
+            transactionTemplate.executeWithoutResult(status -> {
+                blobRepository.releaseProjectReferences(projectId);
+                fileRepository.deleteByProjectId(projectId);
+            });
+        }
+        scheduler.execute(this::collectGarbageQuietly);
+    }
+
+    public long collectGarbage() throws IOException {
+        collectorLock.writeLock().lock();
+        try {
+            var freedBytes = 0L;
+            for (var blob : blobRepository.findByRefCountLessThanEqual(0)) {
+                blobStore.delete(blob.getHash());
+                blobRepository.delete(blob);
+                freedBytes += blob.getSize();
+            }
+
+            var knownHashes = new HashSet<>(blobRepository.findAllHashes());
+            var orphans = 0;
+            for (var hash : blobStore.listBlobsOlderThan(Instant.now().minus(ORPHAN_GRACE_PERIOD))) {
+                if (!knownHashes.contains(hash)) {
+                    blobStore.delete(hash);
+                    orphans++;
+                }
+            }
+
+            if (freedBytes > 0 || orphans > 0)
+                log.info("Blob store collection freed {} bytes and {} orphaned blobs", freedBytes, orphans);
+            return freedBytes;
+        } finally {
+            collectorLock.writeLock().unlock();
+        }
+    }
+
+    public DeduplicationStats getDeduplicationStats() {
+        return DeduplicationStats.of(blobRepository.countByRefCountGreaterThan(0), blobRepository.sumStoredBytes(),
+                fileRepository.sumReferencedBytes(), blobStore.isHardlinked());
+    }
+
+    // Callers hold the monitor and a transaction, so two manifests never race to insert the same blob row.
+    private void recordManifest(Project project, List<StoredFile> storedFiles, List<IndexedFile> indexedFiles) {
+        var blobFiles = storedFiles.stream().filter(storedFile -> storedFile.hash() != null).toList();
+        var counts = blobFiles.stream().collect(Collectors.groupingBy(StoredFile::hash, Collectors.counting()));
+        var sizes = blobFiles.stream().collect(Collectors.toMap(StoredFile::hash, StoredFile::size, (first, _) -> first));
+
+        counts.forEach((hash, count) -> {
+            if (blobRepository.adjustRefCount(hash, count) == 0) {
+                var blob = new Blob(hash, sizes.get(hash));
+                blob.setRefCount(count);
+                blobRepository.save(blob);
+            }
+        });
+        insertFiles(project.getId(), indexedFiles);
+    }
+
+    private void insertFiles(String projectId, List<IndexedFile> indexedFiles) {
+        var utc = Calendar.getInstance(TimeZone.getTimeZone(ZoneOffset.UTC));
+        jdbcTemplate.batchUpdate(INSERT_FILE, indexedFiles, BATCH_SIZE, (statement, file) -> {
+            statement.setString(1, projectId);
+            statement.setString(2, file.path().substring(file.path().lastIndexOf('/') + 1));
+            statement.setString(3, "file");
+            statement.setString(4, file.path());
+            statement.setString(5, file.hash());
+            statement.setLong(6, file.size());
+            // Same convention as Hibernate for Instant columns, so the value reads back unchanged.
+            statement.setTimestamp(7, file.modifiedAt() == null ? null : Timestamp.from(file.modifiedAt()), utc);
+        });
+    }
+
+    // Modification times are read before any lock is taken; a file that vanished meanwhile has none.
+    private List<IndexedFile> index(Project project, List<StoredFile> storedFiles) {
+        var root = Path.of(fileService.getProjectStoragePath(project));
+        return storedFiles.stream().map(storedFile -> {
+            Instant modifiedAt;
+            try {
+                modifiedAt = Files.getLastModifiedTime(root.resolve(storedFile.path()), LinkOption.NOFOLLOW_LINKS).toInstant();
+            } catch (IOException e) {
+                modifiedAt = null;
+            }
+            return new IndexedFile(storedFile.path(), storedFile.hash(), storedFile.size(), modifiedAt);
+        }).toList();
+    }
+
+    private static String toRelativePath(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private void collectGarbageQuietly() {
+        try {
+            collectGarbage();
+        } catch (Exception e) {
+            log.warn("Blob store collection failed", e);
+        }
+    }
+}
@@ -1,71 +1,202 @@
 package fr.umontpellier.bloomcycle.service;
 
 import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.tracing.Span;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 import lombok.RequiredArgsConstructor;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
-import java.util.zip.ZipInputStream;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 @Service
 @RequiredArgsConstructor
 public class FileService {
 
+    public record DirectoryUsage(long fileCount, long totalBytes) {
+    }
+
+    public record StoredFile(String path, String hash, long size, boolean deduplicated) {
+    }
 
+    private final Tracer tracer;
+    private final BlobStore blobStore;
+    private final StorageVolumeService storageVolumeService;
 
     @Value("${app.storage.path}")
     private String storagePath;
 
     public String getProjectStoragePath(Project project) {
-        return Path.of(storagePath, "projects", project.getId()).toString();
+        return storageVolumeService.getRoot(project).resolve("projects").resolve(project.getId()).toString();
+    }
+
+    /**
+     * One trash per volume, so that trashing a project stays a rename on its own filesystem.
+     */
+    public List<Path> getTrashPaths() {
+        return storageVolumeService.getVolumes().stream().map(volume -> volume.root().resolve("trash")).toList();
+    }
+
+    public Path getExportCachePath() {
+        return Path.of(storagePath, "exports");
+    }
+
+    /**
+     * Moves a project's directory into the trash of its volume with a single rename and returns the entry; the
+     * actual deletion is left to {@link ProjectReaper}. An empty entry is created when the project
+     * has no directory, so its container and image are still reaped.
+     */
+    public Path moveToTrash(Project project) throws IOException {
+        try (var _ = storageVolumeService.useVolume(project)) {
+            var trash = Files.createDirectories(storageVolumeService.getRoot(project).resolve("trash"));
+            var entry = trash.resolve(project.getId() + "." + System.currentTimeMillis());
+            var projectPath = Path.of(getProjectStoragePath(project));
+            try {
+                Files.move(projectPath, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                Files.createDirectory(entry);
+            }
+            return entry;
+        }
     }
 
-    private static final long MAX_ZIP_SIZE = 100 * 1024 * 1024; // 100 MB
-    private static final int MAX_FILES = 1000;
+    static final long MAX_ZIP_SIZE = 100 * 1024 * 1024; // 100 MB
+    private static final long MAX_EXTRACTED_SIZE = 1024L * 1024 * 1024; // 1 GB
+    private static final int MAX_COMPRESSION_RATIO = 100;
+    static final int MAX_FILES = 1000;
     private static final int MAX_PATH_LENGTH = 255;
 
-    public void extractZipFile(MultipartFile file, Path targetPath) throws IOException {
-        if (file.getSize() > MAX_ZIP_SIZE)
-            throw new SecurityException("ZIP file too large: " + file.getSize() + " bytes (max: " + MAX_ZIP_SIZE + " bytes)");
+    private final ExecutorService extractionExecutor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            Thread.ofPlatform().name("zip-extract-", 0).daemon().factory());
+
+    /**
+     * Extracts an archive already stored on disk. Every check runs against the central directory
+     * before anything is inflated, then the entries are written in parallel into the blob store and
+     * linked into {@code targetPath}.
+     */
+    public List<StoredFile> extractZipFile(Path zipPath, Path targetPath) throws IOException {
+        var zipSize = Files.size(zipPath);
+        if (zipSize > MAX_ZIP_SIZE)
+            throw new SecurityException("ZIP file too large: " + zipSize + " bytes (max: " + MAX_ZIP_SIZE + " bytes)");
 
         Files.createDirectories(targetPath);
 
-        try (var zipInputStream = new ZipInputStream(file.getInputStream())) {
-            var entry = zipInputStream.getNextEntry();
-            var fileCount = 0;
+        try (var span = tracer.startSpan("zip.extract");
+             var zipFile = new ZipFile(zipPath.toFile())) {
+            span.setAttribute("zip.size_bytes", zipSize);
 
-            var commonPrefix = determineCommonPrefix(zipInputStream, entry);
+            var entries = zipFile.stream().map(entry -> (ZipEntry) entry).toList();
+            var commonPrefix = determineCommonPrefix(entries);
+            var files = new ArrayList<ExtractedEntry>();
+            var filePaths = new HashSet<Path>();
+            var directories = new TreeSet<Path>();
+            var declaredBytes = 0L;
 
-            zipInputStream.close();
-            try (var newZipStream = new ZipInputStream(file.getInputStream())) {
-                entry = newZipStream.getNextEntry();
+            for (var entry : entries) {
+                var entryPath = getPath(targetPath, entry, commonPrefix);
+                if (entry.isDirectory()) {
+                    directories.add(entryPath);
+                    continue;
+                }
 
-                while (entry != null && fileCount < MAX_FILES) {
-                    var entryPath = getPath(targetPath, entry, commonPrefix);
+                if (files.size() + 1 >= MAX_FILES)
+                    throw recorded(span, new SecurityException("Too many files in ZIP (max: " + MAX_FILES + ")"));
+                checkCompressionRatio(entry);
+                declaredBytes += entry.getSize();
+                if (declaredBytes > MAX_EXTRACTED_SIZE)
+                    throw recorded(span, new SecurityException("ZIP content too large (max: " + MAX_EXTRACTED_SIZE + " bytes)"));
 
-                    if (entry.isDirectory()) {
-                        Files.createDirectories(entryPath);
-                    } else {
-                        Files.createDirectories(entryPath.getParent());
-                        Files.copy(newZipStream, entryPath, StandardCopyOption.REPLACE_EXISTING);
-                        fileCount++;
-                    }
+                // Distinct names can sanitize to the same path; two tasks must never write one file.
+                if (!filePaths.add(entryPath))
+                    throw recorded(span, new SecurityException("Duplicate path in ZIP: " + entry.getName()));
+                directories.add(entryPath.getParent());
+                files.add(new ExtractedEntry(entry, entryPath, targetPath.normalize().relativize(entryPath).toString().replace('\\', '/')));
+            }
 
-                    entry = newZipStream.getNextEntry();
-                }
+            for (var directory : directories) {
+                if (filePaths.contains(directory))
+                    throw recorded(span, new SecurityException("ZIP path is both a file and a directory: " + directory));
+            }
+
+            for (var directory : directories)
+                Files.createDirectories(directory);
 
-                if (fileCount >= MAX_FILES)
-                    throw new SecurityException("Too many files in ZIP (max: " + MAX_FILES + ")");
+            // After a failure the tasks not started yet skip their entry, and all of them are waited
+            // for: none may still read the zip or write into targetPath once this method returns.
+            var aborted = new AtomicBoolean();
+            var tasks = files.stream()
+                    .map(file -> CompletableFuture.supplyAsync(() -> aborted.get() ? null : extractEntry(zipFile, file), extractionExecutor)
+                            .whenComplete((_, failure) -> {
+                                if (failure != null)
+                                    aborted.set(true);
+                            }))
+                    .toList();
+            var storedFiles = new ArrayList<StoredFile>(tasks.size());
+            try {
+                CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+                for (var task : tasks)
+                    storedFiles.add(task.join());
+            } catch (CompletionException e) {
+                span.recordException(e.getCause());
+                if (e.getCause() instanceof UncheckedIOException io)
+                    throw io.getCause();
+                if (e.getCause() instanceof RuntimeException runtime)
+                    throw runtime;
+                throw e;
             }
+
+            span.setAttribute("zip.file_count", files.size());
+            span.setAttribute("zip.extracted_bytes", storedFiles.stream().mapToLong(StoredFile::size).sum());
+            span.setAttribute("zip.deduplicated_bytes", storedFiles.stream()
+                    .filter(StoredFile::deduplicated)
+                    .mapToLong(StoredFile::size)
+                    .sum());
+            return storedFiles;
+        }
+    }
+
+    private record ExtractedEntry(ZipEntry entry, Path path, String relativePath) {
+    }
+
+    private StoredFile extractEntry(ZipFile zipFile, ExtractedEntry file) {
+        // The declared size comes from the central directory; never trust the stream to honour it.
+        try (var input = zipFile.getInputStream(file.entry())) {
+            var blob = blobStore.store(input, file.entry().getSize(), file.path());
+            return new StoredFile(file.relativePath(), blob.hash(), blob.size(), blob.deduplicated());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
+    private static void checkCompressionRatio(ZipEntry entry) {
+        if (entry.getSize() < 0 || entry.getCompressedSize() < 0)
+            throw new SecurityException("ZIP entry without declared size: " + entry.getName());
+        if (entry.getSize() > Math.max(1, entry.getCompressedSize()) * MAX_COMPRESSION_RATIO)
+            throw new SecurityException("Suspicious compression ratio for ZIP entry: " + entry.getName());
+    }
+
+    private static SecurityException recorded(Span span, SecurityException exception) {
+        span.recordException(exception);
+        return exception;
+    }
+
     private static Path getPath(Path targetPath, ZipEntry entry, String commonPrefix) {
         var name = entry.getName().replace("\\", "/");
 
@@ -73,38 +204,88 @@ public class FileService {
             ? name.substring(commonPrefix.length())
             : name;
 
+        return resolveProjectPath(targetPath, name);
+    }
+
+    /**
+     * Resolves a client-supplied relative path inside {@code projectRoot}, applying the same
+     * sanitizing as ZIP extraction so that paths compare equal across uploads.
+     */
+    public static Path resolveProjectPath(Path projectRoot, String relativePath) {
+        var name = relativePath.replace("\\", "/");
         if (name.length() > MAX_PATH_LENGTH)
             throw new SecurityException("Path too long: " + name);
 
         name = name.replaceAll("[^a-zA-Z0-9./\\-_]+", "_");
-        var entryPath = targetPath.resolve(name).normalize();
+        var entryPath = projectRoot.resolve(name).normalize();
 
-        if (!entryPath.startsWith(targetPath.normalize()))
+        if (!entryPath.startsWith(projectRoot.normalize()))
             throw new SecurityException("ZIP entry contains invalid path: " + name);
         return entryPath;
     }
 
-    private String determineCommonPrefix(ZipInputStream zipStream, ZipEntry firstEntry) throws IOException {
+    private static String determineCommonPrefix(List<ZipEntry> entries) {
         String commonPrefix = null;
-        var entry = firstEntry;
-        
-        while (entry != null) {
+
+        for (var entry : entries) {
             var name = entry.getName().replace("\\", "/");
-            
+
             if (commonPrefix == null) {
                 int firstSlash = name.indexOf('/');
                 commonPrefix = firstSlash != -1 ? name.substring(0, firstSlash + 1) : null;
+                if (commonPrefix == null)
+                    break;
             } else if (!name.startsWith(commonPrefix)) {
-                commonPrefix = null;
-                break;
+                return null;
             }
-            
-            entry = zipStream.getNextEntry();
         }
-        
+
         return commonPrefix;
     }
 
+    /**
+     * Deletes a file and the directories it leaves empty, up to (excluding) {@code projectRoot}.
+     */
+    public static void deleteAndPrune(Path projectRoot, Path file) throws IOException {
+        Files.deleteIfExists(file);
+        var directory = file.getParent();
+        while (directory != null && !directory.equals(projectRoot.normalize()) && isEmptyDirectory(directory)) {
+            Files.delete(directory);
+            directory = directory.getParent();
+        }
+    }
+
+    private static boolean isEmptyDirectory(Path directory) throws IOException {
+        if (!Files.isDirectory(directory))
+            return false;
+        try (var entries = Files.list(directory)) {
+            return entries.findAny().isEmpty();
+        }
+    }
+
+    public DirectoryUsage measureDirectory(Path directory) throws IOException {
+        var fileCount = new long[1];
+        var totalBytes = new long[1];
+
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    fileCount[0]++;
+                    totalBytes[0] += attrs.size();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return new DirectoryUsage(fileCount[0], totalBytes[0]);
+    }
+
     public void deleteProjectDirectory(String projectPath) throws IOException {
         var path = Path.of(projectPath);
         if (Files.exists(path)) {
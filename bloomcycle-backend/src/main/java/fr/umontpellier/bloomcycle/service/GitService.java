@@ -1,26 +1,495 @@
 package fr.umontpellier.bloomcycle.service;
 
+import fr.umontpellier.bloomcycle.exception.QuotaExceededException;
+import fr.umontpellier.bloomcycle.tracing.Span;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
+/**
+ * Clones only what a deployment needs: a single branch, at depth {@code app.git.clone-depth}, and
+ * optionally a single subdirectory. Repositories are first mirrored as bare repositories under
+ * {@code ${app.storage.path}/git-mirrors}, keyed by URL, so importing the same repository again
+ * only fetches the new commits and clones from local disk.
+ */
 @Service
+@RequiredArgsConstructor
+@Slf4j
 public class GitService {
 
-    public void cloneRepository(String repositoryUrl, String targetDirectory) {
+    /**
+     * Branch to check out (the remote default branch when null) and subdirectory to use as the
+     * project root (the whole repository when null).
+     */
+    public record CloneOptions(String branch, String subdirectory) {
+
+        public static CloneOptions defaults() {
+            return new CloneOptions(null, null);
+        }
+    }
+
+    /**
+     * Commit checked out by a clone, and the size and file count of the project root it wrote.
+     */
+    public record CloneResult(String commit, FileService.DirectoryUsage usage) {
+    }
+
+    /**
+     * Files changed by a pull, and how much the checked out sources grew (negative when they shrank).
+     * {@code branch} is the pulled ref when it names a branch, null for a tag, a commit or HEAD.
+     */
+    public record PullResult(String previousCommit, String commit, String branch, List<String> added, List<String> modified,
+                             List<String> deleted, long sizeDelta) {
+
+        public boolean isEmpty() {
+            return added.isEmpty() && modified.isEmpty() && deleted.isEmpty();
+        }
+
+        public List<String> changedFiles() {
+            var changedFiles = new ArrayList<String>(added);
+            changedFiles.addAll(modified);
+            changedFiles.addAll(deleted);
+            return changedFiles;
+        }
+    }
+
+    private final FileService fileService;
+    private final Tracer tracer;
+    private final Map<String, ReentrantLock> mirrorLocks = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+    @Value("${app.storage.path}")
+    private String storagePath;
+
+    @Value("${app.git.clone-depth:1}")
+    private int cloneDepth;
+
+    @Value("${app.git.mirror.enabled:true}")
+    private boolean mirrorEnabled;
+
+    @Value("${app.git.mirror.ttl:30d}")
+    private Duration mirrorTtl;
+
+    @PostConstruct
+    public void startEviction() {
+        scheduler.scheduleAtFixedRate(this::evictUnusedMirrors, 1, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public CloneResult cloneRepository(String repositoryUrl, String targetDirectory) {
+        return cloneRepository(repositoryUrl, targetDirectory, CloneOptions.defaults());
+    }
+
+    /**
+     * Clones a repository and returns the SHA of the checked out commit with the size of the clone.
+     */
+    public CloneResult cloneRepository(String repositoryUrl, String targetDirectory, CloneOptions options) {
+        try (var span = tracer.startSpan("git.clone")) {
+            try {
+                var targetPath = Paths.get(targetDirectory);
+                Files.createDirectories(targetPath);
+                var subdirectory = normalizeSubdirectory(options.subdirectory());
+                span.setAttribute("git.depth", cloneDepth);
+                if (subdirectory != null)
+                    span.setAttribute("git.subdirectory", subdirectory);
+
+                String commit;
+                if (mirrorEnabled) {
+                    var key = mirrorKey(repositoryUrl);
+                    var lock = mirrorLocks.computeIfAbsent(key, _ -> new ReentrantLock());
+                    lock.lock();
+                    try {
+                        var mirror = updateMirror(repositoryUrl, getMirrorPath(key), span);
+                        commit = checkout(mirror.toUri().toString(), repositoryUrl, targetPath, options.branch(), subdirectory);
+                    } finally {
+                        lock.unlock();
+                    }
+                } else {
+                    commit = checkout(repositoryUrl, repositoryUrl, targetPath, options.branch(), subdirectory);
+                }
+
+                var usage = fileService.measureDirectory(targetPath);
+                span.setAttribute("git.commit", commit);
+                span.setAttribute("repository.size_bytes", usage.totalBytes());
+                span.setAttribute("repository.file_count", usage.fileCount());
+                return new CloneResult(commit, usage);
+            } catch (Exception e) {
+                span.recordException(e);
+                throw new RuntimeException("Error cloning Git repository (" + repositoryUrl + "): " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Brings an existing checkout to {@code ref} (a branch, a tag or a commit SHA; the default
+     * branch when null) and returns the files that changed. The diff is computed in the mirror,
+     * which has the history the shallow checkout lacks, and only those files are rewritten. Pulls
+     * always go through the mirror, even when {@code app.git.mirror.enabled} is off.
+     * {@code beforeWrite} receives the result before the checkout is touched, and can refuse it by
+     * throwing.
+     */
+    public PullResult pull(String repositoryUrl, String targetDirectory, String subdirectory, String deployedCommit, String ref,
+                           Consumer<PullResult> beforeWrite) {
+        try (var span = tracer.startSpan("git.pull")) {
+            try {
+                var targetPath = Paths.get(targetDirectory);
+                var prefix = normalizeSubdirectory(subdirectory);
+                var key = mirrorKey(repositoryUrl);
+                var lock = mirrorLocks.computeIfAbsent(key, _ -> new ReentrantLock());
+                lock.lock();
+                try (var git = Git.open(updateMirror(repositoryUrl, getMirrorPath(key), span).toFile())) {
+                    var repository = git.getRepository();
+                    var commit = resolveCommit(repository, ref);
+                    var branch = ref != null && !ref.isBlank() && repository.exactRef(Constants.R_HEADS + ref) != null ? ref : null;
+                    var previous = deployedCommit != null ? repository.resolve(deployedCommit + "^{commit}") : readHead(targetPath);
+                    var changes = diff(repository, previous, commit, prefix);
+                    var result = toPullResult(repository, previous, commit, branch, changes, prefix);
+                    beforeWrite.accept(result);
+
+                    if (Files.exists(targetPath.resolve(Constants.DOT_GIT)))
+                        resetCheckout(repository, targetPath, commit);
+                    else
+                        writeChanges(repository, changes, prefix, targetPath);
+
+                    span.setAttribute("git.commit", commit.name());
+                    span.setAttribute("git.changed_files", result.added().size() + result.modified().size() + result.deleted().size());
+                    return result;
+                } finally {
+                    lock.unlock();
+                }
+            } catch (IllegalArgumentException | QuotaExceededException e) {
+                span.recordException(e);
+                throw e;
+            } catch (Exception e) {
+                span.recordException(e);
+                throw new RuntimeException("Error pulling Git repository (" + repositoryUrl + "): " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Creates the bare mirror of a repository, or fetches what changed since the last import. A
+     * failed fetch falls back to the mirror as it is, so an unreachable remote does not block
+     * a repository that was already imported.
+     */
+    private Path updateMirror(String repositoryUrl, Path mirror, Span span) throws GitAPIException, IOException {
+        if (Files.exists(mirror)) {
+            try (var git = Git.open(mirror.toFile())) {
+                git.fetch()
+                        .setRefSpecs(new RefSpec("+refs/heads/*:refs/heads/*"), new RefSpec("+refs/tags/*:refs/tags/*"))
+                        .setRemoveDeletedRefs(true)
+                        .call();
+                span.setAttribute("git.mirror", "fetched");
+            } catch (GitAPIException e) {
+                log.warn("Fetching mirror of {} failed, using the cached copy: {}", repositoryUrl, e.getMessage());
+                span.setAttribute("git.mirror", "stale");
+            }
+        } else {
+            // Clone next to the final location so a failed clone never leaves a half-written mirror.
+            var temporary = mirror.resolveSibling("." + mirror.getFileName() + "." + UUID.randomUUID());
+            Files.createDirectories(mirror.getParent());
+            try {
+                Git.cloneRepository()
+                        .setURI(repositoryUrl)
+                        .setDirectory(temporary.toFile())
+                        .setBare(true)
+                        .call()
+                        .close();
+                Files.move(temporary, mirror);
+            } finally {
+                fileService.deleteProjectDirectory(temporary.toString());
+            }
+            span.setAttribute("git.mirror", "created");
+        }
+        Files.setLastModifiedTime(mirror, FileTime.from(Instant.now()));
+        return mirror;
+    }
+
+    private String checkout(String source, String repositoryUrl, Path targetPath, String branch, String subdirectory)
+            throws GitAPIException, IOException {
+        var branchRef = branch == null ? resolveDefaultBranch(source) : Constants.R_HEADS + branch;
+        var clone = Git.cloneRepository()
+                .setURI(source)
+                .setBranch(branchRef)
+                .setBranchesToClone(List.of(branchRef))
+                .setCloneAllBranches(false);
+        if (cloneDepth > 0)
+            clone.setDepth(cloneDepth);
+
+        if (subdirectory == null) {
+            try (var git = clone.setDirectory(targetPath.toFile()).call()) {
+                var config = git.getRepository().getConfig();
+                config.setString("remote", Constants.DEFAULT_REMOTE_NAME, "url", repositoryUrl);
+                config.save();
+                return git.getRepository().resolve(Constants.HEAD).name();
+            }
+        }
+
+        // Only the subdirectory is written to disk, then moved up to become the project root.
+        var temporary = targetPath.resolveSibling("." + targetPath.getFileName() + ".clone");
         try {
-            var targetPath = Paths.get(targetDirectory);
-            Files.createDirectories(targetPath);
+            String commit;
+            try (var git = clone.setDirectory(temporary.toFile()).setNoCheckout(true).call()) {
+                git.checkout().setStartPoint(Constants.HEAD).addPath(subdirectory).call();
+                commit = git.getRepository().resolve(Constants.HEAD).name();
+            }
+            var root = temporary.resolve(subdirectory);
+            if (!Files.isDirectory(root))
+                throw new IllegalArgumentException("Subdirectory not found in repository: " + subdirectory);
+            try (var entries = Files.list(root)) {
+                for (var entry : entries.toList())
+                    Files.move(entry, targetPath.resolve(entry.getFileName().toString()));
+            }
+            return commit;
+        } finally {
+            fileService.deleteProjectDirectory(temporary.toString());
+        }
+    }
+
+    private static ObjectId resolveCommit(Repository repository, String ref) throws IOException {
+        if (ref == null || ref.isBlank())
+            return repository.resolve(Constants.HEAD + "^{commit}");
+
+        for (var candidate : List.of(Constants.R_HEADS + ref, Constants.R_TAGS + ref, ref)) {
+            var commit = repository.resolve(candidate + "^{commit}");
+            if (commit != null)
+                return commit;
+        }
+        throw new IllegalArgumentException("Unknown branch, tag or commit: " + ref);
+    }
+
+    private static ObjectId readHead(Path targetPath) throws IOException {
+        if (!Files.exists(targetPath.resolve(Constants.DOT_GIT)))
+            return null;
+        try (var git = Git.open(targetPath.toFile())) {
+            return git.getRepository().resolve(Constants.HEAD);
+        }
+    }
+
+    /**
+     * Files that differ between two commits, limited to {@code prefix}. Without a known previous
+     * commit every file of the new one is reported as added.
+     */
+    private static List<DiffEntry> diff(Repository repository, ObjectId previous, ObjectId commit, String prefix) throws IOException {
+        try (var revWalk = new RevWalk(repository); var treeWalk = new TreeWalk(repository)) {
+            treeWalk.setRecursive(true);
+            if (previous == null)
+                treeWalk.addTree(new EmptyTreeIterator());
+            else
+                treeWalk.addTree(revWalk.parseCommit(previous).getTree());
+            treeWalk.addTree(revWalk.parseCommit(commit).getTree());
+            treeWalk.setFilter(prefix == null
+                    ? TreeFilter.ANY_DIFF
+                    : AndTreeFilter.create(PathFilter.create(prefix), TreeFilter.ANY_DIFF));
+            return DiffEntry.scan(treeWalk).stream()
+                    .filter(entry -> entry.getOldMode() != FileMode.GITLINK && entry.getNewMode() != FileMode.GITLINK)
+                    .toList();
+        }
+    }
+
+    /**
+     * Moves a shallow working clone to {@code commit}. The clone only knows its own branch, so the
+     * commit is fetched from the mirror through a temporary ref; the hard reset then rewrites
+     * the files that differ and leaves untracked ones, such as a generated Dockerfile, alone.
+     */
+    private void resetCheckout(Repository mirror, Path targetPath, ObjectId commit) throws IOException, GitAPIException {
+        var temporaryRef = "refs/bloomcycle/pull/" + commit.name();
+        var update = mirror.updateRef(temporaryRef);
+        update.setNewObjectId(commit);
+        update.setForceUpdate(true);
+        update.update();
+        try (var git = Git.open(targetPath.toFile())) {
+            var fetch = git.fetch()
+                    .setRemote(mirror.getDirectory().toURI().toString())
+                    .setRefSpecs(new RefSpec("+" + temporaryRef + ":" + temporaryRef));
+            if (cloneDepth > 0)
+                fetch.setDepth(cloneDepth);
+            fetch.call();
+            git.reset().setMode(ResetCommand.ResetType.HARD).setRef(commit.name()).call();
+            deleteRef(git.getRepository(), temporaryRef);
+        } finally {
+            deleteRef(mirror, temporaryRef);
+        }
+    }
+
+    /**
+     * Applies a diff to a checkout without {@code .git} (a subdirectory import) from the mirror's
+     * objects. Symbolic links are not materialized.
+     */
+    private static void writeChanges(Repository repository, List<DiffEntry> changes, String prefix, Path targetPath) throws IOException {
+        try (var reader = repository.newObjectReader()) {
+            for (var change : changes) {
+                if (change.getChangeType() == DiffEntry.ChangeType.DELETE) {
+                    FileService.deleteAndPrune(targetPath, FileService.resolveProjectPath(targetPath, relativize(change.getOldPath(), prefix)));
+                    continue;
+                }
+                if (change.getNewMode() == FileMode.SYMLINK)
+                    continue;
 
-            Git.cloneRepository()
-                .setURI(repositoryUrl)
-                .setDirectory(targetPath.toFile())
-                .call()
-                .close();
-        } catch (Exception e) {
-            throw new RuntimeException("Error cloning Git repository (" + repositoryUrl + "): " + e.getMessage(), e);
+                var target = FileService.resolveProjectPath(targetPath, relativize(change.getNewPath(), prefix));
+                Files.createDirectories(target.getParent());
+                var temporary = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+                try {
+                    try (var output = Files.newOutputStream(temporary)) {
+                        reader.open(change.getNewId().toObjectId()).copyTo(output);
+                    }
+                    if (change.getNewMode() == FileMode.EXECUTABLE_FILE)
+                        temporary.toFile().setExecutable(true, false);
+                    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(temporary);
+                }
+            }
+        }
+    }
+
+    private static PullResult toPullResult(Repository repository, ObjectId previous, ObjectId commit, String branch,
+                                           List<DiffEntry> changes, String prefix) throws IOException {
+        var added = new ArrayList<String>();
+        var modified = new ArrayList<String>();
+        var deleted = new ArrayList<String>();
+        var sizeDelta = 0L;
+        // Object sizes come from the mirror's index, without reading the files back from disk.
+        try (var reader = repository.newObjectReader()) {
+            for (var change : changes) {
+                switch (change.getChangeType()) {
+                    case ADD -> added.add(relativize(change.getNewPath(), prefix));
+                    case DELETE -> deleted.add(relativize(change.getOldPath(), prefix));
+                    default -> modified.add(relativize(change.getNewPath(), prefix));
+                }
+                if (change.getChangeType() != DiffEntry.ChangeType.DELETE)
+                    sizeDelta += reader.getObjectSize(change.getNewId().toObjectId(), Constants.OBJ_BLOB);
+                if (change.getChangeType() != DiffEntry.ChangeType.ADD)
+                    sizeDelta -= reader.getObjectSize(change.getOldId().toObjectId(), Constants.OBJ_BLOB);
+            }
+        }
+        return new PullResult(previous == null ? null : previous.name(), commit.name(), branch, added, modified, deleted, sizeDelta);
+    }
+
+    private static String relativize(String path, String prefix) {
+        return prefix == null ? path : path.substring(prefix.length() + 1);
+    }
+
+    private static void deleteRef(Repository repository, String name) throws IOException {
+        var update = repository.updateRef(name);
+        update.setForceUpdate(true);
+        update.delete();
+    }
+
+    private static String resolveDefaultBranch(String source) throws GitAPIException {
+        var refs = Git.lsRemoteRepository().setRemote(source).callAsMap();
+        var head = refs.get(Constants.HEAD);
+        if (head == null)
+            throw new IllegalArgumentException("Repository has no default branch");
+        if (head.isSymbolic())
+            return head.getTarget().getName();
+
+        // Servers that do not advertise the symref: pick the branch HEAD points to.
+        return refs.values().stream()
+                .filter(ref -> ref.getName().startsWith(Constants.R_HEADS))
+                .filter(ref -> head.getObjectId().equals(ref.getObjectId()))
+                .map(Ref::getName)
+                .sorted((first, second) -> Boolean.compare(!isUsualDefault(first), !isUsualDefault(second)))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Repository has no default branch"));
+    }
+
+    private static boolean isUsualDefault(String refName) {
+        return refName.equals(Constants.R_HEADS + "main") || refName.equals(Constants.R_HEADS + Constants.MASTER);
+    }
+
+    private static String normalizeSubdirectory(String subdirectory) {
+        if (subdirectory == null || subdirectory.isBlank())
+            return null;
+        var normalized = Path.of(subdirectory.strip()).normalize();
+        if (normalized.isAbsolute() || normalized.startsWith(".."))
+            throw new IllegalArgumentException("Invalid subdirectory: " + subdirectory);
+        var path = normalized.toString().replace('\\', '/');
+        return path.isEmpty() ? null : path;
+    }
+
+    private void evictUnusedMirrors() {
+        var root = Path.of(storagePath, "git-mirrors");
+        if (!Files.exists(root))
+            return;
+
+        var cutoff = FileTime.from(Instant.now().minus(mirrorTtl));
+        try (var mirrors = Files.list(root)) {
+            for (var mirror : mirrors.toList()) {
+                var lock = mirrorLocks.computeIfAbsent(mirror.getFileName().toString().replace(".git", ""), _ -> new ReentrantLock());
+                if (!lock.tryLock())
+                    continue;
+                try {
+                    if (Files.getLastModifiedTime(mirror).compareTo(cutoff) < 0) {
+                        fileService.deleteProjectDirectory(mirror.toString());
+                        log.info("Evicted unused Git mirror {}", mirror.getFileName());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to evict Git mirrors", e);
+        }
+    }
+
+    private Path getMirrorPath(String key) {
+        return Path.of(storagePath, "git-mirrors", key + ".git");
+    }
+
+    private static String mirrorKey(String repositoryUrl) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(repositoryUrl.strip().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.OperationLimiterStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "operationlimits")
+@RequiredArgsConstructor
+public class OperationLimiterEndpoint {
+
+    private final ContainerOperationLimiter containerOperationLimiter;
+
+    @ReadOperation
+    public OperationLimiterStats stats() {
+        return containerOperationLimiter.getStats();
+    }
+}
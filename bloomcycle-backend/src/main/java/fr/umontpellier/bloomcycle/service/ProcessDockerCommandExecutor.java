@@ -0,0 +1,62 @@
+package fr.umontpellier.bloomcycle.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Service
+@ConditionalOnProperty(name = "app.docker.simulator.enabled", havingValue = "false", matchIfMissing = true)
+public class ProcessDockerCommandExecutor implements DockerCommandExecutor {
+
+    private static final ExecutorService STREAM_READERS = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Override
+    public String execute(ProcessBuilder processBuilder) throws IOException, InterruptedException {
+        System.out.println("Exécution de la commande: " + String.join(" ", processBuilder.command()));
+
+        var process = processBuilder.start();
+        var output = readAsync(process.getInputStream());
+        var error = readAsync(process.getErrorStream());
+
+        // Waiting rather than reading lets an interrupted caller (a superseded build) kill the command.
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+        System.out.println("Résultat de la commande (code: " + exitCode + "):");
+        System.out.println("Output: " + output.join());
+
+        if (exitCode != 0) {
+            System.err.println("Erreur: " + error.join());
+            throw new RuntimeException("Command failed with exit code " + exitCode + ". Output: " + output.join() + ". Error: " + error.join());
+        }
+
+        return output.join().trim();
+    }
+
+    private static CompletableFuture<String> readAsync(InputStream stream) {
+        return CompletableFuture.supplyAsync(() -> {
+            var content = new StringBuilder();
+            try (var reader = new BufferedReader(new InputStreamReader(stream))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    content.append(line).append("\n");
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return content.toString();
+        }, STREAM_READERS);
+    }
+}
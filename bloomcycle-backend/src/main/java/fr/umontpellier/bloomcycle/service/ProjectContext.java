@@ -0,0 +1,55 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.model.Project;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The projects an API request has already looked up, kept in the request attributes so that the
+ * controller and the services it calls share one load per project. Off a request thread (pipeline,
+ * schedulers, Docker executor) nothing is kept and every lookup goes to the loader.
+ */
+@Component
+public class ProjectContext {
+
+    private static final String PROJECTS_ATTRIBUTE = ProjectContext.class.getName() + ".projects";
+    private static final String OWNERS_ATTRIBUTE = ProjectContext.class.getName() + ".owners";
+
+    public Project getProject(String projectId, Function<String, Project> loader) {
+        var projects = this.<Project>getMap(PROJECTS_ATTRIBUTE);
+        if (projects == null)
+            return loader.apply(projectId);
+        return projects.computeIfAbsent(projectId, loader);
+    }
+
+    /**
+     * Returns the owner of a project, from the project itself when this request already loaded it.
+     */
+    public Long getOwnerId(String projectId, Function<String, Long> loader) {
+        var projects = this.<Project>getMap(PROJECTS_ATTRIBUTE);
+        if (projects == null)
+            return loader.apply(projectId);
+        var project = projects.get(projectId);
+        if (project != null)
+            return project.getOwner().getId();
+        return this.<Long>getMap(OWNERS_ATTRIBUTE).computeIfAbsent(projectId, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Map<String, T> getMap(String name) {
+        var attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null)
+            return null;
+        var map = (Map<String, T>) attributes.getAttribute(name, RequestAttributes.SCOPE_REQUEST);
+        if (map == null) {
+            map = new HashMap<>();
+            attributes.setAttribute(name, map, RequestAttributes.SCOPE_REQUEST);
+        }
+        return map;
+    }
+}
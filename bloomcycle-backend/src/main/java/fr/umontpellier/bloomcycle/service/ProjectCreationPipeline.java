@@ -0,0 +1,277 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.ProjectProgressResponse;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Creates projects in the background. The request only persists a {@code PENDING} row; fetching
+ * the sources, detecting the technology and writing the Dockerfile run on a bounded pool, and each
+ * stage is recorded on the project so clients can poll it or follow it over SSE.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectCreationPipeline {
+
+    @FunctionalInterface
+    private interface Fetch {
+        FileService.DirectoryUsage into(Path projectPath) throws Exception;
+    }
+
+    private static final Duration EVENTS_TIMEOUT = Duration.ofMinutes(30);
+
+    private final ProjectService projectService;
+    private final FileService fileService;
+    private final GitService gitService;
+    private final FileManifestService fileManifestService;
+    private final StorageUsageService storageUsageService;
+    private final StorageVolumeService storageVolumeService;
+    private final Tracer tracer;
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private ThreadPoolExecutor executor;
+
+    @Value("${app.storage.path}")
+    private String storagePath;
+
+    @Value("${app.pipeline.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.pipeline.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${app.pipeline.failed-retention:24h}")
+    private Duration failedRetention;
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), Thread.ofPlatform().name("project-pipeline-", 0).factory());
+
+        // Tasks only live in memory, so anything still in flight belongs to a previous run.
+        for (var project : projectService.getUnfinishedProjects())
+            fail(project, "Interrupted by a server restart");
+
+        scheduler.scheduleAtFixedRate(this::purgeFailedProjects, 10, 10, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    public Project submitGit(String projectName, String repositoryUrl, GitService.CloneOptions options) {
+        storageUsageService.checkQuota(projectService.getCurrentUser().id(), 0);
+        var project = projectService.createPendingProject(projectName);
+        submit(project, "git", projectPath -> {
+            var clone = gitService.cloneRepository(repositoryUrl, projectPath.toString(), options);
+            projectService.updateGitSource(project.getId(), repositoryUrl, options.branch(), options.subdirectory(), clone.commit());
+            fileManifestService.indexCheckout(project);
+            return clone.usage();
+        }, null);
+        return project;
+    }
+
+    public Project submitArchive(String projectName, MultipartFile sourceZip) throws IOException {
+        if (sourceZip.getSize() > FileService.MAX_ZIP_SIZE)
+            throw new SecurityException("ZIP file too large (max: " + FileService.MAX_ZIP_SIZE + " bytes)");
+        storageUsageService.checkQuota(projectService.getCurrentUser().id(), sourceZip.getSize());
+
+        var archive = Path.of(storagePath, "uploads", UUID.randomUUID() + ".zip");
+        Files.createDirectories(archive.getParent());
+        try {
+            sourceZip.transferTo(archive);
+        } catch (IOException e) {
+            Files.deleteIfExists(archive);
+            throw e;
+        }
+        return submitArchive(projectName, archive);
+    }
+
+    /**
+     * Queues the creation of a project from a ZIP archive already on disk. The pipeline takes
+     * ownership of {@code archive} and deletes it once the sources are extracted.
+     */
+    public Project submitArchive(String projectName, Path archive) throws IOException {
+        Project project;
+        try {
+            project = projectService.createPendingProject(projectName);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(archive);
+            throw e;
+        }
+        submit(project, "zip", projectPath -> {
+            var storedFiles = fileManifestService.ingest(project, () -> fileService.extractZipFile(archive, projectPath));
+            return new FileService.DirectoryUsage(storedFiles.size(),
+                    storedFiles.stream().mapToLong(FileService.StoredFile::size).sum());
+        }, archive);
+        return project;
+    }
+
+    public ProjectProgressResponse getProgress(String projectId) {
+        return ProjectProgressResponse.fromProject(projectService.getOwnedProject(projectId));
+    }
+
+    /**
+     * Streams the stages of a project as {@code progress} events, starting with its current state.
+     * The stream completes once the project is {@code READY} or {@code FAILED}.
+     */
+    public SseEmitter subscribe(String projectId) throws IOException {
+        projectService.checkOwnership(projectId);
+
+        var emitter = new SseEmitter(EVENTS_TIMEOUT.toMillis());
+        var emitters = subscribers.computeIfAbsent(projectId, _ -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(_ -> emitters.remove(emitter));
+
+        // Read the state after registering, so a stage finishing in between is not missed.
+        var progress = ProjectProgressResponse.fromProject(projectService.getProjectById(projectId));
+        emitter.send(SseEmitter.event().name("progress").data(progress));
+        if (progress.getStatus().isTerminal())
+            emitter.complete();
+        return emitter;
+    }
+
+    private void submit(Project project, String source, Fetch fetch, Path archive) {
+        try {
+            // Runs under the request's span, so the pipeline stages join its trace.
+            executor.execute(tracer.wrap(() -> run(project, source, fetch, archive)));
+        } catch (RejectedExecutionException e) {
+            log.warn("Pipeline queue full, rejecting project {}", project.getId());
+            try {
+                projectService.removeProject(project);
+                if (archive != null)
+                    Files.deleteIfExists(archive);
+            } catch (IOException cleanup) {
+                log.warn("Failed to clean up rejected project {}", project.getId(), cleanup);
+            }
+            throw e;
+        }
+    }
+
+    private void run(Project project, String source, Fetch fetch, Path archive) {
+        try (var span = tracer.startSpan("project.pipeline"); var _ = storageVolumeService.useVolume(project)) {
+            span.setAttribute("project.id", project.getId());
+            span.setAttribute("project.source", source);
+            try {
+                var projectPath = Path.of(fileService.getProjectStoragePath(project));
+
+                advance(project, ProjectStatus.FETCHING);
+                Files.createDirectories(projectPath);
+                var usage = fetch.into(projectPath);
+                storageUsageService.recordSources(project, usage.totalBytes(), usage.fileCount(), true);
+                span.setAttribute("project.disk_bytes", usage.totalBytes());
+
+                advance(project, ProjectStatus.ANALYZING);
+                var projectType = projectService.analyzeProject(project);
+
+                advance(project, ProjectStatus.PREPARING);
+                projectService.prepareProject(project, projectType);
+
+                advance(project, ProjectStatus.READY);
+                log.info("Project {} is ready", project.getId());
+            } catch (CancellationException e) {
+                log.info("Project {} was deleted while being created", project.getId());
+                discardFiles(project);
+            } catch (Exception e) {
+                span.recordException(e);
+                log.warn("Creation of project {} failed: {}", project.getId(), e.getMessage());
+                fail(project, e.getMessage());
+            } finally {
+                deleteArchive(archive);
+            }
+        }
+    }
+
+    private void advance(Project project, ProjectStatus status) {
+        if (!projectService.updateStatus(project.getId(), status, null))
+            throw new CancellationException();
+        publish(project.getId(), status, null);
+    }
+
+    /**
+     * Compensation for a failed creation: whatever was fetched or linked is dropped, and only the
+     * row is kept, in the {@code FAILED} state, until {@link #purgeFailedProjects} removes it.
+     */
+    private void fail(Project project, String message) {
+        discardFiles(project);
+        if (projectService.updateStatus(project.getId(), ProjectStatus.FAILED, message))
+            publish(project.getId(), ProjectStatus.FAILED, message);
+    }
+
+    private void discardFiles(Project project) {
+        try {
+            fileService.moveToTrash(project);
+            storageUsageService.releaseSources(project);
+            fileManifestService.releaseManifest(project.getId());
+        } catch (Exception e) {
+            log.warn("Failed to discard files of project {}", project.getId(), e);
+        }
+    }
+
+    private void publish(String projectId, ProjectStatus status, String message) {
+        var emitters = status.isTerminal() ? subscribers.remove(projectId) : subscribers.get(projectId);
+        if (emitters == null)
+            return;
+
+        var progress = ProjectProgressResponse.builder()
+                .id(projectId)
+                .status(status)
+                .message(message)
+                .updatedAt(Instant.now())
+                .build();
+        for (var emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("progress").data(progress));
+                if (status.isTerminal())
+                    emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+    }
+
+    private void purgeFailedProjects() {
+        for (var project : projectService.getFailedProjectsBefore(Instant.now().minus(failedRetention))) {
+            try {
+                projectService.removeProject(project);
+                log.info("Purged failed project {}", project.getId());
+            } catch (Exception e) {
+                log.warn("Failed to purge project {}", project.getId(), e);
+            }
+        }
+    }
+
+    private static void deleteArchive(Path archive) {
+        if (archive == null)
+            return;
+        try {
+            Files.deleteIfExists(archive);
+        } catch (IOException e) {
+            log.warn("Failed to delete archive {}", archive, e);
+        }
+    }
+}
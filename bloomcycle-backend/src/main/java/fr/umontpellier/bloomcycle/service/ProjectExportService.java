@@ -0,0 +1,383 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.exception.InvalidUploadException;
+import fr.umontpellier.bloomcycle.exception.UploadConflictException;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds downloadable archives of a project's sources. Archives are generated while they are
+ * streamed, with fixed-size buffers whatever the size of the tree, and a copy is kept per sources
+ * version so that repeated or resumed downloads are served from a file.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectExportService {
+
+    public enum Format {
+        ZIP("zip", "application/zip"),
+        TAR_GZ("tar.gz", "application/gzip");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static Format parse(String value) {
+            return switch (value == null ? "zip" : value.toLowerCase(Locale.ROOT)) {
+                case "zip" -> ZIP;
+                case "tar.gz", "tgz" -> TAR_GZ;
+                default -> throw new InvalidUploadException("Unsupported export format: " + value + " (zip or tar.gz)");
+            };
+        }
+    }
+
+    public record CachedExport(Path file, String etag) {
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Deflating these again costs CPU for nothing; they are stored at level 0.
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "png", "jpg", "jpeg", "gif", "webp", "ico", "woff", "woff2", "zip", "jar", "war", "gz", "tgz", "zst", "mp3", "mp4", "pdf");
+
+    private final ProjectService projectService;
+    private final FileService fileService;
+    private final ColdStorageService coldStorageService;
+    private final StorageVolumeService storageVolumeService;
+    private final Tracer tracer;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+    @Value("${app.export.cache-ttl:1h}")
+    private Duration cacheTtl;
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::purgeCache, 10, 10, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Returns an exportable project owned by the current user, restored from cold storage if needed.
+     */
+    public Project getExportableProject(String projectId) {
+        var project = projectService.getOwnedProject(projectId);
+        if (project.getStatus() != ProjectStatus.READY)
+            throw new UploadConflictException("Project " + projectId + " is " + project.getStatus() + " and cannot be exported");
+        coldStorageService.ensureHot(project);
+        return project;
+    }
+
+    public String getFileName(Project project, Format format) {
+        return getRootName(project) + "." + format.getExtension();
+    }
+
+    /**
+     * The archive already built for the current sources of the project, if any.
+     */
+    public Optional<CachedExport> findCached(Project project, Format format) {
+        var file = getCacheFile(project, format);
+        if (file == null || !Files.isRegularFile(file))
+            return Optional.empty();
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            log.debug("Failed to touch {}: {}", file, e.getMessage());
+        }
+        return Optional.of(new CachedExport(file, getEtag(project, format)));
+    }
+
+    /**
+     * Builds the archive into the cache without streaming it, for a client resuming a download
+     * that was interrupted before the archive was complete.
+     */
+    public CachedExport buildCached(Project project, Format format) throws IOException {
+        try (var sink = OutputStream.nullOutputStream()) {
+            write(project, format, sink);
+        }
+        return findCached(project, format)
+                .orElseThrow(() -> new IOException("Export of project " + project.getId() + " could not be cached"));
+    }
+
+    /**
+     * Streams the archive to {@code output} and keeps a copy in the cache once it is complete.
+     * Projects without a recorded sources version are streamed only.
+     */
+    public void write(Project project, Format format, OutputStream output) throws IOException {
+        var cacheFile = getCacheFile(project, format);
+        Path temporary = null;
+        OutputStream cache = null;
+        if (cacheFile != null) {
+            Files.createDirectories(cacheFile.getParent());
+            temporary = cacheFile.resolveSibling("." + UUID.randomUUID() + ".tmp");
+            cache = new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE);
+        }
+
+        try (var _ = storageVolumeService.useVolume(project); var span = tracer.startSpan("project.export")) {
+            span.setAttribute("project.id", project.getId());
+            span.setAttribute("export.format", format.getExtension());
+            var tee = new TeeOutputStream(output, cache);
+            var counts = switch (format) {
+                case ZIP -> writeZip(project, tee);
+                case TAR_GZ -> writeTarGz(project, tee);
+            };
+            span.setAttribute("export.files", counts[0]);
+            span.setAttribute("export.source_bytes", counts[1]);
+            span.setAttribute("export.archive_bytes", tee.written);
+
+            if (cache != null) {
+                cache.close();
+                if (tee.cacheFailed) {
+                    Files.deleteIfExists(temporary);
+                } else {
+                    Files.move(temporary, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    evictOtherVersions(cacheFile);
+                }
+            }
+        } finally {
+            if (temporary != null) {
+                if (cache != null)
+                    closeQuietly(cache);
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    private long[] writeZip(Project project, OutputStream output) throws IOException {
+        var rootName = getRootName(project) + "/";
+        var zip = new ZipOutputStream(output);
+        var counts = walkSources(project, (name, file, attributes) -> {
+            if (attributes.isSymbolicLink())
+                return;
+            var extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+            zip.setLevel(COMPRESSED_EXTENSIONS.contains(extension) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+            var entry = new ZipEntry(rootName + name + (attributes.isDirectory() ? "/" : ""));
+            entry.setLastModifiedTime(attributes.lastModifiedTime());
+            zip.putNextEntry(entry);
+            if (attributes.isRegularFile())
+                Files.copy(file, zip);
+            zip.closeEntry();
+        });
+        zip.finish();
+        zip.flush();
+        return counts;
+    }
+
+    private long[] writeTarGz(Project project, OutputStream output) throws IOException {
+        var rootName = getRootName(project) + "/";
+        var gzip = new GZIPOutputStream(output, BUFFER_SIZE);
+        var tar = new TarArchiveOutputStream(gzip);
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        var counts = walkSources(project, (name, file, attributes) -> {
+            TarArchiveEntry entry;
+            if (attributes.isSymbolicLink()) {
+                entry = new TarArchiveEntry(rootName + name, TarConstants.LF_SYMLINK);
+                entry.setLinkName(Files.readSymbolicLink(file).toString());
+            } else {
+                entry = new TarArchiveEntry(file, rootName + name, LinkOption.NOFOLLOW_LINKS);
+                // Only the modification time is kept; the others would add a PAX header per entry.
+                entry.setCreationTime(null);
+                entry.setLastAccessTime(null);
+                entry.setStatusChangeTime(null);
+            }
+            tar.putArchiveEntry(entry);
+            if (attributes.isRegularFile())
+                Files.copy(file, tar);
+            tar.closeArchiveEntry();
+        });
+        tar.finish();
+        gzip.finish();
+        gzip.flush();
+        return counts;
+    }
+
+    @FunctionalInterface
+    private interface EntryWriter {
+        void write(String name, Path file, BasicFileAttributes attributes) throws IOException;
+    }
+
+    /**
+     * Visits the project tree in a stable order, skipping the Git metadata of cloned projects,
+     * and returns the number of files and bytes written.
+     */
+    private long[] walkSources(Project project, EntryWriter writer) throws IOException {
+        var root = Path.of(fileService.getProjectStoragePath(project));
+        var counts = new long[2];
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                if (directory.equals(root))
+                    return FileVisitResult.CONTINUE;
+                if (directory.getParent().equals(root) && directory.getFileName().toString().equals(".git"))
+                    return FileVisitResult.SKIP_SUBTREE;
+                writer.write(toEntryName(root, directory), directory, attributes);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                writer.write(toEntryName(root, file), file, attributes);
+                if (attributes.isRegularFile()) {
+                    counts[0]++;
+                    counts[1] += attributes.size();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return counts;
+    }
+
+    private Path getCacheFile(Project project, Format format) {
+        if (project.getSourcesUpdatedAt() == null)
+            return null;
+        return fileService.getExportCachePath().resolve(project.getId())
+                .resolve(project.getSourcesUpdatedAt().toEpochMilli() + "." + format.getExtension());
+    }
+
+    private static String getEtag(Project project, Format format) {
+        return "\"" + project.getId() + "-" + project.getSourcesUpdatedAt().toEpochMilli() + "-" + format.getExtension() + "\"";
+    }
+
+    private static String getRootName(Project project) {
+        var name = project.getName() == null ? "" : project.getName().replaceAll("[^a-zA-Z0-9._-]+", "_");
+        return name.isEmpty() || name.startsWith(".") ? project.getId() : name;
+    }
+
+    private static String toEntryName(Path root, Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    private static void evictOtherVersions(Path cacheFile) throws IOException {
+        var version = getVersion(cacheFile);
+        try (var siblings = Files.newDirectoryStream(cacheFile.getParent())) {
+            for (var sibling : siblings) {
+                if (!sibling.getFileName().toString().startsWith(".") && !getVersion(sibling).equals(version))
+                    Files.deleteIfExists(sibling);
+            }
+        }
+    }
+
+    // Cached archives are named <sourcesUpdatedAt millis>.<extension>.
+    private static String getVersion(Path cacheFile) {
+        var name = cacheFile.getFileName().toString();
+        return name.substring(0, Math.max(0, name.indexOf('.')));
+    }
+
+    private void purgeCache() {
+        var root = fileService.getExportCachePath();
+        if (!Files.isDirectory(root))
+            return;
+        var cutoff = FileTime.from(Instant.now().minus(cacheTtl));
+        try (var projects = Files.newDirectoryStream(root)) {
+            for (var directory : projects) {
+                try (var files = Files.newDirectoryStream(directory)) {
+                    for (var file : files) {
+                        if (Files.getLastModifiedTime(file).compareTo(cutoff) < 0)
+                            Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to purge the export cache: {}", e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(OutputStream output) {
+        try {
+            output.close();
+        } catch (IOException e) {
+            log.debug("Failed to close export cache: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Copies what the client receives into the cache. A failing cache only drops the copy; the
+     * download itself goes on.
+     */
+    private static final class TeeOutputStream extends OutputStream {
+        private final OutputStream client;
+        private final OutputStream cache;
+        private boolean cacheFailed;
+        private long written;
+
+        private TeeOutputStream(OutputStream client, OutputStream cache) {
+            this.client = client;
+            this.cache = cache;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            client.write(buffer, offset, length);
+            written += length;
+            if (cache == null || cacheFailed)
+                return;
+            try {
+                cache.write(buffer, offset, length);
+            } catch (IOException e) {
+                cacheFailed = true;
+                log.warn("Export cache write failed, the archive will not be kept: {}", e.getMessage());
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            client.flush();
+        }
+    }
+}
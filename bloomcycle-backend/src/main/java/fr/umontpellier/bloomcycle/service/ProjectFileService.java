@@ -0,0 +1,92 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.FileListResponse;
+import fr.umontpellier.bloomcycle.exception.InvalidUploadException;
+import fr.umontpellier.bloomcycle.exception.ResourceNotFoundException;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.repository.FileRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+
+/**
+ * Browses a project's tree through the {@code files} index instead of walking its directory, and
+ * resolves single indexed files for reading.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProjectFileService {
+
+    public record ProjectFile(Path path, String etag) {
+    }
+
+    static final int MAX_PAGE_SIZE = 1000;
+    private static final Map<String, String> SORT_PROPERTIES = Map.of(
+            "path", "filePath",
+            "name", "name",
+            "size", "size",
+            "modifiedAt", "modifiedAt");
+
+    private final ProjectService projectService;
+    private final FileService fileService;
+    private final FileRepository fileRepository;
+    private final ColdStorageService coldStorageService;
+
+    public FileListResponse listFiles(String projectId, String prefix, int page, int size, String sort, String direction) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE)
+            throw new InvalidUploadException("Page must not be negative and size must be between 1 and " + MAX_PAGE_SIZE);
+        var property = SORT_PROPERTIES.get(sort);
+        if (property == null)
+            throw new InvalidUploadException("Unsupported sort: " + sort + " (" + String.join(", ", SORT_PROPERTIES.keySet()) + ")");
+
+        var project = getBrowsableProject(projectId);
+        var order = Sort.by("desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC, property);
+        // The path breaks ties, so pages do not overlap when files share a size or a date.
+        if (!property.equals("filePath"))
+            order = order.and(Sort.by("filePath"));
+        var files = fileRepository.findByProjectIdAndFilePathStartingWith(project.getId(), prefix == null ? "" : prefix,
+                PageRequest.of(page, size, order));
+        return FileListResponse.fromPage(files);
+    }
+
+    /**
+     * Resolves an indexed file of a project owned by the current user. Only indexed paths can be
+     * read, which keeps Git metadata and anything outside the project out of reach.
+     */
+    public ProjectFile getFile(String projectId, String path) throws IOException {
+        var project = getBrowsableProject(projectId);
+        var file = fileRepository.findFirstByProjectIdAndFilePath(projectId, path)
+                .orElseThrow(() -> new ResourceNotFoundException("File not found in project " + projectId + ": " + path));
+
+        var root = Path.of(fileService.getProjectStoragePath(project)).toRealPath();
+        BasicFileAttributes attributes;
+        Path target;
+        try {
+            target = root.resolve(file.getFilePath()).toRealPath();
+            attributes = Files.readAttributes(target, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("File not found in project " + projectId + ": " + path);
+        }
+        if (!target.startsWith(root) || !attributes.isRegularFile())
+            throw new ResourceNotFoundException("File not found in project " + projectId + ": " + path);
+
+        var version = file.getHash() != null
+                ? file.getHash()
+                : Long.toHexString(attributes.size()) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis());
+        return new ProjectFile(target, "\"" + version + "\"");
+    }
+
+    private Project getBrowsableProject(String projectId) {
+        var project = projectService.getOwnedProject(projectId);
+        coldStorageService.ensureHot(project);
+        return project;
+    }
+}
@@ -0,0 +1,122 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.ProjectSummary;
+import fr.umontpellier.bloomcycle.exception.InvalidPageRequestException;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import fr.umontpellier.bloomcycle.model.ProjectType;
+import fr.umontpellier.bloomcycle.repository.ProjectRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Pages through the projects of the current user with a cursor: each page continues after the
+ * sort key and id of the last project returned, so a page costs the same however deep it is and
+ * projects created or deleted meanwhile do not shift the following pages.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectListService {
+
+    public record ProjectPage(List<ProjectSummary> projects, String nextCursor) {
+    }
+
+    static final int MAX_PAGE_SIZE = 100;
+    private static final List<String> SORTS = List.of("name", "updatedAt");
+
+    private final ProjectRepository projectRepository;
+    private final ProjectService projectService;
+
+    @PostConstruct
+    public void fillMissingStatusDates() {
+        var filled = projectRepository.fillMissingStatusUpdatedAt(Instant.now());
+        if (filled > 0)
+            log.info("Set the status date of {} legacy projects", filled);
+    }
+
+    public ProjectPage listProjects(String cursor, int size, String sort, String direction, String status, String stack) {
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            throw new InvalidPageRequestException("Size must be between 1 and " + MAX_PAGE_SIZE);
+        if (!SORTS.contains(sort))
+            throw new InvalidPageRequestException("Unsupported sort: " + sort + " (" + String.join(", ", SORTS) + ")");
+        var descending = "desc".equalsIgnoreCase(direction);
+        var statusFilter = parseFilter(ProjectStatus.class, status);
+        var projectType = parseFilter(ProjectType.class, stack);
+
+        String afterKey = null;
+        String afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            var parts = decodeCursor(cursor);
+            if (!parts[0].equals(sort))
+                throw new InvalidPageRequestException("The cursor was issued for another sort");
+            afterKey = parts[1];
+            afterId = parts[2];
+        }
+
+        var ownerId = projectService.getCurrentUser().id();
+        // One extra row tells whether there is a next page.
+        var limit = PageRequest.of(0, size + 1);
+        var rows = switch (sort) {
+            case "name" -> descending
+                    ? projectRepository.findSummariesByNameDesc(ownerId, statusFilter, projectType, afterKey, afterId, limit)
+                    : projectRepository.findSummariesByNameAsc(ownerId, statusFilter, projectType, afterKey, afterId, limit);
+            default -> {
+                var afterUpdatedAt = parseInstant(afterKey);
+                yield descending
+                        ? projectRepository.findSummariesByUpdatedAtDesc(ownerId, statusFilter, projectType, afterUpdatedAt, afterId, limit)
+                        : projectRepository.findSummariesByUpdatedAtAsc(ownerId, statusFilter, projectType, afterUpdatedAt, afterId, limit);
+            }
+        };
+
+        if (rows.size() <= size)
+            return new ProjectPage(rows, null);
+        var projects = rows.subList(0, size);
+        var last = projects.getLast();
+        var lastKey = sort.equals("name") ? last.name() : last.statusUpdatedAt().toString();
+        return new ProjectPage(projects, encodeCursor(sort, lastKey, last.id()));
+    }
+
+    private static <E extends Enum<E>> E parseFilter(Class<E> type, String value) {
+        if (value == null || value.isEmpty())
+            return null;
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Unknown " + type.getSimpleName() + ": " + value);
+        }
+    }
+
+    private static String encodeCursor(String sort, String key, String id) {
+        var value = sort + "\n" + key + "\n" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            var parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\n", 3);
+            if (parts.length == 3)
+                return parts;
+        } catch (IllegalArgumentException _) {
+        }
+        throw new InvalidPageRequestException("Invalid cursor");
+    }
+
+    private static Instant parseInstant(String value) {
+        if (value == null)
+            return null;
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidPageRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.PullResponse;
+import fr.umontpellier.bloomcycle.exception.InvalidUploadException;
+import fr.umontpellier.bloomcycle.exception.UploadConflictException;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import fr.umontpellier.bloomcycle.model.container.ContainerOperation;
+import fr.umontpellier.bloomcycle.model.container.ContainerStatus;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Incremental redeploys of Git-based projects: the existing checkout is moved to a new commit,
+ * only the files that changed are rewritten, and the image is rebuilt from there.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectPullService {
+
+    // Same wait as the start endpoint; a longer build keeps running and the response says PENDING.
+    private static final Duration REBUILD_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ProjectService projectService;
+    private final FileService fileService;
+    private final GitService gitService;
+    private final DockerService dockerService;
+    private final ContainerOperationLimiter containerOperationLimiter;
+    private final StorageUsageService storageUsageService;
+    private final FileManifestService fileManifestService;
+    private final ColdStorageService coldStorageService;
+    private final StorageVolumeService storageVolumeService;
+    private final Tracer tracer;
+    private final Set<String> pullsInProgress = ConcurrentHashMap.newKeySet();
+
+    public PullResponse pull(String projectId, String ref, boolean rebuild) {
+        var project = projectService.getOwnedProject(projectId);
+        // A rebuild takes its token before the pull, so a refused request leaves the sources untouched.
+        if (rebuild)
+            containerOperationLimiter.acquire(project.getOwner().getId(), ContainerOperation.START);
+        var targetRef = ref == null || ref.isBlank() ? project.getGitRef() : ref.strip();
+        var pullStarted = System.nanoTime();
+        var result = pullSources(project, targetRef);
+        var pullMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pullStarted);
+
+        var response = PullResponse.builder()
+                .projectId(projectId)
+                .ref(targetRef)
+                .previousCommit(result.previousCommit())
+                .commit(result.commit())
+                .added(result.added())
+                .modified(result.modified())
+                .deleted(result.deleted())
+                .pullMillis(pullMillis);
+        if (rebuild && !result.isEmpty())
+            response.rebuildTriggered(true).containerStatus(awaitRedeploy(project, result.changedFiles(), response));
+        return response.build();
+    }
+
+    /**
+     * Moves the sources of a Git project to {@code ref} and records the new commit, without any
+     * ownership check and without rebuilding. At most one pull runs per project. Pulling a branch
+     * makes it the tracked branch; a tag or commit is deployed once and the tracked branch is kept,
+     * so pushes to it still redeploy the project.
+     */
+    public GitService.PullResult pullSources(Project project, String ref) {
+        var projectId = project.getId();
+        if (project.getGitUrl() == null)
+            throw new InvalidUploadException("Project " + projectId + " was not created from a Git repository");
+        if (project.getStatus() != ProjectStatus.READY)
+            throw new UploadConflictException("Project " + projectId + " is " + project.getStatus() + " and cannot be pulled");
+        if (!pullsInProgress.add(projectId))
+            throw new UploadConflictException("A pull is already running for project " + projectId);
+
+        try (var span = tracer.startSpan("project.pull"); var _ = storageVolumeService.useVolume(project)) {
+            span.setAttribute("project.id", projectId);
+            coldStorageService.ensureHot(project);
+            // The growth is reserved against the quota before the checkout is written, and given
+            // back if writing it fails.
+            var reserved = new GitService.PullResult[1];
+            GitService.PullResult result;
+            try {
+                result = gitService.pull(project.getGitUrl(), fileService.getProjectStoragePath(project),
+                        project.getGitSubdirectory(), project.getCommitSha(), ref, pending -> {
+                            if (!pending.isEmpty()) {
+                                storageUsageService.recordSources(project, pending.sizeDelta(), fileDelta(pending), true);
+                                reserved[0] = pending;
+                            }
+                        });
+            } catch (IllegalArgumentException e) {
+                span.recordException(e);
+                release(project, reserved[0]);
+                throw new InvalidUploadException(e.getMessage());
+            } catch (RuntimeException e) {
+                span.recordException(e);
+                release(project, reserved[0]);
+                throw e;
+            }
+            var trackedBranch = result.branch() != null ? result.branch() : project.getGitRef();
+            projectService.updateGitSource(projectId, project.getGitUrl(), trackedBranch, project.getGitSubdirectory(), result.commit());
+            if (!result.isEmpty()) {
+                indexChanges(project, result.changedFiles());
+                projectService.refreshProjectType(project);
+            }
+            log.info("Pulled project {} to {}: {} added, {} modified, {} deleted", projectId, result.commit(),
+                    result.added().size(), result.modified().size(), result.deleted().size());
+            return result;
+        } finally {
+            pullsInProgress.remove(projectId);
+        }
+    }
+
+    private void release(Project project, GitService.PullResult reserved) {
+        if (reserved != null)
+            storageUsageService.recordSources(project, -reserved.sizeDelta(), -fileDelta(reserved), false);
+    }
+
+    private static long fileDelta(GitService.PullResult result) {
+        return result.added().size() - result.deleted().size();
+    }
+
+    // The checkout is already at the new commit; a stale index is not worth failing the pull for.
+    private void indexChanges(Project project, List<String> changedFiles) {
+        try {
+            fileManifestService.indexFiles(project, changedFiles);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to index pulled files of project {}", project.getId(), e);
+        }
+    }
+
+    private ContainerStatus awaitRedeploy(Project project, List<String> changedFiles, PullResponse.PullResponseBuilder response) {
+        var rebuildStarted = System.nanoTime();
+        try {
+            var containerInfo = dockerService.redeploy(project, changedFiles)
+                    .get(REBUILD_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            response.rebuildMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - rebuildStarted));
+            return containerInfo.getStatus();
+        } catch (TimeoutException e) {
+            return ContainerStatus.PENDING;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ContainerStatus.PENDING;
+        } catch (ExecutionException e) {
+            log.warn("Redeploy of project {} failed", project.getId(), e.getCause());
+            return ContainerStatus.ERROR;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.TrashStats;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Finishes the deletion of projects moved to the trash by {@link FileService#moveToTrash}: removes
+ * the container, its volumes, the image, any cold storage copy and cached export, then the files.
+ * The trash directory of each storage volume is the queue, so entries left over by a restart are
+ * picked up again. Entries are reaped on a bounded pool and a failed one is retried with
+ * exponential backoff, up to {@code app.trash.max-attempts}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectReaper {
+
+    private static class Entry {
+        private int failures;
+        private Instant notBefore = Instant.EPOCH;
+        private boolean resourcesRemoved;
+        private boolean running;
+    }
+
+    private final FileService fileService;
+    private final DockerService dockerService;
+    private final ColdStorageService coldStorageService;
+    private final Tracer tracer;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final AtomicLong reapedEntries = new AtomicLong();
+    private final AtomicLong deletedFiles = new AtomicLong();
+    private final AtomicLong freedBytes = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong abandonedEntries = new AtomicLong();
+    private final AtomicReference<String> lastError = new AtomicReference<>();
+    private final AtomicReference<Instant> lastReapedAt = new AtomicReference<>();
+    private ExecutorService executor;
+
+    @Value("${app.trash.concurrency:2}")
+    private int concurrency;
+
+    @Value("${app.trash.scan-interval:2s}")
+    private Duration scanInterval;
+
+    @Value("${app.trash.retry-backoff:30s}")
+    private Duration retryBackoff;
+
+    @Value("${app.trash.max-attempts:5}")
+    private int maxAttempts;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newFixedThreadPool(concurrency, Thread.ofPlatform().name("project-reaper-", 0).factory());
+        scheduler.scheduleWithFixedDelay(this::scan, 0, scanInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    public TrashStats getStats() {
+        var inProgress = (int) entries.values().stream().filter(entry -> entry.running).count();
+        return TrashStats.builder()
+                .pendingEntries(entries.size())
+                .inProgress(inProgress)
+                .reapedEntries(reapedEntries.get())
+                .deletedFiles(deletedFiles.get())
+                .freedBytes(freedBytes.get())
+                .failedAttempts(failedAttempts.get())
+                .abandonedEntries(abandonedEntries.get())
+                .lastError(lastError.get())
+                .lastReapedAt(lastReapedAt.get())
+                .build();
+    }
+
+    private void scan() {
+        for (var trash : fileService.getTrashPaths()) {
+            if (Files.isDirectory(trash))
+                scan(trash);
+        }
+    }
+
+    private void scan(Path trash) {
+        var now = Instant.now();
+        try (var stream = Files.newDirectoryStream(trash)) {
+            for (var path : stream) {
+                var name = path.getFileName().toString();
+                var entry = entries.computeIfAbsent(name, _ -> new Entry());
+                synchronized (entry) {
+                    if (entry.running || entry.failures >= maxAttempts || entry.notBefore.isAfter(now))
+                        continue;
+                    entry.running = true;
+                }
+                executor.execute(() -> reap(name, path, entry));
+            }
+        } catch (IOException | RejectedExecutionException e) {
+            log.warn("Failed to scan the trash {}: {}", trash, e.getMessage());
+        }
+    }
+
+    private void reap(String name, Path path, Entry entry) {
+        // Entries are named <projectId>.<timestamp>; project ids never contain a dot.
+        var projectId = name.substring(0, name.indexOf('.') < 0 ? name.length() : name.indexOf('.'));
+        try (var span = tracer.startSpan("project.reap")) {
+            span.setAttribute("project.id", projectId);
+            try {
+                // Disk space comes back even while Docker is unreachable; the empty entry stays as
+                // the marker that the container and image are still to be removed.
+                var deleted = deleteContents(path);
+                if (!entry.resourcesRemoved) {
+                    dockerService.removeProjectResources(projectId);
+                    coldStorageService.discard(projectId);
+                    fileService.deleteProjectDirectory(fileService.getExportCachePath().resolve(projectId).toString());
+                    entry.resourcesRemoved = true;
+                }
+                Files.deleteIfExists(path);
+                span.setAttribute("reap.deleted_files", deleted[0]);
+                span.setAttribute("reap.freed_bytes", deleted[1]);
+                entries.remove(name);
+                reapedEntries.incrementAndGet();
+                lastReapedAt.set(Instant.now());
+                log.info("Reaped project {}: {} files, {} bytes", projectId, deleted[0], deleted[1]);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                span.recordException(e);
+                retryLater(name, entry, e);
+            }
+        } finally {
+            synchronized (entry) {
+                entry.running = false;
+            }
+        }
+    }
+
+    private void retryLater(String name, Entry entry, Exception e) {
+        failedAttempts.incrementAndGet();
+        lastError.set(name + ": " + e.getMessage());
+        synchronized (entry) {
+            entry.failures++;
+            if (entry.failures >= maxAttempts) {
+                abandonedEntries.incrementAndGet();
+                log.error("Giving up on trash entry {} after {} attempts, it is retried at the next restart", name, entry.failures, e);
+                return;
+            }
+            entry.notBefore = Instant.now().plus(retryBackoff.multipliedBy(1L << (entry.failures - 1)));
+        }
+        log.warn("Failed to reap trash entry {} (attempt {}), retrying: {}", name, entry.failures, e.getMessage());
+    }
+
+    /**
+     * Deletes everything it can under {@code root}, but not {@code root} itself, and returns the
+     * number of files and bytes removed. A file that cannot be deleted does not stop the others;
+     * the failure is reported once the walk is over, so the next attempt only retries the rest.
+     */
+    private long[] deleteContents(Path root) throws IOException {
+        var deleted = new long[2];
+        var failures = new AtomicLong();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                try {
+                    Files.delete(file);
+                    deleted[0]++;
+                    deleted[1] += attrs.size();
+                    deletedFiles.incrementAndGet();
+                    freedBytes.addAndGet(attrs.size());
+                } catch (IOException e) {
+                    failures.incrementAndGet();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                failures.incrementAndGet();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                if (dir.equals(root))
+                    return FileVisitResult.CONTINUE;
+                try {
+                    Files.delete(dir);
+                } catch (IOException e) {
+                    failures.incrementAndGet();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        if (failures.get() > 0)
+            throw new IOException(failures.get() + " paths could not be deleted under " + root);
+        return deleted;
+    }
+}
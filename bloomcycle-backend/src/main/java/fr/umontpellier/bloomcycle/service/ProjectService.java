@@ -2,24 +2,29 @@ package fr.umontpellier.bloomcycle.service;
 
 import fr.umontpellier.bloomcycle.model.User;
 import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import fr.umontpellier.bloomcycle.model.ProjectType;
 import fr.umontpellier.bloomcycle.repository.ProjectRepository;
+import fr.umontpellier.bloomcycle.security.AuthenticatedUser;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
 
 import fr.umontpellier.bloomcycle.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.io.IOException;
 
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
-import org.springframework.web.multipart.MultipartFile;
-
-import fr.umontpellier.bloomcycle.service.ProjectTypeAnalyzer.TechnologyStack;
 import fr.umontpellier.bloomcycle.exception.UnauthorizedAccessException;
 
 @Service
@@ -29,44 +34,96 @@ public class ProjectService {
 
     private final ProjectRepository projectRepository;
     private final FileService fileService;
-    private final GitService gitService;
+    private final StorageVolumeService storageVolumeService;
+    private final FileManifestService fileManifestService;
+    private final StorageUsageService storageUsageService;
     private final ProjectTypeAnalyzer projectAnalyzer;
+    private final UserService userService;
+    private final ProjectContext projectContext;
+    private final TransactionTemplate transactionTemplate;
+    private final Tracer tracer;
 
     public Project getProjectById(String id) {
         return projectRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Project not found with id: " + id));
     }
 
+    /**
+     * Loads a project of the current user. Within an API request the project is loaded once and
+     * shared through {@link ProjectContext}.
+     */
+    public Project getOwnedProject(String id) {
+        var project = projectContext.getProject(id, this::getProjectById);
+        var currentUser = getCurrentUser();
+        if (!project.getOwner().getId().equals(currentUser.id()))
+            throw new UnauthorizedAccessException("You don't have permission to access this project");
+        return project;
+    }
+
+    /**
+     * Checks that the current user owns a project, reading only its owner id.
+     */
+    public void checkOwnership(String id) {
+        var ownerId = projectContext.getOwnerId(id, projectId -> projectRepository.findOwnerIdById(projectId)
+                .orElseThrow(() -> new ResourceNotFoundException("Project not found with id: " + projectId)));
+        if (!ownerId.equals(getCurrentUser().id()))
+            throw new UnauthorizedAccessException("You don't have permission to access this project");
+    }
+
     public List<Project> getProjectsByUser(User user) {
         return projectRepository.findByOwner(user);
     }
 
-    public List<Project> getCurrentUserProjects() {
-        var authentication = SecurityContextHolder.getContext().getAuthentication();
-        var currentUser = (User) authentication.getPrincipal();
-        return getProjectsByUser(currentUser);
+    public AuthenticatedUser getCurrentUser() {
+        return (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
     }
 
-    private Project createProject(String projectName) {
-        var authentication = SecurityContextHolder.getContext().getAuthentication();
-        var currentUser = (User) authentication.getPrincipal();
+    /**
+     * Persists a project in the {@code PENDING} state; its sources are fetched afterwards by the
+     * {@link ProjectCreationPipeline}.
+     */
+    public Project createPendingProject(String projectName) {
+        // The principal is not an entity: the owner is loaded for the quota checks of the pipeline.
+        var owner = userService.getUserById(getCurrentUser().id());
 
         var project = new Project();
         project.setName(projectName);
-        project.setOwner(currentUser);
+        project.setOwner(owner);
+        project.setStatus(ProjectStatus.PENDING);
+        project.setStorageVolume(storageVolumeService.place());
 
         return projectRepository.save(project);
     }
 
-    private void generateDockerfile(String projectPath, TechnologyStack technology) throws IOException {
-        String dockerfileContent = switch (technology) {
-            case JAVA_MAVEN -> """
+    /**
+     * Records a pipeline stage. Returns false when the project was deleted in the meantime.
+     */
+    public boolean updateStatus(String projectId, ProjectStatus status, String message) {
+        return projectRepository.updateStatus(projectId, status, message, Instant.now()) > 0;
+    }
+
+    private void generateDockerfile(String projectPath, ProjectType projectType) throws IOException {
+        String dockerfileContent = switch (projectType) {
+            // Dependencies are resolved from the build manifests alone, in a layer that a change to
+            // the sources does not invalidate. Resolving them up front is best effort: the full
+            // build still fetches whatever the warm-up missed.
+            case JAVA -> Files.exists(Path.of(projectPath, "pom.xml")) ? """
                 FROM maven:3.8-openjdk-17
                 WORKDIR /app
+                COPY pom.xml .
+                RUN mvn -B dependency:go-offline || true
                 COPY . .
                 RUN mvn clean package
                 CMD ["java", "-jar", "target/*.jar"]
-                """;
+                """ : """
+                FROM gradle:8-jdk17
+                WORKDIR /app
+                %sRUN gradle dependencies --no-daemon > /dev/null || true
+                COPY . .
+                RUN gradle build -x test
+                CMD ["sh", "-c", "java -jar build/libs/*.jar"]
+                """.formatted(copyManifests(projectPath,
+                        "build.gradle", "build.gradle.kts", "settings.gradle", "settings.gradle.kts", "gradle.properties"));
             case NODEJS -> """
                 FROM node:20-alpine
                 WORKDIR /app
@@ -76,113 +133,184 @@ public class ProjectService {
                 EXPOSE 3000
                 CMD ["npm", "start"]
                 """;
+            // Single-page apps are built once and served by nginx on the port the proxy expects.
+            case REACT, ANGULAR, VUE -> """
+                FROM node:20-alpine AS build
+                WORKDIR /app
+                COPY package*.json ./
+                RUN npm install
+                COPY . .
+                RUN npm run build && mkdir /site \\
+                    && cp -r "$(dirname "$(find build dist -name index.html 2>/dev/null | head -n 1)")"/. /site/
+
+                FROM nginx:alpine
+                COPY --from=build /site /usr/share/nginx/html
+                RUN printf 'server {\\n  listen 3000;\\n  root /usr/share/nginx/html;\\n  location / { try_files $uri /index.html; }\\n}\\n' > /etc/nginx/conf.d/default.conf
+                EXPOSE 3000
+                """;
             case PYTHON -> """
                 FROM python:3.9
                 WORKDIR /app
-                COPY requirements.txt .
-                RUN pip install -r requirements.txt
+                %sCMD ["python", "app.py"]
+                """.formatted(pythonInstall(projectPath));
+            case PHP -> """
+                FROM php:8.3-cli
+                RUN apt-get update && apt-get install -y --no-install-recommends unzip && rm -rf /var/lib/apt/lists/*
+                COPY --from=composer:2 /usr/bin/composer /usr/bin/composer
+                WORKDIR /app
+                %sRUN if [ -f composer.json ]; then composer install --no-dev --no-interaction --no-scripts --no-autoloader; fi
                 COPY . .
-                CMD ["python", "app.py"]
+                RUN if [ -f composer.json ]; then composer dump-autoload --no-dev --optimize; fi
+                EXPOSE 3000
+                CMD ["php", "-S", "0.0.0.0:3000", "-t", "/app"]
+                """.formatted(copyManifests(projectPath, "composer.json", "composer.lock"));
+            case STATIC -> """
+                FROM nginx:alpine
+                COPY . /usr/share/nginx/html
+                RUN sed -i 's/listen  *80;/listen 3000;/' /etc/nginx/conf.d/default.conf
+                EXPOSE 3000
                 """;
-            default -> throw new IllegalArgumentException("Unknown project type");
+            case OTHER -> throw new IllegalArgumentException("Unknown project type");
         };
 
+        // Project files are never written in place, since any of them may be a hardlink to a shared blob.
         var dockerfilePath = Path.of(projectPath, "Dockerfile");
-        Files.writeString(dockerfilePath, dockerfileContent);
-    }
-
-    private void analyzeAndSetupProject(Project project) throws IOException {
+        var temporary = dockerfilePath.resolveSibling(".Dockerfile." + UUID.randomUUID() + ".tmp");
         try {
-            var projectPath = fileService.getProjectStoragePath(project);
-            var dockerfilePath = Path.of(projectPath, "Dockerfile");
-
-            if (Files.exists(dockerfilePath)) {
-                log.info("Using existing Dockerfile for project {}", project.getId());
-                return;
-            }
-
-            try {
-                var technology = projectAnalyzer.analyzeTechnology(projectPath);
-                generateDockerfile(projectPath, technology);
-                log.info("Generated Dockerfile for {} project {}", technology, project.getId());
-            } catch (IllegalArgumentException e) {
-                throw new IllegalArgumentException(
-                    "Project type not recognized. Please include a Dockerfile in your project sources."
-                );
-            }
-        } catch (Exception e) {
-            if (e instanceof IllegalArgumentException) {
-                throw e;
-            }
-            throw new RuntimeException("Error analyzing project: " + e.getMessage(), e);
+            Files.writeString(temporary, dockerfileContent);
+            Files.move(temporary, dockerfilePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
         }
     }
 
-    public Project initializeProjectFromGit(String projectName, String gitUrl) {
-        try {
-            var project = createProject(projectName);
-            var projectPath = fileService.getProjectStoragePath(project);
-
-            Files.createDirectories(Paths.get(projectPath));
-            gitService.cloneRepository(gitUrl, projectPath);
+    // Lists only the manifests present, since COPY fails on a source that does not exist.
+    private static String copyManifests(String projectPath, String... manifests) {
+        var present = Arrays.stream(manifests).filter(name -> Files.exists(Path.of(projectPath, name))).toList();
+        return present.isEmpty() ? "" : "COPY " + String.join(" ", present) + " ./\n";
+    }
 
-            analyzeAndSetupProject(project);
+    // Installs from whichever manifest the project has. Requirements and Pipfiles are installed before
+    // the sources are copied; a package described by pyproject.toml or setup.py needs its sources.
+    private static String pythonInstall(String projectPath) {
+        if (Files.exists(Path.of(projectPath, "requirements.txt")))
+            return "COPY requirements.txt .\nRUN pip install -r requirements.txt\nCOPY . .\n";
+        if (Files.exists(Path.of(projectPath, "Pipfile")))
+            return "RUN pip install pipenv\n" + copyManifests(projectPath, "Pipfile", "Pipfile.lock")
+                    + "RUN pipenv install --system\nCOPY . .\n";
+        if (Files.exists(Path.of(projectPath, "pyproject.toml")) || Files.exists(Path.of(projectPath, "setup.py")))
+            return "COPY . .\nRUN pip install .\n";
+        return "COPY . .\n";
+    }
 
-            return project;
-        } catch (Exception e) {
-            throw new RuntimeException("Error initializing project: " + e.getMessage(), e);
+    /**
+     * Detects and stores the technology of a freshly fetched project.
+     */
+    public ProjectType analyzeProject(Project project) {
+        try (var span = tracer.startSpan("project.analyze")) {
+            var projectType = refreshProjectType(project);
+            span.setAttribute("project.technology", projectType.name());
+            return projectType;
         }
     }
 
-    public Project initializeProjectFromZip(String projectName, MultipartFile sourceZip) {
-        try {
-            var project = createProject(projectName);
-            var projectPath = fileService.getProjectStoragePath(project);
-            var targetPath = Paths.get(projectPath);
-
-            Files.createDirectories(targetPath);
-            fileService.extractZipFile(sourceZip, targetPath);
-
-            analyzeAndSetupProject(project);
+    /**
+     * Writes a Dockerfile for the detected technology, unless the sources ship their own.
+     */
+    public void prepareProject(Project project, ProjectType projectType) throws IOException {
+        var projectPath = fileService.getProjectStoragePath(project);
+        if (Files.exists(Path.of(projectPath, "Dockerfile"))) {
+            log.info("Using existing Dockerfile for project {}", project.getId());
+            return;
+        }
 
-            return project;
-        } catch (Exception e) {
-            throw new RuntimeException("Error initializing project from ZIP: " + e.getMessage(), e);
+        try (var span = tracer.startSpan("dockerfile.generate")) {
+            span.setAttribute("project.technology", projectType.name());
+            generateDockerfile(projectPath, projectType);
+            fileManifestService.indexFiles(project, List.of("Dockerfile"));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                "Project type not recognized. Please include a Dockerfile in your project sources."
+            );
         }
+        log.info("Generated Dockerfile for {} project {}", projectType, project.getId());
     }
 
     public void deleteProject(String projectId) {
         try {
-            var project = getProjectById(projectId);
-            
-            var authentication = SecurityContextHolder.getContext().getAuthentication();
-            var currentUser = (User) authentication.getPrincipal();
-            if (!project.getOwner().getId().equals(currentUser.getId())) {
-                throw new UnauthorizedAccessException("You don't have permission to delete this project");
-            }
-
-            var projectPath = fileService.getProjectStoragePath(project);
-            fileService.deleteProjectDirectory(projectPath);
-            projectRepository.delete(project);
+            removeProject(getOwnedProject(projectId));
         } catch (Exception e) {
             throw new RuntimeException("Error deleting project: " + e.getMessage(), e);
         }
     }
 
-    public List<Project> getAllProjects() {
-        return projectRepository.findAll();
+    /**
+     * Drops a project's manifest and row, without any ownership check. Its directory is moved to
+     * the trash first, where {@link ProjectReaper} deletes it along with the container and image;
+     * if that fails nothing is released. The usage, manifest and row then go in one transaction.
+     */
+    public void removeProject(Project project) throws IOException {
+        fileService.moveToTrash(project);
+        transactionTemplate.executeWithoutResult(_ -> {
+            storageUsageService.releaseProject(project);
+            fileManifestService.releaseManifest(project.getId());
+            projectRepository.delete(project);
+        });
     }
 
-    public String getProjectTechnology(String projectId) {
-        var project = getProjectById(projectId);
-        var projectPath = fileService.getProjectStoragePath(project);
-        return projectAnalyzer.analyzeTechnology(projectPath).name();
+    /**
+     * Records where a Git project comes from and the commit now deployed. Only these columns are
+     * written, so a concurrent status update is not overwritten.
+     */
+    public void updateGitSource(String projectId, String url, String ref, String subdirectory, String commitSha) {
+        projectRepository.updateGitSource(projectId, url, ref, subdirectory, commitSha);
+    }
+
+    public void updateWebhookSecret(String projectId, String secret) {
+        projectRepository.updateWebhookSecret(projectId, secret);
+    }
+
+    public List<Project> getUnfinishedProjects() {
+        return projectRepository.findByStatusIn(List.of(
+                ProjectStatus.PENDING, ProjectStatus.FETCHING, ProjectStatus.ANALYZING, ProjectStatus.PREPARING));
+    }
+
+    public List<Project> getFailedProjectsBefore(Instant cutoff) {
+        return projectRepository.findByStatusAndStatusUpdatedAtBefore(ProjectStatus.FAILED, cutoff);
+    }
+
+    public List<String> getAutoRestartProjectIds() {
+        return projectRepository.findIdsByAutoRestartEnabledTrue();
+    }
+
+    /**
+     * Returns the stored technology of a project, or {@code UNKNOWN} when none is recorded. Only rows
+     * written before detection was persisted fall back to analyzing the sources, once.
+     */
+    public String getProjectTechnology(Project project) {
+        if (project.getSourcesUpdatedAt() == null && project.getStatus() == ProjectStatus.READY && project.getArchivedAt() == null)
+            return refreshProjectType(project).name();
+        return project.getProjectType() != null ? project.getProjectType().name() : "UNKNOWN";
+    }
+
+    /**
+     * Detects the technology of the current sources and stores it. Called whenever the sources
+     * change (creation, pull, sync), so that reads never walk the project tree.
+     */
+    public ProjectType refreshProjectType(Project project) {
+        var detection = projectAnalyzer.detect(Path.of(fileService.getProjectStoragePath(project)));
+        var projectType = detection.type();
+        log.debug("Project {} detected as {} from {}", project.getId(), projectType, detection.evidence());
+        var now = Instant.now();
+        projectRepository.updateProjectType(project.getId(), projectType, now);
+        project.setProjectType(projectType);
+        project.setSourcesUpdatedAt(now);
+        return projectType;
     }
 
     public void updateAutoRestartSetting(String projectId, boolean enabled) {
-        Project project = getProjectById(projectId);
-        project.setAutoRestartEnabled(enabled);
-        projectRepository.save(project);
+        if (projectRepository.updateAutoRestartEnabled(projectId, enabled) == 0)
+            throw new ResourceNotFoundException("Project not found with id: " + projectId);
         log.info("Updated auto-restart setting for project {} to {}", projectId, enabled);
     }
 }
\ No newline at end of file
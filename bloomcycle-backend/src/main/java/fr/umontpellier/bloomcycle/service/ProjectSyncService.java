@@ -0,0 +1,280 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.sync.SyncFile;
+import fr.umontpellier.bloomcycle.dto.sync.SyncManifestRequest;
+import fr.umontpellier.bloomcycle.dto.sync.SyncPlanResponse;
+import fr.umontpellier.bloomcycle.dto.sync.SyncResultResponse;
+import fr.umontpellier.bloomcycle.exception.InvalidUploadException;
+import fr.umontpellier.bloomcycle.exception.ResourceNotFoundException;
+import fr.umontpellier.bloomcycle.exception.UploadConflictException;
+import fr.umontpellier.bloomcycle.model.File;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import fr.umontpellier.bloomcycle.model.container.ContainerOperation;
+import fr.umontpellier.bloomcycle.model.container.ContainerStatus;
+import fr.umontpellier.bloomcycle.service.FileService.StoredFile;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Delta redeploys of ZIP-based projects. The client sends the full list of paths and SHA-256
+ * hashes, uploads only the blobs the server does not have yet, then commits; the project
+ * directory is updated in place and keeps its id and container.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectSyncService {
+
+    private static final Duration SESSION_TTL = Duration.ofHours(1);
+
+    // missingBlobs maps each hash still to upload to its declared size; blobSizes covers the whole manifest.
+    private record SyncSession(String id, String projectId, Map<String, String> files, Map<String, Long> blobSizes,
+                               Map<String, Long> missingBlobs, Instant createdAt, AtomicLong uploadedBytes) {
+    }
+
+    private final ProjectService projectService;
+    private final FileService fileService;
+    private final FileManifestService fileManifestService;
+    private final BlobStore blobStore;
+    private final DockerService dockerService;
+    private final ContainerOperationLimiter containerOperationLimiter;
+    private final StorageUsageService storageUsageService;
+    private final ColdStorageService coldStorageService;
+    private final StorageVolumeService storageVolumeService;
+    private final Tracer tracer;
+    private final Map<String, SyncSession> sessions = new ConcurrentHashMap<>();
+
+    public SyncPlanResponse plan(String projectId, SyncManifestRequest request) {
+        var project = projectService.getOwnedProject(projectId);
+        if (project.getStatus() != ProjectStatus.READY)
+            throw new UploadConflictException("Project " + projectId + " is " + project.getStatus() + " and cannot be synced");
+        coldStorageService.ensureHot(project);
+        var projectRoot = Path.of(fileService.getProjectStoragePath(project));
+        if (project.getGitUrl() != null || Files.exists(projectRoot.resolve(".git")))
+            throw new InvalidUploadException("Project " + projectId + " comes from Git and cannot be synced from a manifest");
+        if (request.getFiles().size() >= FileService.MAX_FILES)
+            throw new InvalidUploadException("Too many files in manifest (max: " + FileService.MAX_FILES + ")");
+
+        var desired = new LinkedHashMap<String, String>();
+        var blobSizes = new HashMap<String, Long>();
+        var desiredBytes = 0L;
+        for (var file : request.getFiles()) {
+            var hash = file.getHash() == null ? "" : file.getHash().toLowerCase(Locale.ROOT);
+            if (!hash.matches("[0-9a-f]{64}"))
+                throw new InvalidUploadException("Invalid SHA-256 for " + file.getPath());
+            if (file.getSize() == null || file.getSize() < 0 || file.getSize() > FileService.MAX_ZIP_SIZE)
+                throw new InvalidUploadException("Missing or invalid size for " + file.getPath());
+            var declared = blobSizes.putIfAbsent(hash, file.getSize());
+            if (declared != null && !declared.equals(file.getSize()))
+                throw new InvalidUploadException("Conflicting sizes declared for " + hash);
+            if (desired.put(toRelativePath(projectRoot, file.getPath()), hash) == null)
+                desiredBytes += file.getSize();
+        }
+
+        var manifest = fileManifestService.getManifest(projectId);
+        var current = currentManifest(manifest);
+        var missing = new ArrayList<SyncFile>();
+        var missingBlobs = new ConcurrentHashMap<String, Long>();
+        var unchanged = 0;
+        for (var entry : desired.entrySet()) {
+            var hash = entry.getValue();
+            if (hash.equals(current.get(entry.getKey()))) {
+                unchanged++;
+            } else if (!blobStore.contains(hash) && missingBlobs.putIfAbsent(hash, blobSizes.get(hash)) == null) {
+                missing.add(new SyncFile(entry.getKey(), hash, blobSizes.get(hash)));
+            }
+        }
+        var deleted = (int) current.keySet().stream().filter(path -> !desired.containsKey(path)).count();
+
+        // Uploads are bounded by the declared sizes, so the growth they allow is checked before any
+        // byte is accepted; commit enforces the quota again on the real sizes.
+        var currentBytes = manifest.stream().filter(file -> file.getHash() != null).mapToLong(File::getSize).sum();
+        if (desiredBytes > currentBytes)
+            storageUsageService.checkQuota(project.getOwner().getId(), desiredBytes - currentBytes);
+
+        expireSessions();
+        var session = new SyncSession(UUID.randomUUID().toString(), projectId, desired, blobSizes, missingBlobs,
+                Instant.now(), new AtomicLong());
+        sessions.put(session.id(), session);
+
+        return SyncPlanResponse.builder()
+                .syncId(session.id())
+                .missing(missing)
+                .unchanged(unchanged)
+                .changed(desired.size() - unchanged)
+                .deleted(deleted)
+                .expiresAt(session.createdAt().plus(SESSION_TTL))
+                .build();
+    }
+
+    /**
+     * Stores one blob the plan asked for. Each missing hash is claimed by a single upload at a time
+     * and read up to its declared size, so a session never stores more than its plan requires.
+     */
+    public void uploadBlob(String projectId, String syncId, String hash, InputStream body) throws IOException {
+        var session = getSession(projectId, syncId);
+        var expectedHash = hash.toLowerCase(Locale.ROOT);
+        var expectedSize = session.missingBlobs().remove(expectedHash);
+        if (expectedSize == null) {
+            // A retry of an upload that succeeded is harmless; anything else was not asked for.
+            if (session.blobSizes().containsKey(expectedHash) && blobStore.contains(expectedHash))
+                return;
+            throw new InvalidUploadException("Blob " + hash + " was not requested by sync " + syncId);
+        }
+
+        var stored = false;
+        try {
+            var blob = blobStore.put(body, expectedSize);
+            if (!blob.hash().equals(expectedHash))
+                throw new InvalidUploadException("Content does not match hash " + hash + " (got " + blob.hash() + ")");
+            session.uploadedBytes().addAndGet(blob.size());
+            stored = true;
+        } catch (SecurityException e) {
+            throw new InvalidUploadException("Blob " + hash + " is larger than its declared " + expectedSize + " bytes");
+        } finally {
+            if (!stored)
+                session.missingBlobs().put(expectedHash, expectedSize);
+        }
+    }
+
+    public SyncResultResponse commit(String projectId, String syncId, boolean rebuild) throws IOException {
+        var session = getSession(projectId, syncId);
+        var project = projectService.getOwnedProject(projectId);
+        coldStorageService.ensureHot(project);
+        var manifest = fileManifestService.getManifest(projectId);
+        var current = currentManifest(manifest);
+        // Files outside of the blob store, like a generated Dockerfile, are not part of the sync.
+        var unstored = manifest.stream()
+                .filter(file -> file.getHash() == null && !session.files().containsKey(file.getFilePath()))
+                .toList();
+
+        // A blob that was already stored when the plan was made may have been collected since.
+        session.files().forEach((path, hash) -> {
+            if (!hash.equals(current.get(path)) && !blobStore.contains(hash))
+                session.missingBlobs().put(hash, session.blobSizes().get(hash));
+        });
+        if (!session.missingBlobs().isEmpty())
+            throw new UploadConflictException(session.missingBlobs().size() + " file(s) still have to be uploaded");
+        // Refused before the session is consumed, so the same commit can be retried.
+        if (rebuild)
+            containerOperationLimiter.acquire(project.getOwner().getId(), ContainerOperation.START);
+        sessions.remove(syncId);
+
+        // Reserve the growth up front, so a sync that would exceed the quota writes nothing.
+        var sizeDelta = -manifest.stream().filter(file -> file.getHash() != null).mapToLong(File::getSize).sum();
+        for (var hash : session.files().values())
+            sizeDelta += blobStore.size(hash);
+        var fileDelta = session.files().size() - current.size();
+        storageUsageService.recordSources(project, sizeDelta, fileDelta, true);
+
+        var written = new int[1];
+        var deleted = new int[1];
+
+        try (var _ = storageVolumeService.useVolume(project); var span = tracer.startSpan("project.sync")) {
+            var projectRoot = Path.of(fileService.getProjectStoragePath(project));
+            span.setAttribute("project.id", projectId);
+            try {
+                fileManifestService.replace(project, () -> {
+                    var storedFiles = new ArrayList<StoredFile>(session.files().size());
+                    for (var entry : session.files().entrySet()) {
+                        var target = FileService.resolveProjectPath(projectRoot, entry.getKey());
+                        if (!entry.getValue().equals(current.get(entry.getKey()))) {
+                            Files.createDirectories(target.getParent());
+                            blobStore.link(entry.getValue(), target);
+                            written[0]++;
+                        }
+                        storedFiles.add(new StoredFile(entry.getKey(), entry.getValue(), blobStore.size(entry.getValue()), true));
+                    }
+
+                    for (var file : unstored) {
+                        if (Files.isRegularFile(FileService.resolveProjectPath(projectRoot, file.getFilePath()), LinkOption.NOFOLLOW_LINKS))
+                            storedFiles.add(new StoredFile(file.getFilePath(), null, file.getSize(), false));
+                    }
+
+                    for (var path : current.keySet()) {
+                        if (!session.files().containsKey(path)) {
+                            FileService.deleteAndPrune(projectRoot, FileService.resolveProjectPath(projectRoot, path));
+                            deleted[0]++;
+                        }
+                    }
+                    return storedFiles;
+                });
+            } catch (IOException | RuntimeException e) {
+                storageUsageService.recordSources(project, -sizeDelta, -fileDelta, false);
+                throw e;
+            }
+            projectService.refreshProjectType(project);
+            span.setAttribute("sync.written", written[0]);
+            span.setAttribute("sync.deleted", deleted[0]);
+            span.setAttribute("sync.uploaded_bytes", session.uploadedBytes().get());
+        }
+        log.info("Synced project {}: {} written, {} deleted, {} bytes uploaded", projectId, written[0], deleted[0], session.uploadedBytes().get());
+
+        if (rebuild) {
+            dockerService.executeOperation(project, ContainerOperation.START)
+                    .thenAccept(containerInfo -> {
+                        if (containerInfo.getStatus() == ContainerStatus.ERROR)
+                            log.warn("Rebuild after sync failed for project {}", projectId);
+                    });
+        }
+
+        return SyncResultResponse.builder()
+                .projectId(projectId)
+                .written(written[0])
+                .deleted(deleted[0])
+                .unchanged(session.files().size() - written[0])
+                .uploadedBytes(session.uploadedBytes().get())
+                .rebuildTriggered(rebuild)
+                .build();
+    }
+
+    private SyncSession getSession(String projectId, String syncId) {
+        projectService.checkOwnership(projectId);
+        var session = sessions.get(syncId);
+        if (session == null || !session.projectId().equals(projectId) || isExpired(session))
+            throw new ResourceNotFoundException("Sync session not found with id: " + syncId);
+        return session;
+    }
+
+    private static Map<String, String> currentManifest(List<File> manifest) {
+        return manifest.stream()
+                .filter(file -> file.getHash() != null)
+                .collect(Collectors.toMap(File::getFilePath, File::getHash, (first, _) -> first));
+    }
+
+    private void expireSessions() {
+        sessions.values().removeIf(this::isExpired);
+    }
+
+    private boolean isExpired(SyncSession session) {
+        return session.createdAt().plus(SESSION_TTL).isBefore(Instant.now());
+    }
+
+    private static String toRelativePath(Path projectRoot, String path) {
+        if (path == null || path.isBlank())
+            throw new InvalidUploadException("Manifest entry without a path");
+        try {
+            var resolved = FileService.resolveProjectPath(projectRoot, path);
+            if (resolved.equals(projectRoot.normalize()))
+                throw new InvalidUploadException("Invalid path: " + path);
+            return projectRoot.normalize().relativize(resolved).toString().replace('\\', '/');
+        } catch (SecurityException e) {
+            throw new InvalidUploadException(e.getMessage());
+        }
+    }
+}
@@ -1,132 +1,106 @@
 package fr.umontpellier.bloomcycle.service;
 
+import fr.umontpellier.bloomcycle.model.ProjectType;
+import fr.umontpellier.bloomcycle.service.detection.Detection;
+import fr.umontpellier.bloomcycle.service.detection.DetectionRule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Stream;
 
+/**
+ * Detects the technology of a project with {@link DetectionRule}s. The tree is walked breadth
+ * first, so manifests closest to the root win; the walk stops at the end of the first level holding
+ * a decisive manifest, and never enters dependency or hidden folders.
+ */
 @Service
+@Slf4j
 public class ProjectTypeAnalyzer {
 
-    public enum TechnologyStack {
-        JAVA_MAVEN,
-        NODEJS,
-        PYTHON,
-        UNKNOWN
-    }
+    private static final Set<String> PRUNED_DIRECTORIES = Set.of("node_modules", "target", "venv", "vendor", "__pycache__");
 
-    public TechnologyStack analyzeTechnology(String projectPath) {
-        var dockerfile = Path.of(projectPath, "Dockerfile");
-        if (Files.exists(dockerfile)) {
-            try {
-                var dockerfileContent = Files.readString(dockerfile);
-                var detectedTech = analyzeDockerfile(dockerfileContent);
-                if (detectedTech != TechnologyStack.UNKNOWN) {
-                    return detectedTech;
-                }
-            } catch (IOException e) {
-                throw new RuntimeException("Error reading Dockerfile: " + e.getMessage(), e);
-            }
-        }
+    private final Map<String, List<DetectionRule>> rulesByName = new HashMap<>();
+    private final Map<String, List<DetectionRule>> rulesByExtension = new HashMap<>();
 
-        return analyzeProjectFiles(projectPath);
-    }
+    @Value("${app.detection.max-depth:4}")
+    private int maxDepth = 4;
 
-    private TechnologyStack analyzeDockerfile(String content) {
-        content = content.toLowerCase();
-        
-        if (content.contains("from openjdk") || 
-            content.contains("from maven") || 
-            content.contains("from gradle")) {
-            return TechnologyStack.JAVA_MAVEN;
-        }
-        
-        if (content.contains("from node") || 
-            content.contains("npm install") || 
-            content.contains("yarn install")) {
-            return TechnologyStack.NODEJS;
-        }
-        
-        if (content.contains("from python") || 
-            content.contains("pip install") || 
-            content.contains("requirements.txt")) {
-            return TechnologyStack.PYTHON;
-        }
+    @Value("${app.detection.max-files:50000}")
+    private int maxFiles = 50000;
 
-        if (content.contains("mvn") || content.contains(".jar")) {
-            return TechnologyStack.JAVA_MAVEN;
-        }
-        
-        if (content.contains("package.json") || 
-            content.contains("node_modules") || 
-            content.contains("npm") || 
-            content.contains("yarn")) {
-            return TechnologyStack.NODEJS;
-        }
-        
-        if (content.contains("python") || 
-            content.contains("pip") || 
-            content.contains(".py")) {
-            return TechnologyStack.PYTHON;
+    public ProjectTypeAnalyzer(List<DetectionRule> rules) {
+        for (var rule : rules) {
+            rule.fileNames().forEach(name -> rulesByName.computeIfAbsent(name, _ -> new ArrayList<>()).add(rule));
+            rule.extensions().forEach(ext -> rulesByExtension.computeIfAbsent(ext, _ -> new ArrayList<>()).add(rule));
         }
-
-        return TechnologyStack.UNKNOWN;
     }
 
-    private TechnologyStack analyzeProjectFiles(String projectPath) {
-        try (Stream<Path> paths = Files.walk(Path.of(projectPath))) {
-            var files = paths
-                .filter(Files::isRegularFile)
-                .map(Path::getFileName)
-                .map(Path::toString)
-                .toList();
-
-            if (hasJavaFiles(files)) {
-                return TechnologyStack.JAVA_MAVEN;
-            }
-
-            if (hasNodeFiles(files)) {
-                return TechnologyStack.NODEJS;
-            }
+    public ProjectType analyzeTechnology(String projectPath) {
+        return detect(Path.of(projectPath)).type();
+    }
 
-            if (hasPythonFiles(files)) {
-                return TechnologyStack.PYTHON;
+    public Detection detect(Path root) {
+        var best = Detection.NONE;
+        var level = List.of(root);
+        var files = 0;
+
+        for (var depth = 0; depth <= maxDepth && !level.isEmpty(); depth++) {
+            var next = new ArrayList<Path>();
+            for (var directory : level) {
+                try (var entries = Files.newDirectoryStream(directory)) {
+                    for (var entry : entries) {
+                        var name = entry.getFileName().toString();
+                        if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                            if (!name.startsWith(".") && !PRUNED_DIRECTORIES.contains(name))
+                                next.add(entry);
+                            continue;
+                        }
+                        if (++files > maxFiles)
+                            return best;
+                        best = evaluate(entry, name, best);
+                    }
+                } catch (IOException e) {
+                    log.debug("Skipping unreadable directory {}: {}", directory, e.getMessage());
+                }
             }
-
-            return TechnologyStack.UNKNOWN;
-        } catch (IOException e) {
-            return TechnologyStack.UNKNOWN;
+            if (best.isDecisive())
+                return best;
+            level = next;
         }
+        return best;
     }
 
-    private boolean hasJavaFiles(List<String> files) {
-        return files.stream().anyMatch(f -> 
-            f.equals("pom.xml") || 
-            f.equals("build.gradle") || 
-            f.endsWith(".java")
-        );
-    }
-
-    private boolean hasNodeFiles(List<String> files) {
-        return files.stream().anyMatch(f -> 
-            f.equals("package.json") || 
-            f.equals("package-lock.json") || 
-            f.equals("yarn.lock") || 
-            f.endsWith(".js") || 
-            f.endsWith(".ts")
-        );
-    }
-
-    private boolean hasPythonFiles(List<String> files) {
-        return files.stream().anyMatch(f -> 
-            f.equals("requirements.txt") || 
-            f.equals("setup.py") || 
-            f.endsWith(".py")
-        );
+    private Detection evaluate(Path file, String name, Detection best) {
+        var rules = rulesByName.get(name);
+        if (rules == null) {
+            var dot = name.lastIndexOf('.');
+            if (dot < 0)
+                return best;
+            rules = rulesByExtension.get(name.substring(dot + 1));
+            if (rules == null)
+                return best;
+        }
+        for (var rule : rules) {
+            try {
+                var detection = rule.evaluate(file);
+                if (detection != null && detection.confidence() > best.confidence())
+                    best = detection;
+            } catch (IOException e) {
+                log.debug("Rule {} could not read {}: {}", rule.getClass().getSimpleName(), file, e.getMessage());
+            }
+        }
+        return best;
     }
 
     public Optional<String> findContainerization(String projectPath) {
@@ -141,4 +115,4 @@ public class ProjectTypeAnalyzer {
                 .findFirst()
                 .map(Path::toString);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,127 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.exception.InvalidRefreshTokenException;
+import fr.umontpellier.bloomcycle.model.RefreshToken;
+import fr.umontpellier.bloomcycle.repository.RefreshTokenRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues and rotates refresh tokens. Only the SHA-256 of a token is stored: checking one is a
+ * lookup by hash, with none of the cost of a password check.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService {
+
+    public record Rotation(Long userId, String refreshToken) {
+    }
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+    @Value("${jwt.refresh-token-ttl:30d}")
+    private Duration refreshTokenTtl;
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::purgeExpired, 1, 60, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Starts a new family of refresh tokens for a user who just proved their password.
+     */
+    public String issue(Long userId) {
+        return issue(userId, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchanges a refresh token for the next one of its family. A token that was already used is
+     * taken as stolen: the whole family is revoked and the client has to log in again.
+     */
+    public Rotation rotate(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank())
+            throw new InvalidRefreshTokenException();
+        var token = refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .orElseThrow(InvalidRefreshTokenException::new);
+        var now = Instant.now();
+        if (token.getRevokedAt() != null) {
+            log.warn("Revoked refresh token reused for user {}, revoking its family", token.getUserId());
+            refreshTokenRepository.revokeFamily(token.getFamilyId(), now);
+            throw new InvalidRefreshTokenException();
+        }
+        // Losing the race against a concurrent use of the same token is not a theft.
+        if (!token.getExpiresAt().isAfter(now) || refreshTokenRepository.revoke(token.getId(), now) == 0)
+            throw new InvalidRefreshTokenException();
+        return new Rotation(token.getUserId(), issue(token.getUserId(), token.getFamilyId()));
+    }
+
+    /**
+     * Revokes the family of a refresh token, as on logout. Unknown tokens are ignored.
+     */
+    public void revoke(String refreshToken) {
+        if (refreshToken == null)
+            return;
+        refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), Instant.now()));
+    }
+
+    private String issue(Long userId, String familyId) {
+        var bytes = new byte[32];
+        random.nextBytes(bytes);
+        var value = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        var now = Instant.now();
+        var token = new RefreshToken();
+        token.setTokenHash(hash(value));
+        token.setUserId(userId);
+        token.setFamilyId(familyId);
+        token.setCreatedAt(now);
+        token.setExpiresAt(now.plus(refreshTokenTtl));
+        refreshTokenRepository.save(token);
+        return value;
+    }
+
+    private void purgeExpired() {
+        try {
+            var deleted = refreshTokenRepository.deleteExpired(Instant.now());
+            if (deleted > 0)
+                log.info("Purged {} expired refresh tokens", deleted);
+        } catch (Exception e) {
+            log.warn("Failed to purge expired refresh tokens: {}", e.getMessage());
+        }
+    }
+
+    private static String hash(String refreshToken) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package fr.umontpellier.bloomcycle.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process stand-in for the Docker daemon, enabled with {@code app.docker.simulator.enabled=true}.
+ * It understands the CLI invocations issued by {@link DockerService}, keeps container and image state
+ * in memory, and adds configurable latencies, failure injection and synthetic logs/metrics so the
+ * project API can be load-tested on any machine.
+ */
+@Service
+@ConditionalOnProperty(name = "app.docker.simulator.enabled", havingValue = "true")
+@Slf4j
+public class SimulatedDockerCommandExecutor implements DockerCommandExecutor {
+
+    private static final class SimulatedContainer {
+        private volatile boolean running = true;
+        private volatile String restartPolicy;
+        private volatile Instant startedAt = Instant.now();
+        private final int hostPort = ThreadLocalRandom.current().nextInt(32768, 61000);
+
+        private SimulatedContainer(String restartPolicy) {
+            this.restartPolicy = restartPolicy;
+        }
+    }
+
+    private final Map<String, SimulatedContainer> containers = new ConcurrentHashMap<>();
+    private final Map<String, Long> images = new ConcurrentHashMap<>();
+
+    @Value("${app.docker.simulator.latency.build:2s}")
+    private Duration buildLatency;
+
+    @Value("${app.docker.simulator.latency.run:300ms}")
+    private Duration runLatency;
+
+    @Value("${app.docker.simulator.latency.stats:50ms}")
+    private Duration statsLatency;
+
+    @Value("${app.docker.simulator.latency.logs:20ms}")
+    private Duration logsLatency;
+
+    @Value("${app.docker.simulator.latency.default:5ms}")
+    private Duration defaultLatency;
+
+    @Value("${app.docker.simulator.failure-rate.build:0.0}")
+    private double buildFailureRate;
+
+    @Value("${app.docker.simulator.failure-rate.run:0.0}")
+    private double runFailureRate;
+
+    @Value("${app.docker.simulator.failure-rate.stats:0.0}")
+    private double statsFailureRate;
+
+    @Value("${app.docker.simulator.failure-rate.logs:0.0}")
+    private double logsFailureRate;
+
+    @Value("${app.docker.simulator.log-lines-per-second:5}")
+    private int logLinesPerSecond;
+
+    @Value("${app.docker.simulator.max-log-lines:2000}")
+    private int maxLogLines;
+
+    @Override
+    public String execute(ProcessBuilder processBuilder) throws InterruptedException {
+        var args = processBuilder.command();
+        if (args.size() < 2 || !"docker".equals(args.getFirst()))
+            throw new IllegalArgumentException("Not a docker command: " + String.join(" ", args));
+
+        log.debug("Simulating: {}", String.join(" ", args));
+
+        return switch (args.get(1)) {
+            case "build" -> build(args);
+            case "image" -> imageInspect(args);
+            case "run" -> run(args);
+            case "stop" -> stop(args.get(2));
+            case "rm" -> remove(args);
+            case "rmi" -> removeImage(args);
+            case "save" -> save(args);
+            case "load" -> load(args);
+            case "restart" -> restart(args.get(2));
+            case "update" -> update(args);
+            case "inspect" -> inspect(args);
+            case "port" -> port(args.get(2));
+            case "ps" -> ps(args);
+            case "stats" -> stats(args.getLast());
+            case "logs" -> logs(args.getLast());
+            case "network" -> {
+                pause(defaultLatency);
+                yield "[]";
+            }
+            default -> throw failure(args, "unsupported command " + args.get(1));
+        };
+    }
+
+    private String build(List<String> args) throws InterruptedException {
+        var image = args.get(args.indexOf("-t") + 1);
+        pause(buildLatency);
+        maybeFail(args, buildFailureRate);
+
+        images.put(image, ThreadLocalRandom.current().nextLong(50_000_000L, 900_000_000L));
+        return "Successfully built " + randomId(6) + "\nSuccessfully tagged " + image + ":latest";
+    }
+
+    private String imageInspect(List<String> args) throws InterruptedException {
+        pause(defaultLatency);
+        var size = images.get(args.getLast());
+        if (size == null)
+            throw failure(args, "No such image: " + args.getLast());
+        return String.valueOf(size);
+    }
+
+    private String run(List<String> args) throws InterruptedException {
+        var name = args.get(args.indexOf("--name") + 1);
+        var restartIndex = args.indexOf("--restart");
+        var image = args.getLast();
+
+        pause(runLatency);
+        maybeFail(args, runFailureRate);
+
+        if (!images.containsKey(image))
+            throw failure(args, "Unable to find image '" + image + ":latest' locally");
+        if (containers.putIfAbsent(name, new SimulatedContainer(restartIndex >= 0 ? args.get(restartIndex + 1) : "no")) != null)
+            throw failure(args, "Conflict. The container name \"/" + name + "\" is already in use");
+
+        return randomId(32);
+    }
+
+    private String stop(String name) throws InterruptedException {
+        pause(defaultLatency);
+        requireContainer(name).running = false;
+        return name;
+    }
+
+    private String remove(List<String> args) throws InterruptedException {
+        pause(defaultLatency);
+        var force = args.contains("-f");
+        var name = args.getLast();
+        var container = requireContainer(name);
+
+        if (container.running && !force)
+            throw failure(args, "You cannot remove a running container " + name);
+        containers.remove(name);
+        return name;
+    }
+
+    private String removeImage(List<String> args) throws InterruptedException {
+        pause(defaultLatency);
+        var image = args.getLast();
+        if (images.remove(image) == null)
+            throw failure(args, "No such image: " + image);
+        return "Untagged: " + image + ":latest";
+    }
+
+    // The tarball only records the tag and size, which is all the simulator keeps of an image.
+    private String save(List<String> args) throws InterruptedException {
+        pause(defaultLatency);
+        var image = args.getLast();
+        var size = images.get(image);
+        if (size == null)
+            throw failure(args, "No such image: " + image);
+        try {
+            Files.writeString(Path.of(args.get(args.indexOf("-o") + 1)), image + "\n" + size);
+        } catch (IOException e) {
+            throw failure(args, e.getMessage());
+        }
+        return "";
+    }
+
+    private String load(List<String> args) throws InterruptedException {
+        pause(defaultLatency);
+        try {
+            var lines = Files.readAllLines(Path.of(args.get(args.indexOf("-i") + 1)));
+            images.put(lines.get(0), Long.parseLong(lines.get(1)));
+            return "Loaded image: " + lines.get(0) + ":latest";
+        } catch (IOException | RuntimeException e) {
+            throw failure(args, "invalid tar header: " + e.getMessage());
+        }
+    }
+
+    private String restart(String name) throws InterruptedException {
+        pause(runLatency);
+        var container = requireContainer(name);
+        container.running = true;
+        container.startedAt = Instant.now();
+        return name;
+    }
+
+    private String update(List<String> args) throws InterruptedException {
+        pause(defaultLatency);
+        requireContainer(args.getLast()).restartPolicy = args.get(args.indexOf("--restart") + 1);
+        return args.getLast();
+    }
+
+    private String inspect(List<String> args) throws InterruptedException {
+        pause(defaultLatency);
+        var container = requireContainer(args.getLast());
+        var format = String.join(" ", args);
+
+        if (format.contains("{{.State.Running}}"))
+            return String.valueOf(container.running);
+        if (format.contains("{{.HostConfig.RestartPolicy.Name}}"))
+            return container.restartPolicy.split(":")[0];
+        return "{}";
+    }
+
+    private String port(String name) throws InterruptedException {
+        pause(defaultLatency);
+        return "0.0.0.0:" + requireContainer(name).hostPort;
+    }
+
+    private String ps(List<String> args) throws InterruptedException {
+        pause(defaultLatency);
+        var filter = args.get(args.indexOf("--filter") + 1);
+        var container = containers.get(filter.substring("name=".length()));
+
+        if (container == null || !container.running)
+            return "";
+        return "Up " + Duration.between(container.startedAt, Instant.now()).toSeconds() + " seconds";
+    }
+
+    private String stats(String name) throws InterruptedException {
+        pause(statsLatency);
+        maybeFail(List.of("docker", "stats", name), statsFailureRate);
+
+        var container = requireContainer(name);
+        if (!container.running)
+            return "0.00%;0.00%";
+
+        var random = ThreadLocalRandom.current();
+        var elapsed = Duration.between(container.startedAt, Instant.now()).toSeconds();
+        var cpu = 20 + 15 * Math.sin(elapsed / 10.0) + random.nextDouble(-5, 5);
+        var memory = Math.min(95, 10 + elapsed / 60.0 + random.nextDouble(0, 2));
+        return String.format(Locale.ROOT, "%.2f%%;%.2f%%", Math.max(0, cpu), memory);
+    }
+
+    private String logs(String name) throws InterruptedException {
+        pause(logsLatency);
+        maybeFail(List.of("docker", "logs", name), logsFailureRate);
+
+        var container = requireContainer(name);
+        var elapsedSeconds = Duration.between(container.startedAt, Instant.now()).toSeconds();
+        var lineCount = (int) Math.min(maxLogLines, Math.max(1, elapsedSeconds * logLinesPerSecond));
+        var firstLine = container.startedAt;
+
+        var output = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            var timestamp = firstLine.plusMillis(i * 1000L / Math.max(1, logLinesPerSecond));
+            output.append(DateTimeFormatter.ISO_INSTANT.format(timestamp))
+                    .append(" INFO  [simulated] GET /api/items/").append(i % 97)
+                    .append(" 200 ").append(ThreadLocalRandom.current().nextInt(1, 40)).append("ms\n");
+        }
+        return output.toString().trim();
+    }
+
+    private SimulatedContainer requireContainer(String name) {
+        var container = containers.get(name);
+        if (container == null)
+            throw new RuntimeException("Command failed with exit code 1. Error: No such container: " + name);
+        return container;
+    }
+
+    private void maybeFail(List<String> args, double failureRate) {
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate)
+            throw failure(args, "simulated failure");
+    }
+
+    private static RuntimeException failure(List<String> args, String message) {
+        return new RuntimeException("Command failed with exit code 1. Command: " + String.join(" ", args) + ". Error: " + message);
+    }
+
+    private static void pause(Duration latency) throws InterruptedException {
+        if (latency.isZero())
+            return;
+        // +/-20% jitter keeps concurrent requests from completing in lockstep.
+        var jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        Thread.sleep((long) (latency.toMillis() * jitter));
+    }
+
+    private static String randomId(int bytes) {
+        var id = new byte[bytes];
+        ThreadLocalRandom.current().nextBytes(id);
+        return HexFormat.of().formatHex(id);
+    }
+}
@@ -0,0 +1,269 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.StorageVolumeStats;
+import fr.umontpellier.bloomcycle.model.File;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.repository.ProjectRepository;
+import fr.umontpellier.bloomcycle.service.StorageVolumeService.Volume;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Moves idle projects between storage volumes so that each one holds project bytes in proportion
+ * to its weight, and empties volumes with a zero weight or short of free space. The container keeps
+ * running from its image during a move; operations that write the directory wait for it to end,
+ * and a project that is in use is simply left for a later run.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageRebalancer {
+
+    private final StorageVolumeService storageVolumeService;
+    private final ProjectRepository projectRepository;
+    private final FileService fileService;
+    private final FileManifestService fileManifestService;
+    private final BlobStore blobStore;
+    private final Tracer tracer;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final AtomicLong moves = new AtomicLong();
+    private final AtomicLong movedBytes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicReference<String> lastError = new AtomicReference<>();
+    private final AtomicReference<Instant> lastMovedAt = new AtomicReference<>();
+
+    @Value("${app.storage.rebalance.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.rebalance.interval:15m}")
+    private Duration interval;
+
+    // Only projects without a start, pull or sync for this long are moved.
+    @Value("${app.storage.rebalance.idle-for:10m}")
+    private Duration idleFor;
+
+    // Volumes whose bytes per unit of weight differ by less than this fraction are left alone.
+    @Value("${app.storage.rebalance.tolerance:0.2}")
+    private double tolerance;
+
+    @Value("${app.storage.rebalance.max-moves:4}")
+    private int maxMoves;
+
+    @PostConstruct
+    public void start() {
+        if (enabled && storageVolumeService.getVolumes().size() > 1)
+            scheduler.scheduleWithFixedDelay(this::rebalance, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public void rebalance() {
+        try {
+            for (var move = 0; move < maxMoves; move++) {
+                if (!moveOne())
+                    return;
+            }
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            lastError.set(e.getMessage());
+            log.warn("Storage rebalancing failed: {}", e.getMessage());
+        }
+    }
+
+    public StorageVolumeStats getStats() {
+        var usage = getUsage();
+        return StorageVolumeStats.builder()
+                .volumes(storageVolumeService.getVolumes().stream()
+                        .map(volume -> StorageVolumeStats.VolumeStats.builder()
+                                .root(volume.root().toString())
+                                .weight(volume.weight())
+                                .totalBytes(volume.getTotalBytes())
+                                .usableBytes(volume.getUsableBytes())
+                                .projects(usage.getOrDefault(key(volume.id()), new long[2])[0])
+                                .projectBytes(usage.getOrDefault(key(volume.id()), new long[2])[1])
+                                .activeIo(volume.activeIo().get())
+                                .build())
+                        .toList())
+                .moves(moves.get())
+                .movedBytes(movedBytes.get())
+                .failures(failures.get())
+                .lastError(lastError.get())
+                .lastMovedAt(lastMovedAt.get())
+                .build();
+    }
+
+    /**
+     * Moves one project from the most loaded volume to the least loaded one, choosing the largest
+     * project that does not overshoot the balance. Returns false when there is nothing to move.
+     */
+    private boolean moveOne() throws IOException {
+        var usage = getUsage();
+        Volume source = null;
+        Volume target = null;
+        var sourcePressure = -1.0;
+        var targetPressure = Double.POSITIVE_INFINITY;
+        for (var volume : storageVolumeService.getVolumes()) {
+            var bytes = usage.getOrDefault(key(volume.id()), new long[2])[1];
+            var projects = usage.getOrDefault(key(volume.id()), new long[2])[0];
+            var pressure = getPressure(volume, bytes, projects);
+            if (projects > 0 && pressure > sourcePressure) {
+                source = volume;
+                sourcePressure = pressure;
+            }
+            if (isTarget(volume) && pressure < targetPressure) {
+                target = volume;
+                targetPressure = pressure;
+            }
+        }
+        if (source == null || target == null || source == target)
+            return false;
+        var draining = Double.isInfinite(sourcePressure);
+        if (!draining && sourcePressure - targetPressure <= tolerance * sourcePressure)
+            return false;
+
+        var sourceBytes = usage.get(key(source.id()))[1];
+        var targetBytes = usage.getOrDefault(key(target.id()), new long[2])[1];
+        // Bytes that would leave both volumes with the same bytes per unit of weight.
+        var budget = draining ? Long.MAX_VALUE
+                : (sourceBytes * target.weight() - targetBytes * source.weight()) / (source.weight() + target.weight());
+        for (var project : projectRepository.findMigrationCandidates(key(source.id()), Instant.now().minus(idleFor))) {
+            var size = project.getDiskBytes() == null ? 0 : project.getDiskBytes();
+            if ((size > 0 || draining) && size <= budget && storageVolumeService.hasFreeSpace(target, size))
+                return move(project, source, target);
+        }
+        return false;
+    }
+
+    private boolean move(Project candidate, Volume source, Volume target) throws IOException {
+        var projectId = candidate.getId();
+        var lease = storageVolumeService.tryLockForMove(projectId);
+        if (lease == null)
+            return false;
+
+        try (lease;
+             var _ = storageVolumeService.trackIo(source);
+             var _ = storageVolumeService.trackIo(target);
+             var span = tracer.startSpan("project.move")) {
+            span.setAttribute("project.id", projectId);
+            span.setAttribute("move.source", source.root().toString());
+            span.setAttribute("move.target", target.root().toString());
+
+            // Checked again under the lock: the project may have been archived or deleted since.
+            var project = projectRepository.findById(projectId).orElse(null);
+            if (project == null || project.getArchivedAt() != null || !Objects.equals(project.getStorageVolume(), source.id()))
+                return false;
+
+            var sourceDirectory = Path.of(fileService.getProjectStoragePath(project));
+            var projectsRoot = target.root().resolve("projects");
+            var targetDirectory = projectsRoot.resolve(projectId);
+            var temporary = projectsRoot.resolve("." + projectId + ".moving");
+            long bytes;
+            try {
+                fileService.deleteProjectDirectory(temporary.toString());
+                bytes = copyTree(projectId, sourceDirectory, temporary);
+                // Left behind by a move that was interrupted before the project was switched over.
+                fileService.deleteProjectDirectory(targetDirectory.toString());
+                Files.move(temporary, targetDirectory, StandardCopyOption.ATOMIC_MOVE);
+                if (projectRepository.updateStorageVolume(projectId, key(source.id()), target.id()) == 0) {
+                    fileService.deleteProjectDirectory(targetDirectory.toString());
+                    return false;
+                }
+            } catch (IOException | RuntimeException e) {
+                span.recordException(e);
+                failures.incrementAndGet();
+                lastError.set(projectId + ": " + e.getMessage());
+                fileService.deleteProjectDirectory(temporary.toString());
+                throw e;
+            }
+            fileService.deleteProjectDirectory(sourceDirectory.toString());
+
+            span.setAttribute("move.bytes", bytes);
+            moves.incrementAndGet();
+            movedBytes.addAndGet(bytes);
+            lastMovedAt.set(Instant.now());
+            log.info("Moved project {} from {} to {} ({} bytes)", projectId, source.root(), target.root(), bytes);
+            return true;
+        }
+    }
+
+    /**
+     * Copies a project tree and returns the number of bytes copied. Files from the blob store are
+     * linked again rather than copied, so they stay shared on the blob store's own filesystem.
+     */
+    private long copyTree(String projectId, Path source, Path target) throws IOException {
+        var hashes = fileManifestService.getManifest(projectId).stream()
+                .filter(file -> file.getHash() != null)
+                .collect(Collectors.toMap(File::getFilePath, File::getHash, (first, _) -> first));
+        var bytes = new long[1];
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(directory).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                var name = source.relativize(file).toString().replace('\\', '/');
+                var destination = target.resolve(name);
+                var hash = hashes.get(name);
+                if (attributes.isSymbolicLink())
+                    Files.createSymbolicLink(destination, Files.readSymbolicLink(file));
+                else if (hash != null && blobStore.contains(hash))
+                    blobStore.link(hash, destination);
+                else
+                    Files.copy(file, destination, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                bytes[0] += attributes.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return bytes[0];
+    }
+
+    // Project count and bytes per volume id, as keyed by key().
+    private Map<String, long[]> getUsage() {
+        var usage = new HashMap<String, long[]>();
+        for (var row : projectRepository.sumUsageByStorageVolume())
+            usage.put(key(row.getVolume()), new long[]{row.getProjects(), row.getBytes()});
+        return usage;
+    }
+
+    private boolean isTarget(Volume volume) {
+        return volume.weight() > 0 && storageVolumeService.hasFreeSpace(volume, 0);
+    }
+
+    // Bytes per unit of weight; a volume that must be emptied is infinitely loaded as long as it holds a project.
+    private double getPressure(Volume volume, long bytes, long projects) {
+        if (isTarget(volume))
+            return (double) bytes / volume.weight();
+        return projects > 0 ? Double.POSITIVE_INFINITY : 0;
+    }
+
+    // The repository queries compare with coalesce(storageVolume, ''), '' being app.storage.path.
+    private static String key(String volumeId) {
+        return volumeId == null ? "" : volumeId;
+    }
+}
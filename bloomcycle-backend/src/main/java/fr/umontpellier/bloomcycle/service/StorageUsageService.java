@@ -0,0 +1,171 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.UsageResponse;
+import fr.umontpellier.bloomcycle.exception.QuotaExceededException;
+import fr.umontpellier.bloomcycle.exception.ResourceNotFoundException;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.User;
+import fr.umontpellier.bloomcycle.repository.ProjectRepository;
+import fr.umontpellier.bloomcycle.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Disk usage per project and per user, maintained as counters: every operation that writes or
+ * removes sources reports its own delta, builds report the image size, and nothing here ever walks
+ * the storage directory except once, to measure projects created before accounting existed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageUsageService {
+
+    private final ProjectRepository projectRepository;
+    private final UserRepository userRepository;
+    private final FileService fileService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor();
+
+    @Value("${app.quota.storage-per-user:2GB}")
+    private DataSize storagePerUser;
+
+    @PostConstruct
+    public void start() {
+        backfillExecutor.execute(this::backfill);
+    }
+
+    @PreDestroy
+    public void stop() {
+        backfillExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the storage quota of a user in bytes, or a negative value when it is unlimited.
+     */
+    public long getQuota(User user) {
+        if (user.getStorageQuotaBytes() != null)
+            return user.getStorageQuotaBytes();
+        return storagePerUser.toBytes() > 0 ? storagePerUser.toBytes() : -1;
+    }
+
+    /**
+     * Early check before accepting sources of (at least) {@code incomingBytes}; the quota is
+     * enforced again, atomically, once the real size is known.
+     */
+    public void checkQuota(Long userId, long incomingBytes) {
+        var user = userRepository.findById(userId).orElse(null);
+        if (user == null)
+            return;
+        var quota = getQuota(user);
+        if (quota < 0)
+            return;
+        var used = user.getStorageBytes();
+        if (used != null && used + incomingBytes > quota)
+            throw quotaExceeded(used, incomingBytes, quota);
+    }
+
+    /**
+     * Records sources written to or removed from a project. When {@code enforceQuota} is set, a
+     * growth that would take the owner past the quota is refused and nothing is recorded.
+     */
+    public void recordSources(Project project, long bytes, long files, boolean enforceQuota) {
+        var owner = project.getOwner();
+        var quota = getQuota(owner);
+        transactionTemplate.executeWithoutResult(_ -> {
+            if (enforceQuota && bytes > 0 && quota >= 0) {
+                if (userRepository.addStorageWithinQuota(owner.getId(), bytes, quota) == 0) {
+                    var used = userRepository.findById(owner.getId()).map(User::getStorageBytes).orElse(0L);
+                    throw quotaExceeded(used, bytes, quota);
+                }
+            } else {
+                userRepository.adjustUsage(owner.getId(), bytes, 0);
+            }
+            projectRepository.adjustSourceUsage(project.getId(), bytes, files);
+        });
+    }
+
+    public void recordImage(Project project, long imageBytes) {
+        transactionTemplate.executeWithoutResult(_ -> {
+            if (userRepository.replaceImageUsage(project.getOwner().getId(), project.getId(), imageBytes) > 0)
+                projectRepository.updateImageBytes(project.getId(), imageBytes);
+        });
+    }
+
+    /**
+     * Takes everything a project accounts for off its owner, before the project is deleted.
+     */
+    public void releaseProject(Project project) {
+        release(project, false);
+    }
+
+    /**
+     * Zeroes the sources of a project whose files were discarded but whose row is kept.
+     */
+    public void releaseSources(Project project) {
+        release(project, true);
+    }
+
+    private void release(Project project, boolean keepRow) {
+        transactionTemplate.executeWithoutResult(_ -> projectRepository.findById(project.getId()).ifPresent(current -> {
+            var diskBytes = current.getDiskBytes() == null ? 0 : current.getDiskBytes();
+            var fileCount = current.getFileCount() == null ? 0 : current.getFileCount();
+            var imageBytes = current.getImageBytes() == null || keepRow ? 0 : current.getImageBytes();
+            userRepository.adjustUsage(current.getOwner().getId(), -diskBytes, -imageBytes);
+            if (keepRow)
+                projectRepository.adjustSourceUsage(current.getId(), -diskBytes, -fileCount);
+        }));
+    }
+
+    public UsageResponse getUsage(Long userId) {
+        var current = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+        var storageBytes = current.getStorageBytes() == null ? 0 : current.getStorageBytes();
+        var quota = getQuota(current);
+        return UsageResponse.builder()
+                .storageBytes(storageBytes)
+                .imageBytes(current.getImageBytes() == null ? 0 : current.getImageBytes())
+                .quotaBytes(quota < 0 ? null : quota)
+                .remainingBytes(quota < 0 ? null : Math.max(0, quota - storageBytes))
+                .projects(projectRepository.findByOwner(current).stream().map(UsageResponse.ProjectUsage::fromProject).toList())
+                .build();
+    }
+
+    /**
+     * Measures, once, the projects that predate usage accounting, then rebuilds the user totals.
+     */
+    private void backfill() {
+        var legacy = projectRepository.findByDiskBytesIsNull();
+        if (legacy.isEmpty() && !userRepository.existsByStorageBytesIsNull())
+            return;
+
+        log.info("Measuring disk usage of {} projects created before usage accounting", legacy.size());
+        for (var project : legacy) {
+            try {
+                var path = Path.of(fileService.getProjectStoragePath(project));
+                var usage = Files.isDirectory(path) ? fileService.measureDirectory(path) : new FileService.DirectoryUsage(0, 0);
+                transactionTemplate.executeWithoutResult(_ ->
+                        projectRepository.initializeSourceUsage(project.getId(), usage.totalBytes(), usage.fileCount()));
+            } catch (IOException e) {
+                log.warn("Failed to measure project {}", project.getId(), e);
+            }
+        }
+        transactionTemplate.executeWithoutResult(_ -> userRepository.recomputeUsage());
+    }
+
+    private static QuotaExceededException quotaExceeded(long used, long incoming, long quota) {
+        return new QuotaExceededException("Storage quota exceeded: " + used + " of " + quota
+                + " bytes used, " + incoming + " more requested");
+    }
+}
@@ -0,0 +1,20 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.StorageVolumeStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "storagevolumes")
+@RequiredArgsConstructor
+public class StorageVolumeEndpoint {
+
+    private final StorageRebalancer storageRebalancer;
+
+    @ReadOperation
+    public StorageVolumeStats stats() {
+        return storageRebalancer.getStats();
+    }
+}
@@ -0,0 +1,193 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.repository.ProjectRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The roots project directories are spread over: {@code app.storage.path}, plus the volumes listed
+ * in {@code app.storage.volumes} as {@code path[:weight]}. A new project goes to the volume with the
+ * best mix of weight, free space and I/O in progress, and stays there until {@link StorageRebalancer}
+ * moves it. Each volume has its own {@code blobs/} directory, so that project files are always
+ * materialized from the same filesystem; Git mirrors, uploads and caches remain under
+ * {@code app.storage.path}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageVolumeService {
+
+    public interface Lease extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * A project root. The id is what {@link Project#getStorageVolume()} holds: the normalized path,
+     * or null for {@code app.storage.path}.
+     */
+    public record Volume(String id, Path root, int weight, AtomicInteger activeIo) {
+
+        public long getUsableBytes() {
+            return root.toFile().getUsableSpace();
+        }
+
+        public long getTotalBytes() {
+            return root.toFile().getTotalSpace();
+        }
+    }
+
+    private final ProjectRepository projectRepository;
+    private final Map<String, ReadWriteLock> projectLocks = new ConcurrentHashMap<>();
+    private List<Volume> volumes;
+
+    @Value("${app.storage.path}")
+    private String storagePath;
+
+    @Value("${app.storage.volumes:}")
+    private List<String> volumeSpecs;
+
+    @Value("${app.storage.min-free-space:1GB}")
+    private DataSize minFreeSpace;
+
+    @PostConstruct
+    public void loadVolumes() throws IOException {
+        var primary = Path.of(storagePath).toAbsolutePath().normalize();
+        // Once volumes are configured, app.storage.path only takes projects if it is listed too.
+        var primaryWeight = volumeSpecs.stream().allMatch(String::isBlank) ? 1 : 0;
+        var configured = new ArrayList<Volume>();
+        for (var spec : volumeSpecs) {
+            if (spec.isBlank())
+                continue;
+            var path = spec.strip();
+            var weight = 1;
+            var separator = path.lastIndexOf(':');
+            if (separator > 0 && path.substring(separator + 1).matches("\\d+")) {
+                weight = Integer.parseInt(path.substring(separator + 1));
+                path = path.substring(0, separator);
+            }
+            var root = Path.of(path).toAbsolutePath().normalize();
+            if (root.equals(primary))
+                primaryWeight = weight;
+            else if (configured.stream().noneMatch(volume -> volume.root().equals(root)))
+                configured.add(new Volume(root.toString(), root, weight, new AtomicInteger()));
+        }
+        configured.addFirst(new Volume(null, primary, primaryWeight, new AtomicInteger()));
+
+        for (var volume : configured)
+            Files.createDirectories(volume.root().resolve("projects"));
+        volumes = List.copyOf(configured);
+        if (volumes.size() > 1)
+            log.info("Project storage spread over {}", volumes.stream().map(volume -> volume.root() + " (weight " + volume.weight() + ")").toList());
+    }
+
+    public List<Volume> getVolumes() {
+        return volumes;
+    }
+
+    public Volume getVolume(String id) {
+        return volumes.stream()
+                .filter(volume -> Objects.equals(volume.id(), id))
+                .findFirst()
+                // Dropped from the configuration: its projects are still read from where they are.
+                .orElseGet(() -> new Volume(id, Path.of(id), 0, new AtomicInteger()));
+    }
+
+    /**
+     * Returns the root of the volume holding {@code path}, or {@code app.storage.path} when none does.
+     */
+    public Path getVolumeRoot(Path path) {
+        var normalized = path.toAbsolutePath().normalize();
+        return volumes.stream()
+                .map(Volume::root)
+                .filter(normalized::startsWith)
+                .max(Comparator.comparingInt(Path::getNameCount))
+                .orElse(volumes.getFirst().root());
+    }
+
+    public Path getRoot(Project project) {
+        return getVolume(project.getStorageVolume()).root();
+    }
+
+    /**
+     * Picks the volume of a new project and returns its id: the highest weight times free space,
+     * divided by one plus the operations in progress on it. Volumes left with less than
+     * {@code app.storage.min-free-space} only get projects when all of them are in that state.
+     */
+    public String place() {
+        Volume best = null;
+        var bestScore = -1.0;
+        for (var volume : volumes) {
+            if (volume.weight() == 0)
+                continue;
+            var usable = volume.getUsableBytes();
+            var score = usable < minFreeSpace.toBytes() ? 0 : (double) volume.weight() * usable / (1 + volume.activeIo().get());
+            if (score > bestScore) {
+                best = volume;
+                bestScore = score;
+            }
+        }
+        return best == null ? null : best.id();
+    }
+
+    public boolean hasFreeSpace(Volume volume, long neededBytes) {
+        return volume.getUsableBytes() - neededBytes >= minFreeSpace.toBytes();
+    }
+
+    /**
+     * Declares I/O on a project's directory. The directory cannot be moved to another volume until
+     * the lease is closed, and its volume counts one more operation for placement. The volume is
+     * read again once the lease is held, so the entity points at the current directory.
+     */
+    public Lease useVolume(Project project) {
+        var lock = lockFor(project.getId()).readLock();
+        lock.lock();
+        try {
+            project.setStorageVolume(projectRepository.findStorageVolumeById(project.getId()));
+        } catch (RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+        var activeIo = getVolume(project.getStorageVolume()).activeIo();
+        activeIo.incrementAndGet();
+        return () -> {
+            activeIo.decrementAndGet();
+            lock.unlock();
+        };
+    }
+
+    /**
+     * Takes a project for a move between volumes, or returns null when an operation holds it.
+     */
+    Lease tryLockForMove(String projectId) {
+        var lock = lockFor(projectId).writeLock();
+        return lock.tryLock() ? lock::unlock : null;
+    }
+
+    Lease trackIo(Volume volume) {
+        volume.activeIo().incrementAndGet();
+        return volume.activeIo()::decrementAndGet;
+    }
+
+    private ReadWriteLock lockFor(String projectId) {
+        return projectLocks.computeIfAbsent(projectId, _ -> new ReentrantReadWriteLock());
+    }
+}
@@ -0,0 +1,20 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.TrashStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "trash")
+@RequiredArgsConstructor
+public class TrashEndpoint {
+
+    private final ProjectReaper projectReaper;
+
+    @ReadOperation
+    public TrashStats stats() {
+        return projectReaper.getStats();
+    }
+}
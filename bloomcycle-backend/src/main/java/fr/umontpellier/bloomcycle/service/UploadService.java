@@ -0,0 +1,251 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.InitiateUploadRequest;
+import fr.umontpellier.bloomcycle.exception.InvalidUploadException;
+import fr.umontpellier.bloomcycle.exception.ResourceNotFoundException;
+import fr.umontpellier.bloomcycle.exception.UnauthorizedAccessException;
+import fr.umontpellier.bloomcycle.exception.UploadConflictException;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.upload.UploadSession;
+import fr.umontpellier.bloomcycle.security.AuthenticatedUser;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resumable source uploads. Chunks are appended in order to a spool file under the storage path;
+ * a client that lost its connection asks for the session and continues from {@code receivedBytes}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ProjectCreationPipeline projectCreationPipeline;
+    private final StorageUsageService storageUsageService;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+    @Value("${app.storage.path}")
+    private String storagePath;
+
+    @Getter
+    @Value("${app.upload.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    @Value("${app.upload.max-chunk-size:16MB}")
+    private DataSize maxChunkSize;
+
+    @PostConstruct
+    public void startCleanup() throws IOException {
+        // Sessions only live in memory, so spool files left by a previous run can never be completed.
+        var uploadsDirectory = getUploadsDirectory();
+        if (Files.exists(uploadsDirectory)) {
+            try (var leftovers = Files.list(uploadsDirectory)) {
+                for (var leftover : leftovers.toList())
+                    Files.deleteIfExists(leftover);
+            }
+        }
+        scheduler.scheduleAtFixedRate(this::expireSessions, 10, 10, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public UploadSession initiate(InitiateUploadRequest request) throws IOException {
+        if (request.getTotalSize() <= 0)
+            throw new InvalidUploadException("totalSize must be positive");
+        if (request.getTotalSize() > FileService.MAX_ZIP_SIZE)
+            throw new InvalidUploadException("Upload too large: " + request.getTotalSize() + " bytes (max: " + FileService.MAX_ZIP_SIZE + " bytes)");
+        storageUsageService.checkQuota(getCurrentUser().id(), request.getTotalSize());
+
+        var id = UUID.randomUUID().toString();
+        var spoolFile = getUploadsDirectory().resolve(id + ".part");
+        Files.createDirectories(spoolFile.getParent());
+        Files.createFile(spoolFile);
+
+        var session = UploadSession.builder()
+                .id(id)
+                .ownerId(getCurrentUser().id())
+                .fileName(request.getFileName())
+                .totalSize(request.getTotalSize())
+                .expectedSha256(request.getSha256())
+                .spoolFile(spoolFile)
+                .digest(newDigest())
+                .lastActivity(Instant.now())
+                .build();
+        sessions.put(id, session);
+        log.info("Upload session {} opened for {} bytes", id, request.getTotalSize());
+        return session;
+    }
+
+    public UploadSession getSession(String id) {
+        var session = sessions.get(id);
+        if (session == null)
+            throw new ResourceNotFoundException("Upload session not found with id: " + id);
+        if (!session.getOwnerId().equals(getCurrentUser().id()))
+            throw new UnauthorizedAccessException("You don't have permission to access this upload");
+        return session;
+    }
+
+    /**
+     * Appends one chunk at {@code offset}, which must be the number of bytes already received.
+     * The body is streamed to disk through a fixed buffer; a chunk that fails its checksum or is
+     * interrupted is truncated away so the client can resend it.
+     */
+    public UploadSession writeChunk(String id, long offset, String checksum, InputStream body) throws IOException {
+        var session = getSession(id);
+
+        synchronized (session) {
+            if (session.isClosed())
+                throw new UploadConflictException("Upload session " + id + " is already closed");
+            if (offset != session.getReceivedBytes())
+                throw new UploadConflictException("Expected offset " + session.getReceivedBytes() + " but got " + offset);
+
+            var fileDigest = cloneDigest(session.getDigest());
+            var chunkDigest = newDigest();
+            var written = 0L;
+            var accepted = false;
+
+            try (var channel = FileChannel.open(session.getSpoolFile(), StandardOpenOption.WRITE)) {
+                channel.position(offset);
+                try {
+                    var buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = body.read(buffer)) != -1) {
+                        written += read;
+                        if (written > maxChunkSize.toBytes())
+                            throw new InvalidUploadException("Chunk larger than " + maxChunkSize.toBytes() + " bytes");
+                        if (offset + written > session.getTotalSize())
+                            throw new InvalidUploadException("Chunk goes past the declared size of " + session.getTotalSize() + " bytes");
+
+                        var byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                        while (byteBuffer.hasRemaining())
+                            channel.write(byteBuffer);
+                        fileDigest.update(buffer, 0, read);
+                        chunkDigest.update(buffer, 0, read);
+                    }
+
+                    if (checksum != null && !checksum.equalsIgnoreCase(HexFormat.of().formatHex(chunkDigest.digest())))
+                        throw new InvalidUploadException("Checksum mismatch for chunk at offset " + offset);
+                    accepted = true;
+                } finally {
+                    if (!accepted)
+                        channel.truncate(offset);
+                }
+            }
+
+            session.setDigest(fileDigest);
+            session.setReceivedBytes(offset + written);
+            session.setLastActivity(Instant.now());
+            return session;
+        }
+    }
+
+    /**
+     * Queues the creation of a project from a fully received upload. The spool file is handed to
+     * the pipeline as is, and the whole-file hash was already computed while the chunks arrived,
+     * so nothing is copied or read twice.
+     */
+    public Project complete(String id, String projectName) throws IOException {
+        var session = getSession(id);
+
+        synchronized (session) {
+            if (session.isClosed())
+                throw new UploadConflictException("Upload session " + id + " is already closed");
+            if (session.getReceivedBytes() != session.getTotalSize())
+                throw new UploadConflictException("Upload incomplete: " + session.getReceivedBytes() + " of " + session.getTotalSize() + " bytes received");
+
+            var sha256 = HexFormat.of().formatHex(cloneDigest(session.getDigest()).digest());
+            if (session.getExpectedSha256() != null && !session.getExpectedSha256().equalsIgnoreCase(sha256))
+                throw new InvalidUploadException("Checksum mismatch for upload " + id);
+            session.setClosed(true);
+        }
+
+        sessions.remove(id);
+        return projectCreationPipeline.submitArchive(projectName, session.getSpoolFile());
+    }
+
+    public void abort(String id) throws IOException {
+        var session = getSession(id);
+        synchronized (session) {
+            session.setClosed(true);
+        }
+        discard(session);
+    }
+
+    private void expireSessions() {
+        var cutoff = Instant.now().minus(sessionTtl);
+        sessions.values().stream()
+                .filter(session -> session.getLastActivity().isBefore(cutoff))
+                .forEach(session -> {
+                    synchronized (session) {
+                        session.setClosed(true);
+                    }
+                    try {
+                        log.info("Expiring upload session {}", session.getId());
+                        discard(session);
+                    } catch (IOException e) {
+                        log.warn("Failed to delete spool file for upload {}", session.getId(), e);
+                    }
+                });
+    }
+
+    private void discard(UploadSession session) throws IOException {
+        sessions.remove(session.getId());
+        Files.deleteIfExists(session.getSpoolFile());
+    }
+
+    private Path getUploadsDirectory() {
+        return Path.of(storagePath, "uploads");
+    }
+
+    private static AuthenticatedUser getCurrentUser() {
+        return (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -2,18 +2,29 @@ package fr.umontpellier.bloomcycle.service;
 
 import fr.umontpellier.bloomcycle.model.User;
 import fr.umontpellier.bloomcycle.repository.UserRepository;
+import fr.umontpellier.bloomcycle.security.AuthenticatedUser;
+import fr.umontpellier.bloomcycle.security.PrincipalCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import fr.umontpellier.bloomcycle.exception.ResourceNotFoundException;
 
+import java.util.List;
+
 @Service
 public class UserService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+
+    // Accounts allowed to read the actuator endpoints other than health.
+    @Value("${app.admin.emails:}")
+    private List<String> adminEmails;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, PrincipalCache principalCache) {
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -22,6 +33,21 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
     }
 
+    /**
+     * Returns the principal of an authenticated request, from {@link PrincipalCache} when possible.
+     */
+    public AuthenticatedUser loadPrincipal(String email) throws UsernameNotFoundException {
+        var principal = principalCache.get(email);
+        if (principal != null)
+            return principal;
+        principal = userRepository.findPrincipalByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        if (adminEmails.contains(principal.email()))
+            principal = new AuthenticatedUser(principal.id(), principal.email(), List.of("ROLE_USER", "ROLE_ADMIN"));
+        principalCache.put(principal);
+        return principal;
+    }
+
     public User getUserByEmail(String email) {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
@@ -34,24 +60,31 @@ public class UserService implements UserDetailsService {
 
     public User updateUser(Long userId, User updatedUser) {
         User user = getUserById(userId);
+        var previousEmail = user.getEmail();
 
         user.setUsername(updatedUser.getUsername());
         user.setEmail(updatedUser.getEmail());
         user.setFullName(updatedUser.getFullName());
 
-        return userRepository.save(user);
+        var saved = userRepository.save(user);
+        principalCache.invalidate(previousEmail);
+        principalCache.invalidate(saved.getEmail());
+        return saved;
     }
 
     public void deleteUser(Long userId) {
         User user = getUserById(userId);
         userRepository.delete(user);
+        principalCache.invalidate(user.getEmail());
     }
 
     public User save(User user) {
-        return userRepository.save(user);
+        var saved = userRepository.save(user);
+        principalCache.invalidate(saved.getEmail());
+        return saved;
     }
 
     public boolean existsByEmail(String email) {
         return userRepository.findByEmail(email).isPresent();
     }
-}
\ No newline at end of file
+}
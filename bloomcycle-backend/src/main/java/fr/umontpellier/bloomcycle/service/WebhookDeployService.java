@@ -0,0 +1,277 @@
+package fr.umontpellier.bloomcycle.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.umontpellier.bloomcycle.dto.WebhookDeliveryResponse;
+import fr.umontpellier.bloomcycle.exception.InvalidSignatureException;
+import fr.umontpellier.bloomcycle.exception.InvalidUploadException;
+import fr.umontpellier.bloomcycle.exception.ResourceNotFoundException;
+import fr.umontpellier.bloomcycle.exception.TooManyRequestsException;
+import fr.umontpellier.bloomcycle.exception.UploadConflictException;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import fr.umontpellier.bloomcycle.model.container.ContainerInfo;
+import fr.umontpellier.bloomcycle.model.container.ContainerOperation;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Continuous deployment from Git push webhooks. Pushes are debounced per project, so a burst of
+ * pushes ends in a single pull and build of the last commit; a push arriving while a build runs
+ * cancels it, and a project never has more than one deploy in flight. A push that meets a pull
+ * started by hand is tried again after it. Builds run on the Docker work queue and are put off
+ * while it is overloaded.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookDeployService {
+
+    private static final String SIGNATURE_PREFIX = "sha256=";
+
+    /**
+     * Per-project state, guarded by its own monitor.
+     */
+    private static class Deployment {
+        private ScheduledFuture<?> pending;
+        private Future<?> running;
+        private Future<ContainerInfo> build;
+        private boolean building;
+        private boolean rerun;
+        // Set once the deployment went idle and left the map; a push that still holds it starts over.
+        private boolean retired;
+        private int coalescedPushes;
+        // Files pulled but not yet part of a successful build, kept across superseded runs.
+        private final Set<String> unbuiltChanges = new LinkedHashSet<>();
+    }
+
+    private final ProjectService projectService;
+    private final ProjectPullService projectPullService;
+    private final DockerService dockerService;
+    private final ContainerOperationLimiter containerOperationLimiter;
+    private final ObjectMapper objectMapper;
+    private final Tracer tracer;
+    private final Map<String, Deployment> deployments = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final SecureRandom random = new SecureRandom();
+    private ExecutorService deployExecutor;
+
+    @Value("${app.webhook.debounce:10s}")
+    private Duration debounce;
+
+    @Value("${app.webhook.concurrency:2}")
+    private int concurrency;
+
+    @PostConstruct
+    public void start() {
+        deployExecutor = Executors.newFixedThreadPool(concurrency, Thread.ofPlatform().name("webhook-deploy-", 0).factory());
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        deployExecutor.shutdownNow();
+    }
+
+    /**
+     * Generates a new signing secret for a project, invalidating the previous one.
+     */
+    public String rotateSecret(String projectId) {
+        var project = projectService.getOwnedProject(projectId);
+        if (project.getGitUrl() == null)
+            throw new InvalidUploadException("Project " + projectId + " was not created from a Git repository");
+
+        var bytes = new byte[32];
+        random.nextBytes(bytes);
+        var secret = HexFormat.of().formatHex(bytes);
+        projectService.updateWebhookSecret(projectId, secret);
+        return secret;
+    }
+
+    /**
+     * Verifies a push delivery and schedules the deploy. The signature is checked before the
+     * payload is even parsed; an unknown project is reported like a bad signature.
+     */
+    public WebhookDeliveryResponse receive(String projectId, String signature, String event, byte[] payload) {
+        Project project;
+        try {
+            project = projectService.getProjectById(projectId);
+        } catch (ResourceNotFoundException e) {
+            throw new InvalidSignatureException("Invalid webhook signature");
+        }
+        verifySignature(project, signature, payload);
+
+        var response = WebhookDeliveryResponse.builder().projectId(projectId);
+        if ("ping".equals(event))
+            return response.reason("ping").build();
+
+        String ref;
+        String commit;
+        try {
+            var push = objectMapper.readTree(payload);
+            ref = push.path("ref").asText(null);
+            commit = push.path("after").asText(null);
+            if (push.path("deleted").asBoolean(false))
+                return response.reason("branch deleted").build();
+        } catch (IOException e) {
+            throw new InvalidUploadException("Invalid webhook payload");
+        }
+        if (project.getGitRef() != null && ref != null && !ref.equals("refs/heads/" + project.getGitRef()))
+            return response.reason("push to " + ref + " does not match the deployed branch").build();
+
+        while (!schedule(projectId, deployments.computeIfAbsent(projectId, _ -> new Deployment())))
+            Thread.onSpinWait();
+        log.info("Push {} received for project {}, deploying in {}", commit, projectId, debounce);
+        return response.queued(true).commit(commit).deployAfter(Instant.now().plus(debounce)).build();
+    }
+
+    private boolean schedule(String projectId, Deployment deployment) {
+        synchronized (deployment) {
+            if (deployment.retired)
+                return false;
+            if (deployment.pending != null)
+                deployment.pending.cancel(false);
+            deployment.coalescedPushes++;
+            deployment.pending = scheduler.schedule(() -> fire(projectId, deployment), debounce.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        }
+    }
+
+    private void fire(String projectId, Deployment deployment) {
+        synchronized (deployment) {
+            deployment.pending = null;
+            if (deployment.running == null) {
+                start(projectId, deployment);
+                return;
+            }
+            // A newer push supersedes the deploy in flight: abandon its build, then start over.
+            deployment.rerun = true;
+            if (deployment.building) {
+                log.info("Cancelling superseded build of project {}", projectId);
+                deployment.build.cancel(true);
+            }
+        }
+    }
+
+    // Called with the deployment monitor held.
+    private void start(String projectId, Deployment deployment) {
+        var pushes = deployment.coalescedPushes;
+        deployment.coalescedPushes = 0;
+        deployment.running = deployExecutor.submit(() -> deploy(projectId, deployment, pushes));
+    }
+
+    private void deploy(String projectId, Deployment deployment, int pushes) {
+        try (var span = tracer.startSpan("webhook.deploy")) {
+            span.setAttribute("project.id", projectId);
+            span.setAttribute("webhook.coalesced_pushes", pushes);
+            Project project = null;
+            try {
+                project = projectService.getProjectById(projectId);
+                var result = projectPullService.pullSources(project, project.getGitRef());
+                span.setAttribute("git.commit", result.commit());
+
+                Future<ContainerInfo> build;
+                synchronized (deployment) {
+                    deployment.unbuiltChanges.addAll(result.changedFiles());
+                    if (deployment.rerun || deployment.unbuiltChanges.isEmpty())
+                        return;
+                    containerOperationLimiter.checkAdmission(project.getOwner().getId(), ContainerOperation.START);
+                    deployment.building = true;
+                    // Built on the Docker pool, so that webhook builds count in its queue metrics.
+                    build = deployment.build = dockerService.submitRebuild(project, Set.copyOf(deployment.unbuiltChanges));
+                }
+
+                ContainerInfo containerInfo;
+                try {
+                    containerInfo = build.get();
+                } catch (CancellationException e) {
+                    span.setAttribute("webhook.superseded", true);
+                    return;
+                }
+                synchronized (deployment) {
+                    deployment.building = false;
+                    if (deployment.rerun) {
+                        span.setAttribute("webhook.superseded", true);
+                        return;
+                    }
+                    deployment.unbuiltChanges.clear();
+                }
+                span.setAttribute("container.status", containerInfo.getStatus().name());
+                log.info("Webhook deploy of project {} finished: {}", projectId, containerInfo.getStatus());
+            } catch (UploadConflictException e) {
+                span.recordException(e);
+                // A pull started by hand holds the checkout: try this push again after it.
+                if (project != null && project.getStatus() == ProjectStatus.READY) {
+                    log.info("Project {} is being pulled, deploying again in {}", projectId, debounce);
+                    rearm(projectId, deployment, debounce);
+                } else {
+                    log.warn("Webhook deploy of project {} failed: {}", projectId, e.getMessage());
+                }
+            } catch (TooManyRequestsException e) {
+                // The changes stay pending and are deployed once Docker has caught up.
+                span.recordException(e);
+                log.info("Docker is busy, deploying project {} again in {}", projectId, e.getRetryAfter());
+                rearm(projectId, deployment, e.getRetryAfter());
+            } catch (Exception e) {
+                span.recordException(e);
+                log.warn("Webhook deploy of project {} failed: {}", projectId, e.getMessage());
+            }
+        } finally {
+            synchronized (deployment) {
+                deployment.building = false;
+                deployment.build = null;
+                deployment.running = null;
+                if (deployment.rerun) {
+                    deployment.rerun = false;
+                    start(projectId, deployment);
+                } else if (deployment.pending == null) {
+                    deployment.retired = true;
+                    deployments.remove(projectId, deployment);
+                }
+            }
+        }
+    }
+
+    private void rearm(String projectId, Deployment deployment, Duration delay) {
+        synchronized (deployment) {
+            if (deployment.pending == null)
+                deployment.pending = scheduler.schedule(() -> fire(projectId, deployment), delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void verifySignature(Project project, String signature, byte[] payload) {
+        if (project.getWebhookSecret() == null || signature == null || !signature.startsWith(SIGNATURE_PREFIX))
+            throw new InvalidSignatureException("Invalid webhook signature");
+
+        byte[] expected;
+        try {
+            var mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(project.getWebhookSecret().getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            expected = HexFormat.of().formatHex(mac.doFinal(payload)).getBytes(StandardCharsets.US_ASCII);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        var received = signature.substring(SIGNATURE_PREFIX.length()).toLowerCase().getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, received))
+            throw new InvalidSignatureException("Invalid webhook signature");
+    }
+}
@@ -0,0 +1,18 @@
+package fr.umontpellier.bloomcycle.service.detection;
+
+import fr.umontpellier.bloomcycle.model.ProjectType;
+
+/**
+ * What a rule concluded from one file. A decisive detection (a build manifest) stops the walk at
+ * the depth it was found; weaker ones only count if nothing decisive turns up.
+ */
+public record Detection(ProjectType type, int confidence, String evidence) {
+
+    public static final int DECISIVE = 50;
+
+    public static final Detection NONE = new Detection(ProjectType.OTHER, 0, null);
+
+    public boolean isDecisive() {
+        return confidence >= DECISIVE;
+    }
+}
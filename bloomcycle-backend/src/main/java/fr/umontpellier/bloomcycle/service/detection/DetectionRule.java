@@ -0,0 +1,29 @@
+package fr.umontpellier.bloomcycle.service.detection;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * A pluggable piece of technology detection. The analyzer only hands a rule the files whose name
+ * or extension it declared, so rules never see the rest of the tree.
+ */
+public interface DetectionRule {
+
+    /**
+     * Exact file names this rule inspects, such as {@code package.json}.
+     */
+    Set<String> fileNames();
+
+    /**
+     * File extensions, without the dot, that hint at this rule's technology.
+     */
+    default Set<String> extensions() {
+        return Set.of();
+    }
+
+    /**
+     * Returns what {@code file} says about the project, or null when it is not conclusive.
+     */
+    Detection evaluate(Path file) throws IOException;
+}
@@ -0,0 +1,44 @@
+package fr.umontpellier.bloomcycle.service.detection;
+
+import fr.umontpellier.bloomcycle.model.ProjectType;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Guesses the stack from the base image of a Dockerfile. Weaker than any manifest, so a Dockerfile
+ * generated by BloomCycle never overrides what the sources say.
+ */
+@Component
+@Order(5)
+public class DockerfileRule implements DetectionRule {
+
+    @Override
+    public Set<String> fileNames() {
+        return Set.of("Dockerfile");
+    }
+
+    @Override
+    public Detection evaluate(Path file) throws IOException {
+        var content = Files.readString(file).toLowerCase();
+        ProjectType type;
+        if (content.contains("from openjdk") || content.contains("from maven") || content.contains("from gradle")
+                || content.contains("from eclipse-temurin"))
+            type = ProjectType.JAVA;
+        else if (content.contains("from node") || content.contains("npm install") || content.contains("yarn install"))
+            type = ProjectType.NODEJS;
+        else if (content.contains("from python") || content.contains("pip install"))
+            type = ProjectType.PYTHON;
+        else if (content.contains("from php"))
+            type = ProjectType.PHP;
+        else if (content.contains("from nginx") || content.contains("from httpd"))
+            type = ProjectType.STATIC;
+        else
+            return null;
+        return new Detection(type, 40, "Dockerfile");
+    }
+}
@@ -0,0 +1,42 @@
+package fr.umontpellier.bloomcycle.service.detection;
+
+import fr.umontpellier.bloomcycle.model.ProjectType;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+@Component
+@Order(1)
+public class JavaBuildRule implements DetectionRule {
+
+    private static final Pattern PACKAGING = Pattern.compile("<packaging>\\s*([\\w.-]+)\\s*</packaging>");
+    private static final Detection SOURCE_HINT = new Detection(ProjectType.JAVA, 14, "*.java");
+
+    @Override
+    public Set<String> fileNames() {
+        return Set.of("pom.xml", "build.gradle", "build.gradle.kts");
+    }
+
+    @Override
+    public Set<String> extensions() {
+        return Set.of("java");
+    }
+
+    @Override
+    public Detection evaluate(Path file) throws IOException {
+        var name = file.getFileName().toString();
+        if (name.endsWith(".java"))
+            return SOURCE_HINT;
+        if (!name.equals("pom.xml"))
+            return new Detection(ProjectType.JAVA, 100, name);
+
+        var packaging = PACKAGING.matcher(Files.readString(file));
+        return new Detection(ProjectType.JAVA, 100,
+                "pom.xml (" + (packaging.find() ? packaging.group(1) : "jar") + ")");
+    }
+}
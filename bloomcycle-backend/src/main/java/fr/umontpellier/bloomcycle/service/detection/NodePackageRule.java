@@ -0,0 +1,60 @@
+package fr.umontpellier.bloomcycle.service.detection;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.umontpellier.bloomcycle.model.ProjectType;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Reads the dependencies of {@code package.json} to tell single-page frameworks, which are built
+ * and served as static files, from plain Node.js servers.
+ */
+@Component
+@Order(2)
+public class NodePackageRule implements DetectionRule {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Detection SOURCE_HINT = new Detection(ProjectType.NODEJS, 12, "*.js");
+
+    @Override
+    public Set<String> fileNames() {
+        return Set.of("package.json");
+    }
+
+    @Override
+    public Set<String> extensions() {
+        return Set.of("js", "mjs", "ts");
+    }
+
+    @Override
+    public Detection evaluate(Path file) throws IOException {
+        if (!file.getFileName().toString().equals("package.json"))
+            return SOURCE_HINT;
+
+        JsonNode manifest;
+        try {
+            manifest = MAPPER.readTree(file.toFile());
+        } catch (IOException e) {
+            return new Detection(ProjectType.NODEJS, 90, "package.json (unreadable)");
+        }
+        // Server-side frameworks depend on react or vue too, but run with npm start.
+        if (dependsOn(manifest, "next") || dependsOn(manifest, "nuxt"))
+            return new Detection(ProjectType.NODEJS, 90, "package.json (server-side rendering)");
+        if (dependsOn(manifest, "@angular/core"))
+            return new Detection(ProjectType.ANGULAR, 90, "package.json (@angular/core)");
+        if (dependsOn(manifest, "vue"))
+            return new Detection(ProjectType.VUE, 90, "package.json (vue)");
+        if (dependsOn(manifest, "react"))
+            return new Detection(ProjectType.REACT, 90, "package.json (react)");
+        return new Detection(ProjectType.NODEJS, 90, "package.json");
+    }
+
+    private static boolean dependsOn(JsonNode manifest, String dependency) {
+        return manifest.path("dependencies").has(dependency) || manifest.path("devDependencies").has(dependency);
+    }
+}
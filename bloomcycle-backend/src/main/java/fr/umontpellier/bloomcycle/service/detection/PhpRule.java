@@ -0,0 +1,31 @@
+package fr.umontpellier.bloomcycle.service.detection;
+
+import fr.umontpellier.bloomcycle.model.ProjectType;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+@Component
+@Order(4)
+public class PhpRule implements DetectionRule {
+
+    private static final Detection SOURCE_HINT = new Detection(ProjectType.PHP, 13, "*.php");
+
+    @Override
+    public Set<String> fileNames() {
+        return Set.of("composer.json", "index.php");
+    }
+
+    @Override
+    public Set<String> extensions() {
+        return Set.of("php");
+    }
+
+    @Override
+    public Detection evaluate(Path file) {
+        var name = file.getFileName().toString();
+        return fileNames().contains(name) ? new Detection(ProjectType.PHP, 70, name) : SOURCE_HINT;
+    }
+}
@@ -0,0 +1,31 @@
+package fr.umontpellier.bloomcycle.service.detection;
+
+import fr.umontpellier.bloomcycle.model.ProjectType;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+@Component
+@Order(3)
+public class PythonRule implements DetectionRule {
+
+    private static final Detection SOURCE_HINT = new Detection(ProjectType.PYTHON, 11, "*.py");
+
+    @Override
+    public Set<String> fileNames() {
+        return Set.of("requirements.txt", "setup.py", "pyproject.toml", "Pipfile");
+    }
+
+    @Override
+    public Set<String> extensions() {
+        return Set.of("py");
+    }
+
+    @Override
+    public Detection evaluate(Path file) {
+        var name = file.getFileName().toString();
+        return fileNames().contains(name) ? new Detection(ProjectType.PYTHON, 80, name) : SOURCE_HINT;
+    }
+}
@@ -0,0 +1,25 @@
+package fr.umontpellier.bloomcycle.service.detection;
+
+import fr.umontpellier.bloomcycle.model.ProjectType;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+@Component
+@Order(6)
+public class StaticSiteRule implements DetectionRule {
+
+    private static final Detection INDEX = new Detection(ProjectType.STATIC, 30, "index.html");
+
+    @Override
+    public Set<String> fileNames() {
+        return Set.of("index.html");
+    }
+
+    @Override
+    public Detection evaluate(Path file) {
+        return INDEX;
+    }
+}
@@ -0,0 +1,37 @@
+package fr.umontpellier.bloomcycle.tracing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "deploytraces")
+@RequiredArgsConstructor
+public class DeploymentTraceEndpoint {
+
+    private static final int RECENT_TRACES = 20;
+
+    private final InMemorySpanExporter spanExporter;
+
+    @ReadOperation
+    public Map<String, Object> summary() {
+        var recentRoots = spanExporter.getSpans().stream()
+                .filter(SpanData::isRoot)
+                .toList();
+
+        return Map.of(
+                "stages", spanExporter.summarizeStages(),
+                "recentTraces", recentRoots.subList(Math.max(0, recentRoots.size() - RECENT_TRACES), recentRoots.size())
+        );
+    }
+
+    @ReadOperation
+    public List<SpanData> trace(@Selector String traceId) {
+        return spanExporter.getTrace(traceId);
+    }
+}
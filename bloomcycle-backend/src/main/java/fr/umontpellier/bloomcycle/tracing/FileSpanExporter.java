@@ -0,0 +1,49 @@
+package fr.umontpellier.bloomcycle.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+@Component
+@ConditionalOnProperty(name = "app.tracing.file.enabled", havingValue = "true")
+@Slf4j
+public class FileSpanExporter implements SpanExporter {
+
+    private final ObjectMapper objectMapper;
+    private final BufferedWriter writer;
+
+    public FileSpanExporter(ObjectMapper objectMapper, @Value("${app.tracing.file.path}") String filePath) throws IOException {
+        this.objectMapper = objectMapper;
+
+        var path = Path.of(filePath);
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        this.writer = Files.newBufferedWriter(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        log.info("Exporting deployment spans to {}", path.toAbsolutePath());
+    }
+
+    @Override
+    public synchronized void export(SpanData span) {
+        try {
+            writer.write(objectMapper.writeValueAsString(span));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,73 @@
+package fr.umontpellier.bloomcycle.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+public class InMemorySpanExporter implements SpanExporter {
+
+    public record StageSummary(String name, int count, int errors, double p50Millis, double p95Millis, double maxMillis) {
+    }
+
+    private final int capacity;
+    private final Deque<SpanData> spans = new ArrayDeque<>();
+
+    public InMemorySpanExporter(@Value("${app.tracing.memory.capacity:2000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void export(SpanData span) {
+        if (spans.size() >= capacity)
+            spans.removeFirst();
+        spans.addLast(span);
+    }
+
+    public synchronized List<SpanData> getSpans() {
+        return List.copyOf(spans);
+    }
+
+    public List<SpanData> getTrace(String traceId) {
+        return getSpans().stream()
+                .filter(span -> span.traceId().equals(traceId))
+                .sorted(Comparator.comparing(SpanData::startTime))
+                .toList();
+    }
+
+    public List<StageSummary> summarizeStages() {
+        return getSpans().stream()
+                .collect(Collectors.groupingBy(SpanData::name))
+                .entrySet().stream()
+                .map(entry -> summarize(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingDouble(StageSummary::p95Millis).reversed())
+                .toList();
+    }
+
+    private static StageSummary summarize(String name, List<SpanData> spans) {
+        var durations = spans.stream()
+                .mapToDouble(SpanData::durationMillis)
+                .sorted()
+                .toArray();
+        var errors = (int) spans.stream().filter(SpanData::error).count();
+
+        return new StageSummary(
+                name,
+                durations.length,
+                errors,
+                percentile(durations, 0.50),
+                percentile(durations, 0.95),
+                durations[durations.length - 1]
+        );
+    }
+
+    private static double percentile(double[] sorted, double quantile) {
+        var index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.clamp(index, 0, sorted.length - 1)];
+    }
+}
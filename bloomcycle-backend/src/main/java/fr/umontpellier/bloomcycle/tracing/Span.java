@@ -0,0 +1,64 @@
+package fr.umontpellier.bloomcycle.tracing;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+public class Span implements AutoCloseable {
+
+    private final Tracer tracer;
+    private final Span parent;
+    private final String traceId;
+    private final String spanId;
+    private final String name;
+    private final Instant startTime = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private boolean error;
+    private String errorMessage;
+    private boolean ended;
+
+    Span(Tracer tracer, Span parent, String traceId, String spanId, String name) {
+        this.tracer = tracer;
+        this.parent = parent;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.name = name;
+    }
+
+    public Span setAttribute(String key, Object value) {
+        if (value != null)
+            attributes.put(key, value);
+        return this;
+    }
+
+    public Span recordException(Throwable throwable) {
+        this.error = true;
+        this.errorMessage = throwable.getMessage() != null
+                ? throwable.getMessage()
+                : throwable.getClass().getSimpleName();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (ended)
+            return;
+        ended = true;
+
+        tracer.end(this, new SpanData(
+                traceId,
+                spanId,
+                parent != null ? parent.getSpanId() : null,
+                name,
+                startTime,
+                System.nanoTime() - startNanos,
+                Map.copyOf(attributes),
+                error,
+                errorMessage
+        ));
+    }
+}
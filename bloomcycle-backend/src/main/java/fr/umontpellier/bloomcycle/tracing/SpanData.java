@@ -0,0 +1,25 @@
+package fr.umontpellier.bloomcycle.tracing;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record SpanData(
+        String traceId,
+        String spanId,
+        String parentSpanId,
+        String name,
+        Instant startTime,
+        long durationNanos,
+        Map<String, Object> attributes,
+        boolean error,
+        String errorMessage
+) {
+
+    public boolean isRoot() {
+        return parentSpanId == null;
+    }
+
+    public double durationMillis() {
+        return durationNanos / 1_000_000.0;
+    }
+}
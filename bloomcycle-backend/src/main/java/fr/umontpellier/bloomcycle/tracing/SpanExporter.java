@@ -0,0 +1,6 @@
+package fr.umontpellier.bloomcycle.tracing;
+
+public interface SpanExporter {
+
+    void export(SpanData span);
+}
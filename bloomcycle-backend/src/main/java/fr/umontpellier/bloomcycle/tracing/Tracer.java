@@ -0,0 +1,71 @@
+package fr.umontpellier.bloomcycle.tracing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+@Slf4j
+public class Tracer {
+
+    private final List<SpanExporter> exporters;
+    private final ThreadLocal<Span> currentSpan = new ThreadLocal<>();
+
+    public Tracer(List<SpanExporter> exporters) {
+        this.exporters = exporters;
+    }
+
+    public Span startSpan(String name) {
+        var parent = currentSpan.get();
+        var traceId = parent != null ? parent.getTraceId() : randomId(16);
+        var span = new Span(this, parent, traceId, randomId(8), name);
+        currentSpan.set(span);
+        return span;
+    }
+
+    /**
+     * Binds {@code task} to the span open on the calling thread, so that spans it starts on another
+     * thread join the same trace as children of that span, even if it has ended by then.
+     */
+    public Runnable wrap(Runnable task) {
+        var parent = currentSpan.get();
+        return () -> {
+            var previous = currentSpan.get();
+            restore(parent);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    void end(Span span, SpanData data) {
+        if (currentSpan.get() == span)
+            restore(span.getParent());
+
+        for (var exporter : exporters) {
+            try {
+                exporter.export(data);
+            } catch (Exception e) {
+                log.warn("Span exporter {} failed: {}", exporter.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    private void restore(Span span) {
+        if (span != null)
+            currentSpan.set(span);
+        else
+            currentSpan.remove();
+    }
+
+    private static String randomId(int bytes) {
+        var id = new byte[bytes];
+        ThreadLocalRandom.current().nextBytes(id);
+        return HexFormat.of().formatHex(id);
+    }
+}
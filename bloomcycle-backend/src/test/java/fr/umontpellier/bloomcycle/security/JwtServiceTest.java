@@ -0,0 +1,77 @@
+package fr.umontpellier.bloomcycle.security;
+
+import fr.umontpellier.bloomcycle.model.User;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private VerifiedTokenCache verifiedTokenCache;
+    private JwtService jwtService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        verifiedTokenCache = new VerifiedTokenCache(100);
+        ReflectionTestUtils.setField(verifiedTokenCache, "ttl", Duration.ofMinutes(5));
+        jwtService = jwtService(SECRET, Duration.ofMinutes(15));
+        user = User.builder().id(42L).email("user@example.com").build();
+    }
+
+    @Test
+    void verifiesATokenOnceThenAnswersFromTheCache() {
+        var token = jwtService.generateToken(user);
+
+        var first = jwtService.verify(token);
+        var second = jwtService.verify(token);
+
+        assertThat(first.username()).isEqualTo("user@example.com");
+        assertThat(first.userId()).isEqualTo(42L);
+        assertThat(second).isSameAs(first);
+        assertThat(verifiedTokenCache.getStats().getMisses()).isEqualTo(1);
+        assertThat(verifiedTokenCache.getStats().getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsATamperedTokenWithoutCachingIt() {
+        var token = jwtService.generateToken(user);
+        var parts = token.split("\\.");
+        var tampered = parts[0] + "." + parts[1] + "." + (parts[2].charAt(0) == 'A' ? 'B' : 'A') + parts[2].substring(1);
+
+        assertThatThrownBy(() -> jwtService.verify(tampered)).isInstanceOf(JwtException.class);
+        assertThat(jwtService.isTokenValid(tampered)).isFalse();
+        assertThat(verifiedTokenCache.getStats().getSize()).isZero();
+    }
+
+    @Test
+    void rejectsATokenSignedWithAnotherKey() {
+        var other = jwtService("6B5970404E635266556A586E3272357538782F413F4428472B4B625064536756", Duration.ofMinutes(15));
+        var token = other.generateToken(user);
+
+        assertThat(jwtService.isTokenValid(token)).isFalse();
+    }
+
+    @Test
+    void rejectsAnExpiredToken() {
+        var expired = jwtService(SECRET, Duration.ofSeconds(-1)).generateToken(user);
+
+        assertThat(jwtService.isTokenValid(expired)).isFalse();
+    }
+
+    private JwtService jwtService(String secret, Duration accessTokenTtl) {
+        var service = new JwtService(verifiedTokenCache);
+        ReflectionTestUtils.setField(service, "secretKey", secret);
+        ReflectionTestUtils.setField(service, "accessTokenTtl", accessTokenTtl);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,86 @@
+package fr.umontpellier.bloomcycle.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private static final VerifiedToken VERIFIED = new VerifiedToken("user@example.com", 1L, Instant.now().plus(Duration.ofHours(1)));
+
+    @Test
+    void answersATokenPutBefore() {
+        var cache = cache(10);
+        cache.put("token", VERIFIED);
+
+        assertThat(cache.get("token")).isEqualTo(VERIFIED);
+        assertThat(cache.get("other")).isNull();
+        assertThat(cache.getStats().getHits()).isEqualTo(1);
+        assertThat(cache.getStats().getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedToken() {
+        var cache = cache(2);
+        cache.put("first", VERIFIED);
+        cache.put("second", VERIFIED);
+        cache.get("first");
+
+        cache.put("third", VERIFIED);
+
+        assertThat(cache.get("second")).isNull();
+        assertThat(cache.get("first")).isNotNull();
+        assertThat(cache.get("third")).isNotNull();
+        assertThat(cache.getStats().getEvictions()).isEqualTo(1);
+        assertThat(cache.getStats().getSize()).isEqualTo(2);
+    }
+
+    @Test
+    void staysBoundedUnderConcurrentPuts() {
+        var cache = cache(10);
+
+        IntStream.range(0, 1_000).parallel().forEach(i -> cache.put("token" + i, VERIFIED));
+
+        var stats = cache.getStats();
+        assertThat(stats.getSize()).isBetween(1, 10);
+        assertThat(stats.getEvictions()).isEqualTo(1_000 - stats.getSize());
+    }
+
+    @Test
+    void neverOutlivesTheToken() {
+        var cache = cache(10);
+        cache.put("expired", new VerifiedToken("user@example.com", 1L, Instant.now().minusSeconds(1)));
+
+        assertThat(cache.get("expired")).isNull();
+        assertThat(cache.getStats().getSize()).isZero();
+    }
+
+    @Test
+    void neverOutlivesItsTtl() {
+        var cache = cache(10);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ZERO);
+        cache.put("token", VERIFIED);
+
+        assertThat(cache.get("token")).isNull();
+    }
+
+    @Test
+    void isDisabledWithoutEntries() {
+        var cache = cache(0);
+        cache.put("token", VERIFIED);
+
+        assertThat(cache.get("token")).isNull();
+        assertThat(cache.getStats().getSize()).isZero();
+    }
+
+    private static VerifiedTokenCache cache(int maxEntries) {
+        var cache = new VerifiedTokenCache(maxEntries);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(5));
+        return cache;
+    }
+}
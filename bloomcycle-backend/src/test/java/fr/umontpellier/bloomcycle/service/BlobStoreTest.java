@@ -0,0 +1,139 @@
+package fr.umontpellier.bloomcycle.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BlobStoreTest {
+
+    private static final byte[] CONTENT = "console.log('hello');\n".getBytes();
+
+    @TempDir
+    Path primary;
+
+    @TempDir
+    Path secondary;
+
+    private BlobStore blobStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var storageVolumeService = new StorageVolumeService(null);
+        ReflectionTestUtils.setField(storageVolumeService, "storagePath", primary.toString());
+        ReflectionTestUtils.setField(storageVolumeService, "volumeSpecs", List.of(primary.toString(), secondary.toString()));
+        storageVolumeService.loadVolumes();
+        blobStore = new BlobStore(storageVolumeService);
+        ReflectionTestUtils.setField(blobStore, "hardlinks", true);
+    }
+
+    @Test
+    void storesIdenticalContentOnce() throws IOException {
+        var first = blobStore.store(new ByteArrayInputStream(CONTENT), CONTENT.length, project(primary, "a").resolve("index.js"));
+        var second = blobStore.store(new ByteArrayInputStream(CONTENT), CONTENT.length, project(primary, "b").resolve("index.js"));
+
+        assertThat(first.deduplicated()).isFalse();
+        assertThat(second.deduplicated()).isTrue();
+        assertThat(second.hash()).isEqualTo(first.hash());
+        assertThat(blobFiles(primary)).hasSize(1);
+        assertThat(Files.readAllBytes(project(primary, "b").resolve("index.js"))).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void projectFilesAreHardlinksToTheBlob() throws IOException {
+        var target = project(primary, "a").resolve("index.js");
+        var blob = blobStore.store(new ByteArrayInputStream(CONTENT), CONTENT.length, target);
+        blobStore.link(blob.hash(), project(primary, "b").resolve("index.js"));
+
+        assertThat(Files.getAttribute(target, "unix:nlink")).isEqualTo(3);
+        assertThat(Files.getPosixFilePermissions(target)).doesNotContain(PosixFilePermission.OWNER_WRITE);
+    }
+
+    @Test
+    void copiedProjectFilesDoNotShareTheBlobInode() throws IOException {
+        ReflectionTestUtils.setField(blobStore, "hardlinks", false);
+        var target = project(primary, "a").resolve("index.js");
+        var blob = blobStore.store(new ByteArrayInputStream(CONTENT), CONTENT.length, target);
+        var other = project(primary, "b").resolve("index.js");
+        blobStore.link(blob.hash(), other);
+
+        assertThat(Files.getAttribute(target, "unix:nlink")).isEqualTo(1);
+        target.toFile().setWritable(true);
+        Files.writeString(target, "overwritten");
+
+        assertThat(Files.readAllBytes(other)).isEqualTo(CONTENT);
+        assertThat(Files.readAllBytes(blobFiles(primary).getFirst())).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void linkCopiesTheBlobIntoTheVolumeOfTheTarget() throws IOException {
+        var blob = blobStore.put(new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        blobStore.link(blob.hash(), project(secondary, "c").resolve("index.js"));
+
+        assertThat(blobFiles(secondary)).extracting(path -> path.getFileName().toString()).containsExactly(blob.hash());
+        assertThat(Files.readAllBytes(project(secondary, "c").resolve("index.js"))).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void rejectsContentLongerThanDeclared() {
+        assertThatThrownBy(() -> blobStore.put(new ByteArrayInputStream(CONTENT), CONTENT.length - 1))
+                .isInstanceOf(SecurityException.class);
+        assertThat(blobFiles(primary)).isEmpty();
+    }
+
+    @Test
+    void deleteRemovesTheBlobFromEveryVolume() throws IOException {
+        var blob = blobStore.put(new ByteArrayInputStream(CONTENT), CONTENT.length);
+        blobStore.link(blob.hash(), project(secondary, "c").resolve("index.js"));
+
+        blobStore.delete(blob.hash());
+
+        assertThat(blobStore.contains(blob.hash())).isFalse();
+        assertThat(blobFiles(primary)).isEmpty();
+        assertThat(blobFiles(secondary)).isEmpty();
+    }
+
+    @Test
+    void aBlobIsAsOldAsItsNewestCopy() throws IOException {
+        var blob = blobStore.put(new ByteArrayInputStream(CONTENT), CONTENT.length);
+        blobStore.link(blob.hash(), project(secondary, "c").resolve("index.js"));
+        var old = FileTime.from(Instant.now().minus(Duration.ofDays(1)));
+        Files.setLastModifiedTime(blobFiles(primary).getFirst(), old);
+
+        assertThat(blobStore.listBlobsOlderThan(Instant.now().minus(Duration.ofHours(1)))).isEmpty();
+
+        Files.setLastModifiedTime(blobFiles(secondary).getFirst(), old);
+        assertThat(blobStore.listBlobsOlderThan(Instant.now().minus(Duration.ofHours(1)))).containsExactly(blob.hash());
+    }
+
+    private static Path project(Path volume, String id) throws IOException {
+        return Files.createDirectories(volume.resolve("projects").resolve(id));
+    }
+
+    private static List<Path> blobFiles(Path volume) {
+        var blobs = volume.resolve("blobs");
+        if (!Files.exists(blobs))
+            return List.of();
+        try (var paths = Files.walk(blobs)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getParent().getFileName().toString().equals("tmp"))
+                    .toList();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
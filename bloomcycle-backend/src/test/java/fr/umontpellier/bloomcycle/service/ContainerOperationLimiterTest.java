@@ -0,0 +1,109 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.exception.GlobalExceptionHandler;
+import fr.umontpellier.bloomcycle.exception.TooManyRequestsException;
+import fr.umontpellier.bloomcycle.model.container.ContainerOperation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ContainerOperationLimiterTest {
+
+    private static final int CAPACITY = 3;
+    // Long enough that no token comes back while a test runs.
+    private static final Duration REFILL_INTERVAL = Duration.ofHours(1);
+
+    private DockerService dockerService;
+    private ContainerOperationLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        dockerService = mock(DockerService.class);
+        when(dockerService.getQueueLatency()).thenReturn(Duration.ZERO);
+        limiter = new ContainerOperationLimiter(dockerService);
+        ReflectionTestUtils.setField(limiter, "capacity", CAPACITY);
+        ReflectionTestUtils.setField(limiter, "refillInterval", REFILL_INTERVAL);
+        ReflectionTestUtils.setField(limiter, "maxQueueDepth", 20);
+        ReflectionTestUtils.setField(limiter, "maxQueueLatency", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(limiter, "overloadRetryAfter", Duration.ofSeconds(10));
+        limiter.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        limiter.stop();
+    }
+
+    @Test
+    void allowsABurstThenRefusesUntilATokenComesBack() {
+        for (int i = 0; i < CAPACITY; i++)
+            limiter.acquire(1L, ContainerOperation.START);
+
+        var refusal = catchThrowableOfType(TooManyRequestsException.class, () -> limiter.acquire(1L, ContainerOperation.START));
+
+        assertThat(refusal.getRetryAfter()).isPositive().isLessThanOrEqualTo(REFILL_INTERVAL);
+        assertThat(limiter.getStats().getRateLimited()).containsEntry("START", 1L);
+    }
+
+    @Test
+    void keepsOneBucketPerUserAndOperation() {
+        for (int i = 0; i < CAPACITY; i++)
+            limiter.acquire(1L, ContainerOperation.START);
+
+        limiter.acquire(1L, ContainerOperation.STOP);
+        limiter.acquire(2L, ContainerOperation.START);
+        assertThat(limiter.getStats().getBuckets()).isEqualTo(3);
+    }
+
+    @Test
+    void refusesEveryoneWhileTheDockerQueueIsTooDeep() {
+        when(dockerService.getQueueDepth()).thenReturn(20);
+
+        var refusal = catchThrowableOfType(TooManyRequestsException.class, () -> limiter.acquire(1L, ContainerOperation.RESTART));
+
+        assertThat(refusal.getRetryAfter()).isEqualTo(Duration.ofSeconds(10));
+        assertThat(limiter.getStats().getOverloaded()).isEqualTo(1);
+    }
+
+    @Test
+    void refusesWhileTheOldestDockerTaskWaitsTooLong() {
+        when(dockerService.getQueueLatency()).thenReturn(Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> limiter.acquire(1L, ContainerOperation.START)).isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void anOverloadRefusalDoesNotCostAToken() {
+        when(dockerService.getQueueDepth()).thenReturn(20);
+        for (int i = 0; i < CAPACITY; i++)
+            assertThatThrownBy(() -> limiter.acquire(1L, ContainerOperation.START)).isInstanceOf(TooManyRequestsException.class);
+
+        when(dockerService.getQueueDepth()).thenReturn(0);
+        for (int i = 0; i < CAPACITY; i++)
+            limiter.acquire(1L, ContainerOperation.START);
+    }
+
+    @Test
+    void aRefusalIsAnsweredWithRetryAfterInWholeSeconds() {
+        var handler = new GlobalExceptionHandler();
+
+        var response = handler.handleTooManyRequests(new TooManyRequestsException("busy", Duration.ofMillis(10_200)));
+        var shortWait = handler.handleTooManyRequests(new TooManyRequestsException("busy", Duration.ofMillis(200)));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("11");
+        assertThat(response.getBody().getCode()).isEqualTo("TOO_MANY_REQUESTS");
+        assertThat(shortWait.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+}
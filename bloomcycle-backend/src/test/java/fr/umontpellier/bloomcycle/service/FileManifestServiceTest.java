@@ -0,0 +1,136 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.model.Blob;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.repository.BlobRepository;
+import fr.umontpellier.bloomcycle.repository.FileRepository;
+import fr.umontpellier.bloomcycle.service.FileService.StoredFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileManifestServiceTest {
+
+    @TempDir
+    Path storage;
+
+    private BlobRepository blobRepository;
+    private FileRepository fileRepository;
+    private BlobStore blobStore;
+    private FileManifestService fileManifestService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var storageVolumeService = new StorageVolumeService(null);
+        ReflectionTestUtils.setField(storageVolumeService, "storagePath", storage.toString());
+        ReflectionTestUtils.setField(storageVolumeService, "volumeSpecs", List.of());
+        storageVolumeService.loadVolumes();
+        blobStore = new BlobStore(storageVolumeService);
+        blobRepository = mock(BlobRepository.class);
+        fileRepository = mock(FileRepository.class);
+        var fileService = mock(FileService.class);
+        when(fileService.getProjectStoragePath(any())).thenReturn(storage.resolve("projects/p").toString());
+        fileManifestService = new FileManifestService(fileRepository, blobRepository, blobStore, fileService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(JdbcTemplate.class));
+    }
+
+    @Test
+    void countsEveryReferenceToABlob() throws IOException {
+        var project = new Project();
+        project.setId("p");
+        // "known" already has a row, "fresh" does not.
+        when(blobRepository.adjustRefCount("known", 1)).thenReturn(1);
+        when(blobRepository.adjustRefCount("fresh", 2)).thenReturn(0);
+
+        fileManifestService.ingest(project, () -> List.of(
+                new StoredFile("a.js", "fresh", 3, false),
+                new StoredFile("b.js", "fresh", 3, true),
+                new StoredFile("c.js", "known", 5, true),
+                new StoredFile("Dockerfile", null, 7, false)));
+
+        var saved = ArgumentCaptor.forClass(Blob.class);
+        verify(blobRepository).save(saved.capture());
+        assertThat(saved.getValue().getHash()).isEqualTo("fresh");
+        assertThat(saved.getValue().getRefCount()).isEqualTo(2);
+        assertThat(saved.getValue().getSize()).isEqualTo(3);
+    }
+
+    @Test
+    void collectsUnreferencedBlobs() throws IOException {
+        var unreferenced = put("unreferenced");
+        var referenced = put("referenced");
+        var blob = new Blob(unreferenced, 12);
+        when(blobRepository.findByRefCountLessThanEqual(0)).thenReturn(List.of(blob));
+        when(blobRepository.findAllHashes()).thenReturn(List.of(referenced));
+
+        var freedBytes = fileManifestService.collectGarbage();
+
+        assertThat(freedBytes).isEqualTo(12);
+        assertThat(blobStore.contains(unreferenced)).isFalse();
+        assertThat(blobStore.contains(referenced)).isTrue();
+        verify(blobRepository).delete(blob);
+    }
+
+    @Test
+    void collectsOrphansOnlyAfterTheGracePeriod() throws IOException {
+        var recent = put("recent orphan");
+        var old = put("old orphan");
+        age(old);
+        when(blobRepository.findByRefCountLessThanEqual(0)).thenReturn(List.of());
+        when(blobRepository.findAllHashes()).thenReturn(List.of());
+
+        fileManifestService.collectGarbage();
+
+        assertThat(blobStore.contains(recent)).isTrue();
+        assertThat(blobStore.contains(old)).isFalse();
+        verify(blobRepository, never()).delete(any());
+    }
+
+    @Test
+    void countsCopiedProjectFilesOnTopOfTheBlobs() {
+        when(blobRepository.countByRefCountGreaterThan(0)).thenReturn(2L);
+        when(blobRepository.sumStoredBytes()).thenReturn(100L);
+        when(fileRepository.sumReferencedBytes()).thenReturn(300L);
+
+        ReflectionTestUtils.setField(blobStore, "hardlinks", true);
+        var hardlinked = fileManifestService.getDeduplicationStats();
+        assertThat(hardlinked.getStoredBytes()).isEqualTo(100);
+        assertThat(hardlinked.getBytesSaved()).isEqualTo(200);
+
+        ReflectionTestUtils.setField(blobStore, "hardlinks", false);
+        var copied = fileManifestService.getDeduplicationStats();
+        assertThat(copied.getStoredBytes()).isEqualTo(400);
+        assertThat(copied.getBytesSaved()).isZero();
+    }
+
+    private String put(String content) throws IOException {
+        var bytes = content.getBytes();
+        return blobStore.put(new ByteArrayInputStream(bytes), bytes.length).hash();
+    }
+
+    private void age(String hash) throws IOException {
+        var blob = storage.resolve("blobs").resolve(hash.substring(0, 2)).resolve(hash);
+        Files.setLastModifiedTime(blob, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+    }
+}
@@ -0,0 +1,123 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileServiceTest {
+
+    @TempDir
+    Path storage;
+
+    private FileService fileService;
+    private Path target;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var storageVolumeService = new StorageVolumeService(null);
+        ReflectionTestUtils.setField(storageVolumeService, "storagePath", storage.toString());
+        ReflectionTestUtils.setField(storageVolumeService, "volumeSpecs", List.of());
+        storageVolumeService.loadVolumes();
+        fileService = new FileService(new Tracer(List.of()), new BlobStore(storageVolumeService), storageVolumeService);
+        target = storage.resolve("projects").resolve("p");
+    }
+
+    @Test
+    void extractsFilesAndStripsTheCommonPrefix() throws IOException {
+        var zip = zip(Map.of("repo-main/index.html", "<p>hi</p>", "repo-main/css/site.css", "p {}"));
+
+        var storedFiles = fileService.extractZipFile(zip, target);
+
+        assertThat(storedFiles).extracting(FileService.StoredFile::path)
+                .containsExactlyInAnyOrder("index.html", "css/site.css");
+        assertThat(Files.readString(target.resolve("css/site.css"))).isEqualTo("p {}");
+    }
+
+    @Test
+    void rejectsASuspiciousCompressionRatio() throws IOException {
+        var zip = zip(Map.of("zeros.bin", "\0".repeat(1024 * 1024)));
+
+        assertThatThrownBy(() -> fileService.extractZipFile(zip, target))
+                .isInstanceOf(SecurityException.class)
+                .hasMessageContaining("compression ratio");
+        assertThat(listFiles(target)).isEmpty();
+    }
+
+    @Test
+    void rejectsTooManyFiles() throws IOException {
+        var entries = new LinkedHashMap<String, String>();
+        for (int i = 0; i < FileService.MAX_FILES; i++)
+            entries.put("file-" + i + ".txt", "x");
+        var zip = zip(entries);
+
+        assertThatThrownBy(() -> fileService.extractZipFile(zip, target))
+                .isInstanceOf(SecurityException.class)
+                .hasMessageContaining("Too many files");
+        assertThat(listFiles(target)).isEmpty();
+    }
+
+    @Test
+    void rejectsNamesThatSanitizeToTheSamePath() throws IOException {
+        var zip = zip(Map.of("a b.txt", "one", "a_b.txt", "two"));
+
+        assertThatThrownBy(() -> fileService.extractZipFile(zip, target))
+                .isInstanceOf(SecurityException.class)
+                .hasMessageContaining("Duplicate path");
+        assertThat(listFiles(target)).isEmpty();
+    }
+
+    @Test
+    void rejectsAPathThatIsBothAFileAndADirectory() throws IOException {
+        var zip = zip(Map.of("lib", "file", "lib/module.js", "directory entry"));
+
+        assertThatThrownBy(() -> fileService.extractZipFile(zip, target))
+                .isInstanceOf(SecurityException.class)
+                .hasMessageContaining("both a file and a directory");
+        assertThat(listFiles(target)).isEmpty();
+    }
+
+    @Test
+    void rejectsAPathOutsideTheTarget() throws IOException {
+        var zip = zip(Map.of("../escape.txt", "x", "index.html", "x"));
+
+        assertThatThrownBy(() -> fileService.extractZipFile(zip, target))
+                .isInstanceOf(SecurityException.class)
+                .hasMessageContaining("invalid path");
+        assertThat(storage.resolve("projects/escape.txt")).doesNotExist();
+    }
+
+    private Path zip(Map<String, String> entries) throws IOException {
+        var zip = Files.createTempFile(storage, "upload-", ".zip");
+        try (OutputStream output = Files.newOutputStream(zip); var zipOutput = new ZipOutputStream(output)) {
+            for (var entry : entries.entrySet()) {
+                zipOutput.putNextEntry(new ZipEntry(entry.getKey()));
+                zipOutput.write(entry.getValue().getBytes());
+                zipOutput.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private static List<Path> listFiles(Path root) throws IOException {
+        if (!Files.exists(root))
+            return List.of();
+        try (var paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile).toList();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.sync.SyncFile;
+import fr.umontpellier.bloomcycle.dto.sync.SyncManifestRequest;
+import fr.umontpellier.bloomcycle.dto.sync.SyncPlanResponse;
+import fr.umontpellier.bloomcycle.exception.InvalidUploadException;
+import fr.umontpellier.bloomcycle.exception.TooManyRequestsException;
+import fr.umontpellier.bloomcycle.model.File;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import fr.umontpellier.bloomcycle.model.User;
+import fr.umontpellier.bloomcycle.model.container.ContainerOperation;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProjectSyncServiceTest {
+
+    private static final String PROJECT_ID = "p";
+    private static final byte[] KEPT = "kept".getBytes();
+    private static final byte[] OLD = "old".getBytes();
+    private static final byte[] NEW = "new content".getBytes();
+    private static final byte[] STORED = "already stored".getBytes();
+
+    @TempDir
+    Path storage;
+
+    private BlobStore blobStore;
+    private StorageUsageService storageUsageService;
+    private ContainerOperationLimiter containerOperationLimiter;
+    private ProjectSyncService projectSyncService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var storageVolumeService = new StorageVolumeService(null);
+        ReflectionTestUtils.setField(storageVolumeService, "storagePath", storage.toString());
+        ReflectionTestUtils.setField(storageVolumeService, "volumeSpecs", List.of());
+        storageVolumeService.loadVolumes();
+        blobStore = new BlobStore(storageVolumeService);
+        blobStore.put(new ByteArrayInputStream(STORED), STORED.length);
+
+        var owner = new User();
+        owner.setId(1L);
+        var project = new Project();
+        project.setId(PROJECT_ID);
+        project.setOwner(owner);
+        project.setStatus(ProjectStatus.READY);
+        var projectRoot = Files.createDirectories(storage.resolve("projects").resolve(PROJECT_ID));
+
+        var projectService = mock(ProjectService.class);
+        when(projectService.getOwnedProject(PROJECT_ID)).thenReturn(project);
+        var fileService = mock(FileService.class);
+        when(fileService.getProjectStoragePath(project)).thenReturn(projectRoot.toString());
+        var fileManifestService = mock(FileManifestService.class);
+        when(fileManifestService.getManifest(PROJECT_ID)).thenReturn(List.of(file("a.js", KEPT), file("b.js", OLD)));
+        storageUsageService = mock(StorageUsageService.class);
+        containerOperationLimiter = mock(ContainerOperationLimiter.class);
+
+        projectSyncService = new ProjectSyncService(projectService, fileService, fileManifestService, blobStore,
+                mock(DockerService.class), containerOperationLimiter, storageUsageService, mock(ColdStorageService.class), storageVolumeService,
+                new Tracer(List.of()));
+    }
+
+    @Test
+    void asksOnlyForContentTheServerDoesNotHave() {
+        var plan = plan(entry("a.js", KEPT), entry("b.js", NEW), entry("c.js", STORED), entry("d.js", NEW));
+
+        assertThat(plan.getMissing()).extracting(SyncFile::getHash).containsExactly(sha256(NEW));
+        assertThat(plan.getUnchanged()).isEqualTo(1);
+        assertThat(plan.getChanged()).isEqualTo(3);
+        assertThat(plan.getDeleted()).isZero();
+    }
+
+    @Test
+    void countsFilesMissingFromTheManifestAsDeleted() {
+        var plan = plan(entry("a.js", KEPT));
+
+        assertThat(plan.getMissing()).isEmpty();
+        assertThat(plan.getDeleted()).isEqualTo(1);
+    }
+
+    @Test
+    void checksTheGrowthAgainstTheQuota() {
+        plan(entry("a.js", KEPT), entry("b.js", NEW));
+
+        verify(storageUsageService).checkQuota(1L, NEW.length - OLD.length);
+    }
+
+    @Test
+    void rejectsAnEntryWithoutSize() {
+        var request = new SyncManifestRequest();
+        request.setFiles(List.of(new SyncFile("a.js", sha256(KEPT), null)));
+
+        assertThatThrownBy(() -> projectSyncService.plan(PROJECT_ID, request))
+                .isInstanceOf(InvalidUploadException.class)
+                .hasMessageContaining("size");
+    }
+
+    @Test
+    void rejectsABlobThePlanDidNotAskFor() {
+        var plan = plan(entry("b.js", NEW));
+
+        assertThatThrownBy(() -> upload(plan, sha256(STORED), STORED))
+                .isInstanceOf(InvalidUploadException.class)
+                .hasMessageContaining("was not requested");
+    }
+
+    @Test
+    void rejectsABlobLargerThanDeclaredAndAcceptsItsRetry() throws IOException {
+        var plan = plan(entry("b.js", NEW));
+        var longer = (new String(NEW) + " and more").getBytes();
+
+        assertThatThrownBy(() -> upload(plan, sha256(NEW), longer))
+                .isInstanceOf(InvalidUploadException.class)
+                .hasMessageContaining("larger than its declared");
+        assertThat(blobStore.contains(sha256(NEW))).isFalse();
+
+        upload(plan, sha256(NEW), NEW);
+        assertThat(blobStore.contains(sha256(NEW))).isTrue();
+        // Resending a blob that was stored is accepted without being read again.
+        upload(plan, sha256(NEW), NEW);
+    }
+
+    @Test
+    void rejectsContentThatDoesNotMatchItsHash() {
+        var plan = plan(entry("b.js", NEW));
+        var tampered = NEW.clone();
+        tampered[0] = 'N';
+
+        assertThatThrownBy(() -> upload(plan, sha256(NEW), tampered))
+                .isInstanceOf(InvalidUploadException.class)
+                .hasMessageContaining("does not match");
+        assertThat(blobStore.contains(sha256(NEW))).isFalse();
+    }
+
+    @Test
+    void keepsTheSessionWhenTheRebuildIsRateLimited() {
+        var plan = plan(entry("a.js", KEPT));
+        doThrow(new TooManyRequestsException("Too many start requests, retry later", Duration.ofSeconds(5)))
+                .when(containerOperationLimiter).acquire(1L, ContainerOperation.START);
+
+        for (var attempt = 0; attempt < 2; attempt++)
+            assertThatThrownBy(() -> projectSyncService.commit(PROJECT_ID, plan.getSyncId(), true))
+                    .isInstanceOf(TooManyRequestsException.class);
+        verify(storageUsageService, never()).recordSources(any(), anyLong(), anyLong(), anyBoolean());
+    }
+
+    private SyncPlanResponse plan(SyncFile... entries) {
+        var request = new SyncManifestRequest();
+        request.setFiles(List.of(entries));
+        return projectSyncService.plan(PROJECT_ID, request);
+    }
+
+    private void upload(SyncPlanResponse plan, String hash, byte[] content) throws IOException {
+        projectSyncService.uploadBlob(PROJECT_ID, plan.getSyncId(), hash, new ByteArrayInputStream(content));
+    }
+
+    private static SyncFile entry(String path, byte[] content) {
+        return new SyncFile(path, sha256(content), (long) content.length);
+    }
+
+    private static File file(String path, byte[] content) {
+        var file = new File();
+        file.setFilePath(path);
+        file.setHash(sha256(content));
+        file.setSize(content.length);
+        return file;
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
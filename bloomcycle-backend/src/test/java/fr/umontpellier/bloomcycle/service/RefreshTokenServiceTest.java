@@ -0,0 +1,120 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.exception.InvalidRefreshTokenException;
+import fr.umontpellier.bloomcycle.model.RefreshToken;
+import fr.umontpellier.bloomcycle.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTest {
+
+    private final List<RefreshToken> rows = new ArrayList<>();
+    private RefreshTokenService refreshTokenService;
+
+    @BeforeEach
+    void setUp() {
+        // Backs the repository with a list, applying the same conditions as its update queries.
+        var repository = mock(RefreshTokenRepository.class);
+        when(repository.save(any())).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            token.setId((long) rows.size() + 1);
+            rows.add(token);
+            return token;
+        });
+        when(repository.findByTokenHash(anyString())).thenAnswer(invocation -> rows.stream()
+                .filter(token -> token.getTokenHash().equals(invocation.getArgument(0)))
+                .findFirst()
+                .map(RefreshTokenServiceTest::copy));
+        when(repository.revoke(anyLong(), any())).thenAnswer(invocation -> (int) rows.stream()
+                .filter(token -> token.getId().equals(invocation.getArgument(0)) && token.getRevokedAt() == null)
+                .peek(token -> token.setRevokedAt(invocation.getArgument(1)))
+                .count());
+        when(repository.revokeFamily(anyString(), any())).thenAnswer(invocation -> (int) rows.stream()
+                .filter(token -> token.getFamilyId().equals(invocation.getArgument(0)) && token.getRevokedAt() == null)
+                .peek(token -> token.setRevokedAt(invocation.getArgument(1)))
+                .count());
+
+        refreshTokenService = new RefreshTokenService(repository);
+        ReflectionTestUtils.setField(refreshTokenService, "refreshTokenTtl", Duration.ofDays(30));
+    }
+
+    @Test
+    void rotatesIntoTheSameFamily() {
+        var issued = refreshTokenService.issue(7L);
+
+        var rotation = refreshTokenService.rotate(issued);
+
+        assertThat(rotation.userId()).isEqualTo(7L);
+        assertThat(rotation.refreshToken()).isNotEqualTo(issued);
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(1).getFamilyId()).isEqualTo(rows.get(0).getFamilyId());
+        assertThat(rows.get(0).getRevokedAt()).isNotNull();
+        assertThat(rows.get(1).getRevokedAt()).isNull();
+        // Only the hash is stored.
+        assertThat(rows).extracting(RefreshToken::getTokenHash).doesNotContain(issued, rotation.refreshToken());
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesTheWholeFamily() {
+        var stolen = refreshTokenService.issue(7L);
+        var current = refreshTokenService.rotate(stolen).refreshToken();
+        var otherSession = refreshTokenService.issue(7L);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(stolen)).isInstanceOf(InvalidRefreshTokenException.class);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(current)).isInstanceOf(InvalidRefreshTokenException.class);
+        assertThat(refreshTokenService.rotate(otherSession).userId()).isEqualTo(7L);
+    }
+
+    @Test
+    void logoutRevokesTheFamily() {
+        var first = refreshTokenService.issue(7L);
+        var current = refreshTokenService.rotate(first).refreshToken();
+
+        refreshTokenService.revoke(first);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(current)).isInstanceOf(InvalidRefreshTokenException.class);
+    }
+
+    @Test
+    void rejectsAnExpiredToken() {
+        var issued = refreshTokenService.issue(7L);
+        rows.getFirst().setExpiresAt(Instant.now().minusSeconds(1));
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(issued)).isInstanceOf(InvalidRefreshTokenException.class);
+    }
+
+    @Test
+    void rejectsAnUnknownOrMissingToken() {
+        assertThatThrownBy(() -> refreshTokenService.rotate("unknown")).isInstanceOf(InvalidRefreshTokenException.class);
+        assertThatThrownBy(() -> refreshTokenService.rotate(" ")).isInstanceOf(InvalidRefreshTokenException.class);
+        assertThatThrownBy(() -> refreshTokenService.rotate(null)).isInstanceOf(InvalidRefreshTokenException.class);
+    }
+
+    // The repository returns detached rows, like separate transactions would.
+    private static RefreshToken copy(RefreshToken row) {
+        var token = new RefreshToken();
+        token.setId(row.getId());
+        token.setTokenHash(row.getTokenHash());
+        token.setUserId(row.getUserId());
+        token.setFamilyId(row.getFamilyId());
+        token.setCreatedAt(row.getCreatedAt());
+        token.setExpiresAt(row.getExpiresAt());
+        token.setRevokedAt(row.getRevokedAt());
+        return token;
+    }
+}
@@ -0,0 +1,156 @@
+package fr.umontpellier.bloomcycle.service;
+
+import fr.umontpellier.bloomcycle.dto.InitiateUploadRequest;
+import fr.umontpellier.bloomcycle.exception.InvalidUploadException;
+import fr.umontpellier.bloomcycle.exception.UploadConflictException;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.upload.UploadSession;
+import fr.umontpellier.bloomcycle.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadServiceTest {
+
+    private static final byte[] FIRST = "first chunk ".getBytes();
+    private static final byte[] SECOND = "second chunk".getBytes();
+
+    @TempDir
+    Path storage;
+
+    private ProjectCreationPipeline projectCreationPipeline;
+    private UploadService uploadService;
+
+    @BeforeEach
+    void setUp() {
+        projectCreationPipeline = mock(ProjectCreationPipeline.class);
+        uploadService = new UploadService(projectCreationPipeline, mock(StorageUsageService.class));
+        ReflectionTestUtils.setField(uploadService, "storagePath", storage.toString());
+        ReflectionTestUtils.setField(uploadService, "sessionTtl", Duration.ofHours(1));
+        ReflectionTestUtils.setField(uploadService, "maxChunkSize", DataSize.ofKilobytes(1));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new AuthenticatedUser(1L, "owner@example.com"), null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void appendsChunksInOrderAndCompletes() throws IOException {
+        var session = initiate(sha256(FIRST, SECOND));
+        uploadService.writeChunk(session.getId(), 0, sha256(FIRST), new ByteArrayInputStream(FIRST));
+        uploadService.writeChunk(session.getId(), FIRST.length, null, new ByteArrayInputStream(SECOND));
+        when(projectCreationPipeline.submitArchive(eq("site"), any(Path.class))).thenReturn(new Project());
+
+        uploadService.complete(session.getId(), "site");
+
+        verify(projectCreationPipeline).submitArchive("site", session.getSpoolFile());
+        assertThat(Files.readString(session.getSpoolFile())).isEqualTo("first chunk second chunk");
+    }
+
+    @Test
+    void rejectsAChunkAtTheWrongOffset() throws IOException {
+        var session = initiate(null);
+        uploadService.writeChunk(session.getId(), 0, null, new ByteArrayInputStream(FIRST));
+
+        assertThatThrownBy(() -> uploadService.writeChunk(session.getId(), 0, null, new ByteArrayInputStream(SECOND)))
+                .isInstanceOf(UploadConflictException.class)
+                .hasMessageContaining("Expected offset " + FIRST.length);
+        assertThatThrownBy(() -> uploadService.writeChunk(session.getId(), FIRST.length + 1, null, new ByteArrayInputStream(SECOND)))
+                .isInstanceOf(UploadConflictException.class);
+        assertThat(session.getReceivedBytes()).isEqualTo(FIRST.length);
+    }
+
+    @Test
+    void truncatesAChunkWhoseChecksumDoesNotMatch() throws IOException {
+        var session = initiate(null);
+        uploadService.writeChunk(session.getId(), 0, null, new ByteArrayInputStream(FIRST));
+
+        assertThatThrownBy(() -> uploadService.writeChunk(session.getId(), FIRST.length, sha256(FIRST), new ByteArrayInputStream(SECOND)))
+                .isInstanceOf(InvalidUploadException.class)
+                .hasMessageContaining("Checksum mismatch");
+        assertThat(session.getReceivedBytes()).isEqualTo(FIRST.length);
+        assertThat(Files.size(session.getSpoolFile())).isEqualTo(FIRST.length);
+
+        // The client resends the same chunk at the same offset.
+        uploadService.writeChunk(session.getId(), FIRST.length, sha256(SECOND), new ByteArrayInputStream(SECOND));
+        assertThat(session.getReceivedBytes()).isEqualTo(FIRST.length + SECOND.length);
+    }
+
+    @Test
+    void rejectsAChunkPastTheDeclaredSize() throws IOException {
+        var session = initiate(null);
+        var tooLong = new byte[FIRST.length + SECOND.length + 1];
+
+        assertThatThrownBy(() -> uploadService.writeChunk(session.getId(), 0, null, new ByteArrayInputStream(tooLong)))
+                .isInstanceOf(InvalidUploadException.class)
+                .hasMessageContaining("past the declared size");
+        assertThat(Files.size(session.getSpoolFile())).isZero();
+    }
+
+    @Test
+    void refusesToCompleteWhenTheFileHashDoesNotMatch() throws IOException {
+        var session = initiate(sha256(SECOND, FIRST));
+        uploadService.writeChunk(session.getId(), 0, null, new ByteArrayInputStream(FIRST));
+        uploadService.writeChunk(session.getId(), FIRST.length, null, new ByteArrayInputStream(SECOND));
+
+        assertThatThrownBy(() -> uploadService.complete(session.getId(), "site"))
+                .isInstanceOf(InvalidUploadException.class)
+                .hasMessageContaining("Checksum mismatch for upload");
+        verify(projectCreationPipeline, never()).submitArchive(any(), any(Path.class));
+    }
+
+    @Test
+    void refusesToCompleteAnIncompleteUpload() throws IOException {
+        var session = initiate(null);
+        uploadService.writeChunk(session.getId(), 0, null, new ByteArrayInputStream(FIRST));
+
+        assertThatThrownBy(() -> uploadService.complete(session.getId(), "site"))
+                .isInstanceOf(UploadConflictException.class)
+                .hasMessageContaining("Upload incomplete");
+    }
+
+    private UploadSession initiate(String sha256) throws IOException {
+        var request = new InitiateUploadRequest();
+        request.setFileName("site.zip");
+        request.setTotalSize(FIRST.length + SECOND.length);
+        request.setSha256(sha256);
+        return uploadService.initiate(request);
+    }
+
+    private static String sha256(byte[]... parts) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            for (var part : parts)
+                digest.update(part);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
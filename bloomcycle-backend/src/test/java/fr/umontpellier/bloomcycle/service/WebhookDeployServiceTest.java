@@ -0,0 +1,171 @@
+package fr.umontpellier.bloomcycle.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.umontpellier.bloomcycle.exception.InvalidSignatureException;
+import fr.umontpellier.bloomcycle.exception.ResourceNotFoundException;
+import fr.umontpellier.bloomcycle.exception.UploadConflictException;
+import fr.umontpellier.bloomcycle.model.Project;
+import fr.umontpellier.bloomcycle.model.ProjectStatus;
+import fr.umontpellier.bloomcycle.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class WebhookDeployServiceTest {
+
+    private static final String PROJECT_ID = "p";
+    private static final String SECRET = "0123456789abcdef";
+    private static final byte[] PUSH = "{\"ref\":\"refs/heads/main\",\"after\":\"abc123\"}".getBytes(StandardCharsets.UTF_8);
+
+    private Project project;
+    private ProjectService projectService;
+    private ProjectPullService projectPullService;
+    private WebhookDeployService webhookDeployService;
+
+    @BeforeEach
+    void setUp() {
+        project = new Project();
+        project.setId(PROJECT_ID);
+        project.setGitUrl("https://example.com/repo.git");
+        project.setGitRef("main");
+        project.setWebhookSecret(SECRET);
+        projectService = mock(ProjectService.class);
+        when(projectService.getProjectById(PROJECT_ID)).thenReturn(project);
+        when(projectService.getProjectById("missing")).thenThrow(new ResourceNotFoundException("Project not found with id: missing"));
+        projectPullService = mock(ProjectPullService.class);
+
+        webhookDeployService = new WebhookDeployService(projectService, projectPullService, mock(DockerService.class),
+                mock(ContainerOperationLimiter.class), new ObjectMapper(), new Tracer(List.of()));
+        // Long enough that no queued deploy fires during a test.
+        ReflectionTestUtils.setField(webhookDeployService, "debounce", Duration.ofHours(1));
+        ReflectionTestUtils.setField(webhookDeployService, "concurrency", 1);
+        webhookDeployService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        webhookDeployService.stop();
+    }
+
+    @Test
+    void queuesASignedPushToTheTrackedBranch() {
+        var response = webhookDeployService.receive(PROJECT_ID, sign(SECRET, PUSH), "push", PUSH);
+
+        assertThat(response.isQueued()).isTrue();
+        assertThat(response.getCommit()).isEqualTo("abc123");
+    }
+
+    @Test
+    void acceptsAnUppercaseSignature() {
+        var signature = "sha256=" + sign(SECRET, PUSH).substring("sha256=".length()).toUpperCase();
+
+        assertThat(webhookDeployService.receive(PROJECT_ID, signature, "push", PUSH).isQueued()).isTrue();
+    }
+
+    @Test
+    void ignoresASignedPushToAnotherBranch() {
+        var payload = "{\"ref\":\"refs/heads/dev\",\"after\":\"def456\"}".getBytes(StandardCharsets.UTF_8);
+
+        var response = webhookDeployService.receive(PROJECT_ID, sign(SECRET, payload), "push", payload);
+
+        assertThat(response.isQueued()).isFalse();
+        assertThat(response.getReason()).contains("does not match");
+    }
+
+    @Test
+    void rejectsASignatureMadeWithAnotherSecret() {
+        assertRejected(PROJECT_ID, sign("another secret", PUSH), PUSH);
+    }
+
+    @Test
+    void rejectsATamperedPayload() {
+        var signature = sign(SECRET, PUSH);
+        var tampered = "{\"ref\":\"refs/heads/main\",\"after\":\"evil00\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertRejected(PROJECT_ID, signature, tampered);
+    }
+
+    @Test
+    void rejectsAMissingOrMalformedSignature() {
+        assertRejected(PROJECT_ID, null, PUSH);
+        assertRejected(PROJECT_ID, sign(SECRET, PUSH).substring("sha256=".length()), PUSH);
+        assertRejected(PROJECT_ID, "sha256=", PUSH);
+    }
+
+    @Test
+    void rejectsDeliveriesToAProjectWithoutSecret() {
+        project.setWebhookSecret(null);
+
+        assertRejected(PROJECT_ID, sign(SECRET, PUSH), PUSH);
+    }
+
+    @Test
+    void reportsAnUnknownProjectLikeABadSignature() {
+        assertRejected("missing", sign(SECRET, PUSH), PUSH);
+    }
+
+    @Test
+    void checksTheSignatureBeforeParsingThePayload() {
+        var garbage = "not json".getBytes(StandardCharsets.UTF_8);
+
+        assertRejected(PROJECT_ID, "sha256=00", garbage);
+    }
+
+    @Test
+    void deploysAgainAfterAPullStartedByHandAndForgetsTheProjectOnceIdle() throws InterruptedException {
+        ReflectionTestUtils.setField(webhookDeployService, "debounce", Duration.ofMillis(20));
+        project.setStatus(ProjectStatus.READY);
+        when(projectPullService.pullSources(project, "main"))
+                .thenThrow(new UploadConflictException("A pull is already running for project " + PROJECT_ID))
+                .thenReturn(new GitService.PullResult("abc", "abc123", "main", List.of(), List.of(), List.of(), 0));
+
+        webhookDeployService.receive(PROJECT_ID, sign(SECRET, PUSH), "push", PUSH);
+
+        verify(projectPullService, timeout(5_000).times(2)).pullSources(project, "main");
+        Map<?, ?> deployments = (Map<?, ?>) ReflectionTestUtils.getField(webhookDeployService, "deployments");
+        await(() -> deployments.isEmpty());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private void assertRejected(String projectId, String signature, byte[] payload) {
+        assertThatThrownBy(() -> webhookDeployService.receive(projectId, signature, "push", payload))
+                .isInstanceOf(InvalidSignatureException.class);
+        verifyNoInteractions(projectPullService);
+    }
+
+    private static String sign(String secret, byte[] payload) {
+        try {
+            var mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return "sha256=" + HexFormat.of().formatHex(mac.doFinal(payload));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
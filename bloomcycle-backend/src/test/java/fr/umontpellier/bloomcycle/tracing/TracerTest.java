@@ -0,0 +1,70 @@
+package fr.umontpellier.bloomcycle.tracing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracerTest {
+
+    private InMemorySpanExporter exporter;
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        exporter = new InMemorySpanExporter(100);
+        tracer = new Tracer(List.of(exporter));
+    }
+
+    @Test
+    void aWrappedTaskContinuesTheTraceOnAnotherThread() throws Exception {
+        Runnable task;
+        String traceId;
+        String parentId;
+        try (var request = tracer.startSpan("project.create")) {
+            traceId = request.getTraceId();
+            parentId = request.getSpanId();
+            task = tracer.wrap(() -> tracer.startSpan("project.pipeline").close());
+        }
+
+        runOnAnotherThread(task);
+
+        assertThat(exporter.getSpans()).filteredOn(span -> span.name().equals("project.pipeline"))
+                .singleElement()
+                .satisfies(span -> {
+                    assertThat(span.traceId()).isEqualTo(traceId);
+                    assertThat(span.parentSpanId()).isEqualTo(parentId);
+                });
+    }
+
+    @Test
+    void aWrappedTaskLeavesNoSpanOnThePoolThread() throws Exception {
+        var executor = Executors.newSingleThreadExecutor();
+        try (var _ = tracer.startSpan("project.create")) {
+            executor.execute(tracer.wrap(() -> tracer.startSpan("project.pipeline").close()));
+        }
+        executor.execute(() -> tracer.startSpan("unrelated").close());
+        await(executor);
+
+        var spans = exporter.getSpans();
+        var unrelated = spans.stream().filter(span -> span.name().equals("unrelated")).findFirst().orElseThrow();
+        assertThat(unrelated.parentSpanId()).isNull();
+        assertThat(unrelated.traceId()).isNotEqualTo(spans.getFirst().traceId());
+    }
+
+    private static void runOnAnotherThread(Runnable task) throws InterruptedException {
+        var executor = Executors.newSingleThreadExecutor();
+        executor.execute(task);
+        await(executor);
+    }
+
+    private static void await(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -1,5 +1,5 @@
 import { Injectable } from '@angular/core';
-import { HttpClient, HttpErrorResponse, HttpHeaders } from '@angular/common/http';
+import { HttpClient, HttpErrorResponse, HttpHeaders, HttpResponse } from '@angular/common/http';
 import { Observable, throwError } from 'rxjs';
 import { catchError } from 'rxjs/operators';
 
@@ -28,6 +28,11 @@ export class ApiService {
       .pipe(catchError(this.handleError));
   }
 
+  getResponse<T>(endpoint: string): Observable<HttpResponse<T>> {
+    return this.http.get<T>(`${this.baseUrl}/${endpoint}`, { headers: this.getHeaders(), observe: 'response' })
+      .pipe(catchError(this.handleError));
+  }
+
   post<T>(endpoint: string, data: any): Observable<T> {
     const isMultipart = data instanceof FormData;
     return this.http.post<T>(`${this.baseUrl}/${endpoint}`, data, { headers: this.getHeaders(isMultipart) })
@@ -6,6 +6,8 @@ import { JwtHelperService } from '@auth0/angular-jwt';
 
 interface LoginResponse {
   token: string;
+  refreshToken: string;
+  expiresIn: number;
   email: string;
   username: string;
 }
@@ -23,6 +25,10 @@ interface RegisterData {
 export class AuthService {
   private apiUrl = 'http://localhost:9090/api/v1';
   private tokenKey = 'auth_token';
+  private refreshTokenKey = 'refresh_token';
+  // Access tokens are short-lived: they are renewed this many seconds before they expire.
+  private refreshMargin = 60;
+  private refreshInProgress = false;
   private isAuthenticatedSubject = new BehaviorSubject<boolean>(false);
   private jwtHelper = new JwtHelperService();
   private tokenCheckInterval: any;
@@ -32,7 +38,7 @@ export class AuthService {
     private router: Router
   ) {
     this.validateAndSetAuthState();
-    this.tokenCheckInterval = setInterval(() => this.validateAndSetAuthState(), 600000);
+    this.tokenCheckInterval = setInterval(() => this.validateAndSetAuthState(), 30000);
   }
 
   login(email: string, password: string): Observable<LoginResponse> {
@@ -40,10 +46,15 @@ export class AuthService {
       email,
       password
     }).pipe(
-      tap(response => {
-        localStorage.setItem(this.tokenKey, response.token);
-        this.isAuthenticatedSubject.next(true);
-      })
+      tap(response => this.storeTokens(response))
+    );
+  }
+
+  refresh(): Observable<LoginResponse> {
+    return this.http.post<LoginResponse>(`${this.apiUrl}/auth/refresh`, {
+      refreshToken: localStorage.getItem(this.refreshTokenKey)
+    }).pipe(
+      tap(response => this.storeTokens(response))
     );
   }
 
@@ -52,7 +63,12 @@ export class AuthService {
   }
 
   logout(): void {
+    const refreshToken = localStorage.getItem(this.refreshTokenKey);
+    if (refreshToken) {
+      this.http.post(`${this.apiUrl}/auth/logout`, { refreshToken }).subscribe({ error: () => {} });
+    }
     localStorage.removeItem(this.tokenKey);
+    localStorage.removeItem(this.refreshTokenKey);
     this.isAuthenticatedSubject.next(false);
     this.router.navigate(['/login']);
   }
@@ -76,8 +92,14 @@ export class AuthService {
       }
 
       const isExpired = this.jwtHelper.isTokenExpired(token);
+      const isExpiring = this.jwtHelper.isTokenExpired(token, this.refreshMargin);
 
-      if (isExpired) {
+      if (isExpiring && localStorage.getItem(this.refreshTokenKey)) {
+        this.refreshSession(isExpired);
+        if (isExpired) {
+          return;
+        }
+      } else if (isExpired) {
         this.logout();
         return;
       }
@@ -88,4 +110,26 @@ export class AuthService {
       this.logout();
     }
   }
+
+  private refreshSession(isExpired: boolean): void {
+    if (this.refreshInProgress) {
+      return;
+    }
+    this.refreshInProgress = true;
+    this.refresh().subscribe({
+      next: () => this.refreshInProgress = false,
+      error: () => {
+        this.refreshInProgress = false;
+        if (isExpired) {
+          this.logout();
+        }
+      }
+    });
+  }
+
+  private storeTokens(response: LoginResponse): void {
+    localStorage.setItem(this.tokenKey, response.token);
+    localStorage.setItem(this.refreshTokenKey, response.refreshToken);
+    this.isAuthenticatedSubject.next(true);
+  }
 }
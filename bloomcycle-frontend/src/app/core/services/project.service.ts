@@ -1,6 +1,7 @@
 import { Injectable } from '@angular/core';
 import { ApiService } from './api.service';
-import { Observable } from 'rxjs';
+import { EMPTY, Observable } from 'rxjs';
+import { expand, map, reduce } from 'rxjs/operators';
 import { Project } from '../models/project.model';
 
 @Injectable({
@@ -9,8 +10,20 @@ import { Project } from '../models/project.model';
 export class ProjectService {
   constructor(private apiService: ApiService) {}
 
+  // The list is paged by cursor: follow X-Next-Cursor until the last page.
   getProjects(): Observable<Project[]> {
-    return this.apiService.get<Project[]>('projects');
+    return this.getProjectPage().pipe(
+      expand(page => page.nextCursor ? this.getProjectPage(page.nextCursor) : EMPTY),
+      map(page => page.projects),
+      reduce((all, projects) => all.concat(projects), [] as Project[])
+    );
+  }
+
+  private getProjectPage(cursor?: string): Observable<{ projects: Project[], nextCursor: string | null }> {
+    const query = cursor ? `?size=100&cursor=${encodeURIComponent(cursor)}` : '?size=100';
+    return this.apiService.getResponse<Project[]>(`projects${query}`).pipe(
+      map(response => ({ projects: response.body ?? [], nextCursor: response.headers.get('X-Next-Cursor') }))
+    );
   }
 
   getProjectById(id: string): Observable<Project> {